@@ -0,0 +1,211 @@
+import flight.FlightPlan;
+import flight.Ship;
+import flight.ShipBlueprint;
+import flight.ShipTaskState;
+import flight.construction.parts.ContainerPart;
+import flight.construction.parts.TankDefinition;
+import flight.construction.parts.propulsion.EngineDefinition;
+import flight.construction.parts.propulsion.FuelMixture;
+import flight.procedure.WaitProcedure;
+import flight.step.FlightStep;
+import simulation.Celestial;
+import simulation.CelestialType;
+import simulation.OrbitalElements;
+import simulation.Organisation;
+import simulation.SimulationListener;
+import simulation.SolarSystem;
+import simulation.Universe;
+import util.ConversionHelper;
+import util.TimingStats;
+import util.loaders.ResourceLoader;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fleet-size benchmark: spawns N ships on looping wait plans around a synthetic planet and
+ * reports per-tick latency and heap per ship. Only resources/economy/resources.json is read, so
+ * propellants carry the game's tags and fitted ships boil off as they do in the game.
+ *
+ * With --outfit every ship also gets a methalox tank and engine, spawned in bulk from one
+ * blueprint so they all share the same definitions; the bytes/ship column then shows the cost
+ * of a fitted ship.
+ *
+ * Usage: FleetBenchmark [--ships n[,n...]] [--days n] [--parallel] [--outfit]
+ */
+public class FleetBenchmark
+{
+    public static void main(String[] args)
+    {
+        int[] fleetSizes = {10_000, 100_000, 1_000_000};
+        int days = 365;
+        boolean parallel = false;
+        boolean outfit = false;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--ships" ->
+                {
+                    String[] parts = args[++i].split(",");
+                    fleetSizes = new int[parts.length];
+                    for (int k = 0; k < parts.length; k++)
+                    {
+                        fleetSizes[k] = Integer.parseInt(parts[k].trim());
+                    }
+                }
+                case "--days" -> days = Integer.parseInt(args[++i]);
+                case "--parallel" -> parallel = true;
+                case "--outfit" -> outfit = true;
+                default ->
+                {
+                    System.err.println("Unknown argument: " + args[i]);
+                    return;
+                }
+            }
+        }
+
+        ResourceLoader.loadResources("resources/economy/resources.json");
+
+        System.out.printf("%10s %10s %10s %10s %12s %12s%n", "ships", "mean ms", "p99 ms", "max ms", "steps/tick", "bytes/ship");
+        for (int n : fleetSizes)
+        {
+            run(n, days, parallel, outfit);
+        }
+    }
+
+    private static void run(int shipCount, int days, boolean parallel, boolean outfit)
+    {
+        long heapBefore = usedHeap();
+
+        // ships announce every mode switch on stdout, which would dominate setup time
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Universe universe;
+        try
+        {
+            universe = buildUniverse(shipCount, outfit);
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        universe.setParallelUpdate(parallel);
+
+        long bytesPerShip = (usedHeap() - heapBefore) / Math.max(1, shipCount);
+
+        double dt = ConversionHelper.dayToSecond(1);
+        TimingStats ticks = new TimingStats();
+        long[] steps = new long[1];
+        universe.addListener(new SimulationListener()
+        {
+            @Override
+            public void onStepExecuted(Ship ship, FlightStep step, double simTime)
+            {
+                steps[0]++;
+            }
+        });
+
+        // warm up the JIT before measuring
+        for (int i = 0; i < 30; i++)
+        {
+            universe.update(dt);
+        }
+        steps[0] = 0;
+
+        for (int i = 0; i < days; i++)
+        {
+            long t0 = System.nanoTime();
+            universe.update(dt);
+            ticks.record(System.nanoTime() - t0);
+        }
+
+        System.out.printf("%10d %10.3f %10.3f %10.3f %12.1f %12d%n", shipCount,
+                TimingStats.toMillis(ticks.getMeanNanos()),
+                TimingStats.toMillis(ticks.percentile(99)),
+                TimingStats.toMillis(ticks.getMaxNanos()),
+                (double) steps[0] / days,
+                bytesPerShip);
+    }
+
+    private static Universe buildUniverse(int shipCount, boolean outfit)
+    {
+        Celestial star = new Celestial("Star");
+        star.mass = 1.989e30;
+        star.radius = 6.96e8;
+        star.type = CelestialType.STAR;
+
+        Celestial planet = new Celestial("Planet");
+        planet.mass = 5.97e24;
+        planet.radius = 6.371e6;
+        planet.parent = star;
+        planet.orbitalElements = new OrbitalElements(1.496e11, 0.0167, 0, 0, star.mass);
+        star.children.add(planet);
+
+        Universe universe = new Universe();
+        universe.addSolarSystem(new SolarSystem(star));
+        Organisation org = new Organisation("Benchmark", universe, planet);
+        universe.addOrganisation(org);
+        universe.getFleet().ensureCapacity(shipCount);
+
+        // a handful of plans with different cadences, so only some ships are due each tick
+        SplittableRandom rng = new SplittableRandom(42);
+        FlightPlan[] plans = new FlightPlan[16];
+        for (int p = 0; p < plans.length; p++)
+        {
+            plans[p] = new FlightPlan(true);
+            plans[p].addProcedure(new WaitProcedure(ConversionHelper.dayToSecond(5 + rng.nextInt(56))));
+        }
+
+        FuelMixture methalox = new FuelMixture();
+        methalox.add("LCH4", 1.0);
+        methalox.add("LOX", 3.6);
+        methalox.normalize();
+        EngineDefinition engine = new EngineDefinition("methalox", 1500, methalox, 2000, 380);
+        TankDefinition tank = TankDefinition.forMixture("methalox_tank", 500, "tank", methalox, 3000, 0);
+
+        List<Ship> ships;
+        if (outfit)
+        {
+            // fit one ship in a scratch universe, then stamp out the fleet from its blueprint
+            Organisation scratch = new Organisation("Template", new Universe(), planet);
+            Ship template = new Ship("Template", planet, scratch);
+            ContainerPart tankPart = tank.create();
+            tankPart.fillAll();
+            template.newSection("tank", 0, "tank", "service");
+            template.addPartBasedOnSockets(tankPart);
+            template.addEngine(engine.create());
+            ships = ShipBlueprint.of(template).spawn("B", shipCount, planet, org);
+        }
+        else
+        {
+            ships = new ArrayList<>(shipCount);
+            for (int i = 0; i < shipCount; i++)
+            {
+                ships.add(new Ship("B" + i, planet, org));
+            }
+        }
+
+        for (int i = 0; i < shipCount; i++)
+        {
+            Ship ship = ships.get(i);
+            ship.setFlightPlan(plans[i % plans.length]);
+            ship.setTaskState(ShipTaskState.AUTO);
+        }
+        return universe;
+    }
+
+    private static long usedHeap()
+    {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -21,6 +21,7 @@ public class GUIManager extends JFrame {
     private Universe universe;
     private DefaultListModel<String> shipListModel;
     private JList<String> shipList;
+    private transient GameLoop loop;
 
     public GUIManager(Universe universe) {
         setTitle("Solar System Simulator");
@@ -67,6 +68,8 @@ public class GUIManager extends JFrame {
 
         JButton playButton = new JButton("Play");
         JButton stepButton = new JButton("Step");
+        JButton undoButton = new JButton("Undo");
+        undoButton.setEnabled(false);
         JComboBox<String> modeBox = new JComboBox<>(new String[]{"Real Time", "Turn Based"});
 
         // Editable combo box for days/sec
@@ -80,7 +83,7 @@ public class GUIManager extends JFrame {
         JButton flightPlanDesignerBtn = new JButton("Flight Plan Designer");
         flightPlanDesignerBtn.addActionListener(e -> {
             // Grab all ships and all celestials in the universe
-            ArrayList<Ship> legacyShips = universe.getShips();
+            java.util.List<Ship> legacyShips = universe.getShips();
             ArrayList<Celestial> celestials = new ArrayList<>();
             for (SolarSystem ss : universe.getSolarSystems()) {
                 celestials.addAll(ss.getAllBodies());
@@ -95,8 +98,9 @@ public class GUIManager extends JFrame {
 
         // Play / Pause
         playButton.addActionListener(e -> {
-            Main.paused = !Main.paused;
-            playButton.setText(Main.paused ? "Play" : "Pause");
+            if (loop == null) return;
+            loop.setPaused(!loop.isPaused());
+            playButton.setText(loop.isPaused() ? "Play" : "Pause");
         });
 
         // Step (for turn-based mode)
@@ -105,6 +109,14 @@ public class GUIManager extends JFrame {
             render();
         });
 
+        // Undo the last turn (turn-based mode)
+        undoButton.addActionListener(e -> {
+            if (universe.rollback()) {
+                render();
+                refreshShipList();
+            }
+        });
+
         // Planner button
         plannerGUI.addActionListener(e -> openTransferPlanner());
 
@@ -112,10 +124,13 @@ public class GUIManager extends JFrame {
         modeBox.addActionListener(e -> {
             if (modeBox.getSelectedIndex() == 0) {
                 universe.setMode(Universe.TimeMode.REAL_TIME);
+                universe.clearCheckpoints(); // no undo in real time, stop copying ships
                 stepButton.setEnabled(false);
+                undoButton.setEnabled(false);
             } else {
                 universe.setMode(Universe.TimeMode.TURN_BASED);
                 stepButton.setEnabled(true);
+                undoButton.setEnabled(true);
             }
         });
 
@@ -135,6 +150,7 @@ public class GUIManager extends JFrame {
         // Add all controls to toolbar
         toolbar.add(playButton);
         toolbar.add(stepButton);
+        toolbar.add(undoButton);
         toolbar.add(modeBox);
         toolbar.add(speedBox);
         toolbar.add(plannerGUI);
@@ -238,9 +254,9 @@ public class GUIManager extends JFrame {
             public void mouseClicked(MouseEvent e) {
                 if (e.getClickCount() == 2) {
                     int index = shipList.locationToIndex(e.getPoint());
-                    if (index >= 0 && index < universe.getShips().size()) {
+                    if (loop != null && index >= 0 && index < universe.getShips().size()) {
                         Ship selectedLegacyShip = universe.getShips().get(index);
-                        new ShipInfoWindow(universe, selectedLegacyShip);
+                        new ShipInfoWindow(universe, selectedLegacyShip, loop.getScheduler());
                     }
                 }
             }
@@ -258,6 +274,9 @@ public class GUIManager extends JFrame {
             shipListModel.addElement(legacyShip.getName() + " — " + status);
         }
     }
+    public void setGameLoop(GameLoop loop) {
+        this.loop = loop;
+    }
     public SolarSystemViewer getSolarSystemViewer() {
         return solarSystemViewer;
     }
@@ -270,8 +289,13 @@ public class GUIManager extends JFrame {
 
     // This is the proper render call
     public void render() {
-        solarSystemViewer.getPanel().repaint();
-        refreshShipList();
+        render(1.0);
+    }
+
+    // alpha: how far between the last two simulation ticks to draw, see Universe.getInterpolatedTime
+    // the ship list is rebuilt separately, at its own (much slower) rate
+    public void render(double alpha) {
+        solarSystemViewer.setSimulationTime(universe.getInterpolatedTime(alpha));
     }
 }
 class ExpandButtonTreeRenderer extends JPanel implements TreeCellRenderer
@@ -1,40 +1,236 @@
 import simulation.Universe;
+import util.TimingStats;
+import util.schedule.Subsystem;
+import util.schedule.SubsystemScheduler;
 
+import javax.swing.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-timestep game loop.
+ *
+ * The simulation advances in fixed ticks of 1 / tickRate wall seconds, fed by an accumulator
+ * of elapsed real time. Rendering happens once per frame at frameRate, between ticks, with an
+ * interpolation factor for how far the accumulator is into the next tick. The thread parks
+ * between frames instead of spinning.
+ *
+ * If ticks can't keep up, the accumulator is capped at maxTicksPerFrame worth of ticks and the
+ * rest is dropped (and counted), so a slow patch doesn't snowball into ever longer frames.
+ *
+ * Slower jobs (ship list, ship info, autosave...) go on the scheduler, which runs once per frame.
+ *
+ * The loop thread only keeps time. The ticks, the render and the scheduler of each frame run
+ * together on the EDT, where Swing reads the universe, and the loop waits for them before pacing
+ * the next frame; nothing else may touch the universe once the loop has started.
+ */
 public class GameLoop {
 
-    private boolean running = true;
-    private double tickRate = 60.0; // ticks per second
-    private Universe universe;
-    private GUIManager gui;
+    private volatile boolean running = false;
+    private volatile boolean paused = false;
+    private double tickRate = 30.0;  // simulation ticks per wall second
+    private double frameRate = 60.0; // render frames per wall second
+    private int maxTicksPerFrame = 8;
+
+    private final Universe universe;
+    private final GUIManager gui;
+    private final SubsystemScheduler scheduler;
+
+    // timings, tick and frame stats are written on the EDT
+    private final TimingStats tickStats = new TimingStats(600);
+    private final TimingStats frameStats = new TimingStats(600);
+    private volatile long droppedTicks = 0;
+    private volatile long frameFailures = 0;
+    private volatile double measuredFps = 0;
+    private volatile double measuredTps = 0;
 
-    public GameLoop()
+    public GameLoop(Universe universe, GUIManager gui)
     {
-        this.universe = new Universe();
-        this.gui = new GUIManager(universe);
+        this.universe = universe;
+        this.gui = gui;
+        this.scheduler = new SubsystemScheduler(() -> universe.time);
+        scheduler.every("ship list", Subsystem.Clock.WALL, 0.5, wallSeconds -> gui.refreshShipList()).budgetMillis(5);
     }
 
     public void start()
     {
-        long lastTime = System.nanoTime();
-        double nsPerTick = 1_000_000_000.0 / tickRate;
+        running = true;
+
+        final long tickNanos = (long) (1_000_000_000.0 / tickRate);
+        final long frameNanos = (long) (1_000_000_000.0 / frameRate);
+        final double tickSeconds = 1.0 / tickRate;
+
+        long previous = System.nanoTime();
+        long nextFrame = previous + frameNanos;
+        long accumulator = 0;
+
+        long rateWindowStart = previous;
+        int framesInWindow = 0, ticksInWindow = 0;
 
         while (running)
         {
+            long frameStart = System.nanoTime();
+            long elapsed = frameStart - previous;
+            previous = frameStart;
+
+            accumulator += elapsed;
+
+            int ticks = (int) Math.min(accumulator / tickNanos, maxTicksPerFrame);
+            accumulator -= ticks * tickNanos;
+
+            // spiral-of-death guard: drop whatever we could not catch up on this frame
+            if (accumulator >= tickNanos)
+            {
+                droppedTicks += accumulator / tickNanos;
+                accumulator %= tickNanos;
+            }
+
+            if (!runFrameOnEdt(ticks, tickSeconds, (double) accumulator / tickNanos, frameStart))
+            {
+                break;
+            }
+
+            framesInWindow++;
+            ticksInWindow += ticks;
             long now = System.nanoTime();
-            double delta = (now - lastTime) / nsPerTick;
-            lastTime = now;
+            if (now - rateWindowStart >= 1_000_000_000L)
+            {
+                double seconds = (now - rateWindowStart) / 1e9;
+                measuredFps = framesInWindow / seconds;
+                measuredTps = ticksInWindow / seconds;
+                framesInWindow = 0;
+                ticksInWindow = 0;
+                rateWindowStart = now;
+            }
+
+            // pace to the frame rate; if we are already a whole frame late, don't try to catch up
+            if (now - nextFrame > frameNanos)
+            {
+                nextFrame = now;
+            }
+            parkUntil(nextFrame);
+            nextFrame += frameNanos;
+        }
+    }
+
+    private static void parkUntil(long deadline)
+    {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0)
+        {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    public void stop()
+    {
+        running = false;
+    }
+
+    public void setPaused(boolean paused)
+    {
+        this.paused = paused;
+    }
+
+    public boolean isPaused()
+    {
+        return paused;
+    }
+
+    public void setTickRate(double ticksPerSecond)
+    {
+        this.tickRate = ticksPerSecond;
+    }
+
+    public void setFrameRate(double framesPerSecond)
+    {
+        this.frameRate = framesPerSecond;
+    }
+
+    public void setMaxTicksPerFrame(int ticks)
+    {
+        this.maxTicksPerFrame = Math.max(1, ticks);
+    }
+
+    // false once the loop thread is interrupted
+    private boolean runFrameOnEdt(int ticks, double tickSeconds, double alpha, long frameStart)
+    {
+        try
+        {
+            SwingUtilities.invokeAndWait(() -> frame(ticks, tickSeconds, alpha, frameStart));
+            return true;
+        }
+        catch (InvocationTargetException e)
+        {
+            // same as a Swing timer: report it and carry on with the next frame
+            frameFailures++;
+            System.err.println("Game loop frame failed: " + e.getCause());
+            e.getCause().printStackTrace();
+            return true;
+        }
+        catch (InterruptedException e)
+        {
+            running = false;
+            return false;
+        }
+    }
 
-            update(delta / tickRate);
-            render();
+    private void frame(int ticks, double tickSeconds, double alpha, long frameStart)
+    {
+        for (int i = 0; i < ticks; i++)
+        {
+            long t0 = System.nanoTime();
+            update(tickSeconds);
+            tickStats.record(System.nanoTime() - t0);
         }
+        gui.render(alpha);
+        scheduler.runFrame(frameStart);
+        frameStats.record(System.nanoTime() - frameStart);
     }
-    private void update(double dt)
+
+    private void update(double wallSeconds)
     {
-        universe.update(dt);
-        //gui.update(dt);
+        if (!paused)
+        {
+            universe.tick(wallSeconds);
+        }
     }
-    private void render()
+
+    public SubsystemScheduler getScheduler()
+    {
+        return scheduler;
+    }
+
+    // ---------------
+    // measured timings
+    // ---------------
+    public TimingStats getTickStats()
+    {
+        return tickStats;
+    }
+
+    public TimingStats getFrameStats()
+    {
+        return frameStats;
+    }
+
+    public long getDroppedTicks()
+    {
+        return droppedTicks;
+    }
+
+    public long getFrameFailures()
+    {
+        return frameFailures;
+    }
+
+    public double getMeasuredFps()
+    {
+        return measuredFps;
+    }
+
+    public double getMeasuredTps()
     {
-        gui.render();
+        return measuredTps;
     }
 }
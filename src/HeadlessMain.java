@@ -0,0 +1,146 @@
+import flight.PlanningService;
+import flight.ShipState;
+import simulation.EventCounter;
+import simulation.SolarSystem;
+import simulation.Universe;
+import simulation.journal.EventJournal;
+import util.ConversionHelper;
+import util.TimingStats;
+import util.loaders.DirectoryLoader;
+import util.loaders.ScenarioLoader;
+import util.save.SaveManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the simulation without any GUI, as fast as it will go, and prints a throughput report.
+ *
+ * Usage: HeadlessMain [--systems dir] [--save file] [--scenario file] [--years n] [--dt seconds] [--parallel]
+ *                     [--journal file] [--async-planning]
+ */
+public class HeadlessMain
+{
+    public static void main(String[] args) throws IOException
+    {
+        String systemsDir = "resources/systems/main";
+        String savePath = null;
+        String scenarioPath = null;
+        double years = 1.0;
+        double dt = ConversionHelper.dayToSecond(1);
+        boolean parallel = false;
+        String journalPath = null;
+        boolean asyncPlanning = false;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--systems" -> systemsDir = args[++i];
+                case "--save" -> savePath = args[++i];
+                case "--scenario" -> scenarioPath = args[++i];
+                case "--years" -> years = Double.parseDouble(args[++i]);
+                case "--dt" -> dt = Double.parseDouble(args[++i]);
+                case "--parallel" -> parallel = true;
+                case "--journal" -> journalPath = args[++i];
+                case "--async-planning" -> asyncPlanning = true;
+                default ->
+                {
+                    System.err.println("Unknown argument: " + args[i]);
+                    return;
+                }
+            }
+        }
+
+        Universe universe = null;
+        if (savePath != null)
+        {
+            universe = SaveManager.loadUniverse(savePath);
+        }
+        if (universe == null)
+        {
+            List<SolarSystem> solarSystems = DirectoryLoader.loadFromDirectory(systemsDir);
+            universe = new Universe();
+            for (SolarSystem ss : solarSystems)
+            {
+                universe.addSolarSystem(ss);
+            }
+        }
+
+        if (scenarioPath != null)
+        {
+            int ships = ScenarioLoader.loadFromFile(scenarioPath, universe);
+            System.out.println("Scenario seeded " + ships + " ships.");
+        }
+
+        universe.setParallelUpdate(parallel);
+        if (asyncPlanning)
+        {
+            // faster on big fleets, but results then depend on thread timing
+            universe.setPlanningService(PlanningService.async(Runtime.getRuntime().availableProcessors()));
+        }
+
+        EventCounter events = new EventCounter();
+        universe.addListener(events);
+        TimingStats ticks = new TimingStats();
+
+        // the journal's base snapshot sits next to it as <journal>.snap
+        EventJournal journal = null;
+        if (journalPath != null)
+        {
+            journal = new EventJournal(Path.of(journalPath));
+            journal.snapshot(universe).writeTo(Path.of(journalPath + ".snap"));
+            universe.addListener(journal);
+        }
+
+        double simSeconds = ConversionHelper.dayToSecond(years * 365.25);
+        long tickCount = (long) Math.ceil(simSeconds / dt);
+
+        long start = System.nanoTime();
+        for (long i = 0; i < tickCount; i++)
+        {
+            long t0 = System.nanoTime();
+            universe.update(dt);
+            ticks.record(System.nanoTime() - t0);
+        }
+        long wall = System.nanoTime() - start;
+
+        if (journal != null)
+        {
+            journal.close();
+            System.out.println("Journal: " + journal.getRecordCount() + " records written to " + journalPath
+                    + (journal.getFailure() != null ? ", then it failed: " + journal.getFailure() : ""));
+        }
+
+        report(universe, events, ticks, tickCount * dt, wall);
+    }
+
+    private static void report(Universe universe, EventCounter events, TimingStats ticks, double simSeconds, long wallNanos)
+    {
+        double wallSeconds = wallNanos / 1e9;
+        double simDays = ConversionHelper.secondToDay(simSeconds);
+
+        System.out.println("---- headless run ----");
+        System.out.printf("Ships:            %d%n", universe.getShips().size());
+        System.out.printf("Ticks:            %d%n", ticks.getCount());
+        System.out.printf("Simulated:        %.1f days%n", simDays);
+        System.out.printf("Wall time:        %.3f s%n", wallSeconds);
+        System.out.printf("Throughput:       %.1f sim-days / wall-second%n", wallSeconds > 0 ? simDays / wallSeconds : 0);
+        System.out.printf("Tick latency ms:  mean %.3f  p50 %.3f  p90 %.3f  p99 %.3f  max %.3f%n",
+                TimingStats.toMillis(ticks.getMeanNanos()),
+                TimingStats.toMillis(ticks.percentile(50)),
+                TimingStats.toMillis(ticks.percentile(90)),
+                TimingStats.toMillis(ticks.percentile(99)),
+                TimingStats.toMillis(ticks.getMaxNanos()));
+        System.out.printf("Steps executed:   %d%n", events.getSteps());
+        for (Map.Entry<String, Long> e : events.getStepsByType().entrySet())
+        {
+            System.out.printf("  %-16s %d%n", e.getKey(), e.getValue());
+        }
+        System.out.printf("Plan changes:     %d%n", events.getPlanChanges());
+        System.out.printf("Plan faults:      %d%n", events.getTransitionsTo(ShipState.PLAN_FAULT));
+        System.out.printf("Ships finished:   %d%n", events.getTransitionsTo(ShipState.INACTIVE));
+    }
+}
@@ -1,24 +1,34 @@
-import economy.resource.ResourceContainer;
 import flight.*;
+import flight.construction.ConstructionManager;
 import flight.construction.parts.ContainerPart;
-import flight.construction.parts.propulsion.Engine;
-import flight.construction.parts.propulsion.FuelMixture;
+import flight.construction.parts.TankDefinition;
+import flight.construction.parts.propulsion.EngineDefinition;
 import simulation.Celestial;
 import simulation.Organisation;
 import simulation.SolarSystem;
 import simulation.Universe;
+import util.loaders.ConstructionLoader;
 import util.loaders.DirectoryLoader;
+import util.loaders.ResourceLoader;
+import util.schedule.Subsystem;
+import util.save.AutoSave;
 import util.save.SaveManager;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 public class Main
 {
-    public static boolean paused;
-
     public static void main(String[] args) throws IOException
     {
+        // resource tags drive boil-off, see ResourceDecay
+        ResourceLoader.loadResources("resources/economy/resources.json");
+
+        // shared definitions: every ship built from them carries only its own fill levels and
+        // engine state. Loaded before the save so loaded ships share them too.
+        ConstructionLoader.loadParts("resources/parts/parts.json");
+
         // Try to load existing universe
         Universe universe = SaveManager.loadUniverse("saves/universe.dat");
 
@@ -46,12 +56,38 @@ public class Main
             System.out.println("Loaded universe from save!");
         }
 
-        GUIManager guiManager = new GUIManager(universe);
-        paused = true;
+        // plan procedures off the Swing thread
+        universe.setPlanningService(PlanningService.async(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)));
 
         // One warm-up update
         universe.update(1);
 
+        // seed before any window exists; from here on only the EDT touches the universe
+        seedFirstRun(universe);
+
+        GUIManager gui = new GUIManager(universe);
+        GameLoop loop = new GameLoop(universe, gui);
+        loop.setPaused(true);
+        gui.setGameLoop(loop);
+
+        // snapshot between ticks, written on its own thread as an entry in the save's delta log;
+        // the log is compacted into a new save once it is as big as the save, keeping the last three
+        AutoSave autosave = new AutoSave(universe, Path.of("saves/universe.dat"), 3, 1.0);
+        loop.getScheduler().every("autosave", Subsystem.Clock.WALL, 60, wallSeconds -> autosave.save()).firstRunAfter(60);
+        Runtime.getRuntime().addShutdownHook(new Thread(autosave::close));
+
+        new Thread(loop::start, "game-loop").start();
+    }
+
+    // Only does anything when the save is first created; organisations and ships are in the
+    // save after that.
+    private static void seedFirstRun(Universe universe)
+    {
+        if (universe.findOrganisationByName("Sin Space Engineering") != null)
+        {
+            return;
+        }
+
         // Find Earth (unchanged)
         Celestial earth = null;
         for (SolarSystem ss : universe.getSolarSystems())
@@ -68,47 +104,24 @@ public class Main
             }
         }
 
-        final Universe uni = universe;
-        final GUIManager gui = guiManager;
-
-        new javax.swing.Timer(33, e ->
-        {
-            if (!paused)
-            {
-                uni.tick();
-            }
-            gui.render();
-        }).start();
-
-
-        // The stuff below only runs when the save is first created.
-        // If you want organisations/ships also saved, we can add them to Universe.
         Organisation sinSpaceEngineering = new Organisation("Sin Space Engineering", universe, earth);
         universe.addOrganisation(sinSpaceEngineering);
 
         Ship vonBraun = new Ship("Von Braun", earth, sinSpaceEngineering);
 
-        FuelMixture methalox = new FuelMixture();
-
-        methalox.add("LCH4", 1.0);
-        methalox.add("LOX", 3.6);
-        methalox.normalize();
-
-        Engine engine = new Engine("methalox", 1500, methalox, 2000, 380);
-
-        ContainerPart methaloxTank = new ContainerPart(500);
-
-        for (FuelMixture.Component comp : methalox.getComponentList())
+        EngineDefinition engine = ConstructionManager.getEngineDefinition("methalox");
+        TankDefinition tankType = ConstructionManager.getTankDefinition("methalox_tank");
+        if (engine == null || tankType == null)
         {
-            double mass = 3000 * comp.massFraction();
-            ResourceContainer rs = new ResourceContainer(comp.resourceId(), mass);
-            methaloxTank.addContainer(rs);
+            System.err.println("No methalox parts in resources/parts/parts.json, Von Braun left unfitted");
+            return;
         }
 
+        ContainerPart methaloxTank = tankType.create();
         methaloxTank.fillAll();
 
         vonBraun.newSection("tank", 0, "tank", "service");
         vonBraun.addPartBasedOnSockets(methaloxTank);
-        vonBraun.addEngine(engine);
+        vonBraun.addEngine(engine.create());
     }
 }
@@ -0,0 +1,337 @@
+import flight.FlightPlan;
+import flight.Ship;
+import flight.ShipBlueprint;
+import flight.ShipTaskState;
+import flight.construction.parts.ContainerPart;
+import flight.construction.parts.TankDefinition;
+import flight.construction.parts.propulsion.EngineDefinition;
+import flight.construction.parts.propulsion.FuelMixture;
+import flight.procedure.HohmannTransferProcedure;
+import flight.procedure.WaitProcedure;
+import simulation.Celestial;
+import simulation.CelestialType;
+import simulation.OrbitalElements;
+import simulation.Organisation;
+import simulation.SolarSystem;
+import simulation.Universe;
+import util.ConversionHelper;
+import util.loaders.ResourceLoader;
+import util.save.AutoSave;
+import util.save.SaveCodec;
+import util.save.SaveJournal;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Save and load times of the SaveCodec format against Java serialization, for synthetic fleets.
+ * Also checks the round trip: the loaded universe must save to the same bytes, and after running
+ * both on for a while every ship must still agree. The autosave column is the time to snapshot
+ * the universe for a background save, and whether what AutoSave wrote while the universe ran on
+ * matches a save taken at the snapshot's moment. The delta column is the mean size of a day's
+ * SaveJournal entry, and whether the base with its entries replayed loads back to the universe.
+ * Resources come from resources/economy/resources.json, so the tanks boil off as in the game.
+ *
+ * Usage: SaveBenchmark [--ships n[,n...]] [--reps n]
+ */
+public class SaveBenchmark
+{
+    public static void main(String[] args) throws IOException
+    {
+        int[] fleetSizes = {1_000, 10_000, 100_000};
+        int reps = 5;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--ships" ->
+                {
+                    String[] parts = args[++i].split(",");
+                    fleetSizes = new int[parts.length];
+                    for (int k = 0; k < parts.length; k++)
+                    {
+                        fleetSizes[k] = Integer.parseInt(parts[k].trim());
+                    }
+                }
+                case "--reps" -> reps = Integer.parseInt(args[++i]);
+                default ->
+                {
+                    System.err.println("Unknown argument: " + args[i]);
+                    return;
+                }
+            }
+        }
+
+        ResourceLoader.loadResources("resources/economy/resources.json");
+
+        System.out.printf("%10s %10s %10s %12s %14s %10s %16s %18s%n", "ships", "save ms", "load ms", "bytes", "serialization", "round trip", "autosave", "delta");
+        for (int n : fleetSizes)
+        {
+            run(n, reps);
+        }
+    }
+
+    private static void run(int shipCount, int reps) throws IOException
+    {
+        // ships announce mode switches and plan faults on stdout
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Universe universe;
+        try
+        {
+            universe = buildUniverse(shipCount);
+            for (int d = 0; d < 30; d++)
+            {
+                universe.update(ConversionHelper.dayToSecond(1));
+            }
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+
+        byte[] saved = null;
+        long bestSave = Long.MAX_VALUE;
+        for (int r = 0; r < reps; r++)
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            long t0 = System.nanoTime();
+            SaveCodec.write(universe, bytes);
+            bestSave = Math.min(bestSave, System.nanoTime() - t0);
+            saved = bytes.toByteArray();
+        }
+
+        Universe loaded = null;
+        long bestLoad = Long.MAX_VALUE;
+        for (int r = 0; r < reps; r++)
+        {
+            long t0 = System.nanoTime();
+            loaded = SaveCodec.read(new ByteArrayInputStream(saved));
+            bestLoad = Math.min(bestLoad, System.nanoTime() - t0);
+        }
+
+        String serialization = serialization(universe);
+        String roundTrip = roundTrip(saved, loaded, universe);
+        String autosave = autosave(universe);
+        System.out.printf("%10d %10.1f %10.1f %12d %14s %10s %16s %18s%n", shipCount,
+                bestSave / 1e6, bestLoad / 1e6, saved.length, serialization, roundTrip, autosave, journal(universe));
+    }
+
+    // each round saves in the background while the universe runs on for five days
+    private static String autosave(Universe universe) throws IOException
+    {
+        Path dir = Files.createTempDirectory("autosave");
+        Path file = dir.resolve("universe.dat");
+        AutoSave autosave = new AutoSave(universe, file, 2);
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try
+        {
+            boolean same = true;
+            for (int round = 0; round < 4; round++)
+            {
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                SaveCodec.write(universe, expected);
+                autosave.save();
+                for (int d = 0; d < 5; d++)
+                {
+                    universe.update(ConversionHelper.dayToSecond(1));
+                }
+                autosave.await();
+                same &= autosave.getLastError() == null && Arrays.equals(expected.toByteArray(), Files.readAllBytes(file));
+            }
+            same &= Files.exists(AutoSave.generation(file, 2)) && !Files.exists(AutoSave.generation(file, 3));
+            return same ? String.format("%.1f ms, ok", autosave.getLastCaptureMillis()) : "differs";
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+        finally
+        {
+            System.setOut(out);
+            autosave.close();
+            try (var files = Files.list(dir))
+            {
+                for (Path f : files.toList())
+                {
+                    Files.delete(f);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    // the old path: ObjectOutputStream over the whole universe
+    private static String serialization(Universe universe)
+    {
+        long t0 = System.nanoTime();
+        try (ObjectOutputStream out = new ObjectOutputStream(OutputStream.nullOutputStream()))
+        {
+            out.writeObject(universe);
+            return String.format("%.1f ms", (System.nanoTime() - t0) / 1e6);
+        }
+        catch (NotSerializableException e)
+        {
+            return "fails";
+        }
+        catch (IOException e)
+        {
+            return "error";
+        }
+    }
+
+    private static String roundTrip(byte[] saved, Universe loaded, Universe original) throws IOException
+    {
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        SaveCodec.write(loaded, again);
+        if (!Arrays.equals(saved, again.toByteArray()))
+        {
+            return "bytes differ";
+        }
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try
+        {
+            for (int d = 0; d < 60; d++)
+            {
+                original.update(ConversionHelper.dayToSecond(1));
+                loaded.update(ConversionHelper.dayToSecond(1));
+            }
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+
+        int mismatches = 0;
+        List<Ship> a = original.getShips(), b = loaded.getShips();
+        for (int i = 0; i < a.size(); i++)
+        {
+            Ship x = a.get(i), y = b.get(i);
+            if (x.getMass() != y.getMass() || x.getLocationId() != y.getLocationId()
+                    || x.getStepState() != y.getStepState() || x.getPlanCursor() != y.getPlanCursor()
+                    || x.getTimeToWait() != y.getTimeToWait())
+            {
+                mismatches++;
+            }
+        }
+        return mismatches == 0 && a.size() == b.size() ? "ok" : mismatches + " differ";
+    }
+
+    // a base, then one entry per simulated day
+    private static String journal(Universe universe) throws IOException
+    {
+        Path dir = Files.createTempDirectory("journal");
+        Path file = dir.resolve("universe.dat");
+        SaveJournal journal = new SaveJournal(universe, file);
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try
+        {
+            journal.save();
+            int days = 10;
+            long deltaBytes = 0;
+            for (int d = 0; d < days; d++)
+            {
+                universe.update(ConversionHelper.dayToSecond(1));
+                deltaBytes += journal.save();
+            }
+
+            ByteArrayOutputStream live = new ByteArrayOutputStream(), replayed = new ByteArrayOutputStream();
+            SaveCodec.write(universe, live);
+            SaveCodec.write(SaveJournal.load(file), replayed);
+            boolean same = journal.getCompactions() == 1 && Arrays.equals(live.toByteArray(), replayed.toByteArray());
+            return same ? String.format("%d B, ok", deltaBytes / days) : "differs";
+        }
+        finally
+        {
+            System.setOut(out);
+            try (var files = Files.list(dir))
+            {
+                for (Path f : files.toList())
+                {
+                    Files.delete(f);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static Universe buildUniverse(int shipCount)
+    {
+        Celestial star = new Celestial("Star");
+        star.mass = 1.989e30;
+        star.radius = 6.96e8;
+        star.type = CelestialType.STAR;
+
+        Celestial inner = planet("Inner", star, 1.496e11);
+        Celestial outer = planet("Outer", star, 2.279e11);
+
+        Universe universe = new Universe();
+        universe.addSolarSystem(new SolarSystem(star));
+        universe.getFleet().ensureCapacity(shipCount);
+
+        FuelMixture methalox = new FuelMixture();
+        methalox.add("LCH4", 1.0);
+        methalox.add("LOX", 3.6);
+        methalox.normalize();
+        EngineDefinition engine = new EngineDefinition("methalox", 1500, methalox, 2000, 380);
+        TankDefinition tank = TankDefinition.forMixture("methalox_tank", 500, "tank", methalox, 30000, 0);
+
+        Organisation scratch = new Organisation("Template", new Universe(), inner);
+        Ship template = new Ship("Template", inner, scratch);
+        ContainerPart tankPart = tank.create();
+        tankPart.fillAll();
+        template.newSection("tank", 200, "tank", "service");
+        template.addPartBasedOnSockets(tankPart);
+        template.addEngine(engine.create());
+        ShipBlueprint blueprint = ShipBlueprint.of(template);
+
+        // mostly waiting ships, some flying transfers so there are burns and queued steps to save
+        SplittableRandom rng = new SplittableRandom(42);
+        FlightPlan[] plans = new FlightPlan[8];
+        for (int p = 0; p < plans.length; p++)
+        {
+            plans[p] = new FlightPlan(true);
+            plans[p].setName("Plan " + p);
+            plans[p].addProcedure(new WaitProcedure(ConversionHelper.dayToSecond(5 + rng.nextInt(56))));
+        }
+        FlightPlan transfer = new FlightPlan(true);
+        transfer.setName("Transfer");
+        transfer.addProcedure(new HohmannTransferProcedure(inner, outer, 10_000, 0));
+        transfer.addProcedure(new HohmannTransferProcedure(outer, inner, 10_000, 0));
+
+        for (int o = 0; o < 4; o++)
+        {
+            Organisation org = new Organisation("Org " + o, universe, inner);
+            universe.addOrganisation(org);
+            List<Ship> ships = blueprint.spawn(org.getName() + " ", shipCount / 4, inner, org);
+            for (int i = 0; i < ships.size(); i++)
+            {
+                Ship ship = ships.get(i);
+                ship.setFlightPlan(i % 10 == 0 ? transfer : plans[i % plans.length]);
+                ship.setTaskState(ShipTaskState.AUTO);
+            }
+        }
+        return universe;
+    }
+
+    private static Celestial planet(String name, Celestial star, double a)
+    {
+        Celestial planet = new Celestial(name);
+        planet.mass = 5.97e24;
+        planet.radius = 6.371e6;
+        planet.parent = star;
+        planet.orbitalElements = new OrbitalElements(a, 0.0167, 0, 0, star.mass);
+        star.children.add(planet);
+        return planet;
+    }
+}
@@ -0,0 +1,10 @@
+package economy.resource;
+
+/**
+ * Told by how much a container's stored mass of a resource changed.
+ */
+@FunctionalInterface
+public interface MassListener
+{
+    void resourceMassChanged(int resource, double delta);
+}
@@ -1,15 +1,24 @@
 package economy.resource;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ResourceDatabase
 {
     private static final Map<String, ResourceDefinition> resources = new HashMap<>();
 
+    // dense int ids, handed out on registration or first use; never reused
+    private static final Map<String, Integer> indexByName = new ConcurrentHashMap<>();
+    private static final List<String> names = new ArrayList<>();
+
     public static void register(ResourceDefinition def)
     {
         resources.put(def.getId(), def);
+        intern(def.getId());
+        ResourceDecay.ratesChanged();
     }
 
     public static ResourceDefinition get(String id)
@@ -28,4 +37,61 @@ public class ResourceDatabase
     {
         return resources.containsKey(id);
     }
+
+    // -----------------
+    // interned indices
+    // -----------------
+
+    /**
+     * Dense index for a resource name, assigned on first use. Tanks and mixtures store
+     * per-resource values in arrays by this index. Names that aren't registered (yet) still
+     * get one, so parts can be built before the resource files are loaded.
+     */
+    public static int intern(String id)
+    {
+        Integer index = indexByName.get(id);
+        if (index != null)
+        {
+            return index;
+        }
+        synchronized (names)
+        {
+            index = indexByName.get(id);
+            if (index == null)
+            {
+                index = names.size();
+                names.add(id);
+                indexByName.put(id, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Index of an already interned name, or -1. Doesn't assign one.
+     */
+    public static int indexOf(String id)
+    {
+        Integer index = indexByName.get(id);
+        return index != null ? index : -1;
+    }
+
+    public static String nameOf(int index)
+    {
+        synchronized (names)
+        {
+            return names.get(index);
+        }
+    }
+
+    /**
+     * Number of interned names, i.e. one past the highest index.
+     */
+    public static int size()
+    {
+        synchronized (names)
+        {
+            return names.size();
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package economy.resource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Steady losses such as boil-off, driven by resource tags: a tag can carry a loss rate and a
+ * resource loses at the highest rate among its tags (so LOX tagged "cryogenic" boils off).
+ *
+ * Loss is exponential, so it is worked out when needed rather than applied every tick: a ship's
+ * tank levels are stored as of its decay time, reads of its masses fold in e^(-rate t) for the
+ * time since, and anything that writes to its tanks settles them to the current time first
+ * (see Ship.settleDecay). Ships nobody looks at cost nothing. A rate change applies from each
+ * ship's decay time on.
+ */
+public class ResourceDecay
+{
+    // fraction lost per day, by tag
+    private static final Map<String, Double> tagRates = new ConcurrentHashMap<>(Map.of("cryogenic", 0.001));
+
+    // bumped when a tag rate or a resource definition changes, so cached rates get looked up again
+    private static volatile long ratesVersion;
+
+    public static void setTagRate(String tag, double fractionPerDay)
+    {
+        tagRates.put(tag, fractionPerDay);
+        ratesChanged();
+    }
+
+    static void ratesChanged()
+    {
+        ratesVersion++;
+    }
+
+    public static long getRatesVersion()
+    {
+        return ratesVersion;
+    }
+
+    public static double getTagRate(String tag)
+    {
+        return tagRates.getOrDefault(tag, 0.0);
+    }
+
+    /**
+     * Loss rate of a resource per second, continuous (level × e^(-rate t)); 0 if the resource
+     * isn't registered or none of its tags decays.
+     */
+    public static double rateOf(String resourceId)
+    {
+        if (!ResourceDatabase.exists(resourceId))
+        {
+            return 0.0;
+        }
+        double perDay = 0;
+        for (String tag : ResourceDatabase.get(resourceId).getTags())
+        {
+            perDay = Math.max(perDay, getTagRate(tag));
+        }
+        return perDay <= 0 ? 0.0 : -Math.log(1.0 - Math.min(perDay, 1.0)) / 86400.0;
+    }
+}
@@ -0,0 +1,24 @@
+package economy.resource;
+
+/**
+ * Fixed-capacity storage for resources in numbered slots, one resource per slot (a tank).
+ * TransferEngine moves mass between slots of stores.
+ */
+public interface ResourceStore
+{
+    int size();
+
+    /**
+     * Interned resource id held in a slot, see ResourceDatabase.intern.
+     */
+    int getResource(int slot);
+
+    double getCapacity(int slot);
+
+    double getLevel(int slot);
+
+    /**
+     * Sets a slot's stored mass, clamped to [0, capacity].
+     */
+    void setLevel(int slot, double massKg);
+}
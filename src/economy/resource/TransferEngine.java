@@ -0,0 +1,194 @@
+package economy.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Moves resources between store slots in batches: orders queue up during a tick and are applied
+ * together at its end, so every order sees the same starting levels whatever order they were
+ * submitted in.
+ *
+ * When the orders on one slot ask for more than it holds, each gets the same fraction of
+ * what it asked for (so two ships drawing from one depot share it in proportion); likewise for
+ * more than a slot has room for. Each touched slot is then written once with its net change,
+ * so the ship's mass tree sees one exact delta per batch.
+ */
+public class TransferEngine
+{
+    // within a batch, orders between the same two owners keep their submission order
+    private static final Comparator<TransferOrder> BY_OWNERS = Comparator
+            .comparingInt((TransferOrder o) -> o.destinationOwner)
+            .thenComparingInt(o -> o.sourceOwner);
+
+    private final List<TransferOrder> pending = new ArrayList<>();
+
+    // per batch, by batch slot (each store slot touched gets one)
+    private final IdentityHashMap<ResourceStore, int[]> slotsOf = new IdentityHashMap<>();
+    private int slots;
+    private ResourceStore[] stores = new ResourceStore[0];
+    private int[] storeSlot = new int[0];
+    private int[] owner = new int[0];
+    private double[] level = new double[0];
+    private double[] capacity = new double[0];
+    private double[] outgoing = new double[0];
+    private double[] incoming = new double[0];
+    private double[] net = new double[0];
+
+    // per batch, by order
+    private int[] from = new int[0];
+    private int[] to = new int[0];
+    private double[] amount = new double[0];
+
+    public synchronized void submit(TransferOrder order)
+    {
+        pending.add(order);
+    }
+
+    public synchronized int pendingCount()
+    {
+        return pending.size();
+    }
+
+    public synchronized void clear()
+    {
+        pending.clear();
+    }
+
+    /**
+     * Applies every pending order as one batch. Invalid orders (different resources, nothing to
+     * move) complete with nothing delivered.
+     *
+     * @param beforeUse  told the owner id before each of its stores is first read, e.g. to bring
+     *                   its levels up to date and save it for undo; may be null
+     * @return the orders applied, each with its delivered mass set
+     */
+    public List<TransferOrder> apply(IntConsumer beforeUse)
+    {
+        List<TransferOrder> batch;
+        synchronized (this)
+        {
+            if (pending.isEmpty())
+            {
+                return List.of();
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        batch.sort(BY_OWNERS);
+
+        int n = batch.size();
+        if (amount.length < n)
+        {
+            from = new int[n];
+            to = new int[n];
+            amount = new double[n];
+        }
+
+        // gather: one batch slot per store slot, with its level and what is asked of it
+        for (int k = 0; k < n; k++)
+        {
+            TransferOrder o = batch.get(k);
+            if (!o.isValid())
+            {
+                from[k] = -1;
+                continue;
+            }
+            from[k] = slotOf(o.source, o.sourceSlot, o.sourceOwner, beforeUse);
+            to[k] = slotOf(o.destination, o.destinationSlot, o.destinationOwner, beforeUse);
+            amount[k] = o.mass;
+            outgoing[from[k]] += o.mass;
+        }
+
+        // sources: nobody takes more than was there at the start, oversubscribed ones are shared
+        for (int k = 0; k < n; k++)
+        {
+            if (from[k] < 0)
+                continue;
+            int s = from[k];
+            if (outgoing[s] > level[s])
+            {
+                amount[k] *= level[s] / outgoing[s];
+            }
+            incoming[to[k]] += amount[k];
+        }
+
+        // destinations: nothing is delivered past the room there was at the start
+        for (int k = 0; k < n; k++)
+        {
+            if (from[k] < 0)
+                continue;
+            int d = to[k];
+            double room = capacity[d] - level[d];
+            if (incoming[d] > room)
+            {
+                amount[k] *= Math.max(0.0, room) / incoming[d];
+            }
+            net[from[k]] -= amount[k];
+            net[d] += amount[k];
+        }
+
+        // write back once per store slot, in batch slot order
+        for (int s = 0; s < slots; s++)
+        {
+            if (net[s] != 0)
+            {
+                stores[s].setLevel(storeSlot[s], level[s] + net[s]);
+            }
+        }
+        for (int k = 0; k < n; k++)
+        {
+            batch.get(k).complete(from[k] < 0 ? 0.0 : amount[k]);
+        }
+
+        slotsOf.clear();
+        Arrays.fill(stores, 0, slots, null);
+        Arrays.fill(outgoing, 0, slots, 0.0);
+        Arrays.fill(incoming, 0, slots, 0.0);
+        Arrays.fill(net, 0, slots, 0.0);
+        slots = 0;
+        return batch;
+    }
+
+    // the batch slot of a store slot, taking a new one the first time it is seen
+    private int slotOf(ResourceStore store, int index, int ownerId, IntConsumer beforeUse)
+    {
+        int[] batchSlots = slotsOf.get(store);
+        if (batchSlots == null)
+        {
+            if (beforeUse != null && ownerId >= 0)
+            {
+                beforeUse.accept(ownerId);
+            }
+            batchSlots = new int[store.size()];
+            Arrays.fill(batchSlots, -1);
+            slotsOf.put(store, batchSlots);
+        }
+        if (batchSlots[index] < 0)
+        {
+            if (slots == stores.length)
+            {
+                int size = Math.max(64, stores.length * 2);
+                stores = Arrays.copyOf(stores, size);
+                storeSlot = Arrays.copyOf(storeSlot, size);
+                owner = Arrays.copyOf(owner, size);
+                level = Arrays.copyOf(level, size);
+                capacity = Arrays.copyOf(capacity, size);
+                outgoing = Arrays.copyOf(outgoing, size);
+                incoming = Arrays.copyOf(incoming, size);
+                net = Arrays.copyOf(net, size);
+            }
+            int s = slots++;
+            stores[s] = store;
+            storeSlot[s] = index;
+            owner[s] = ownerId;
+            level[s] = store.getLevel(index);
+            capacity[s] = store.getCapacity(index);
+            batchSlots[index] = s;
+        }
+        return batchSlots[index];
+    }
+}
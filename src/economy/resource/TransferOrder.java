@@ -0,0 +1,71 @@
+package economy.resource;
+
+/**
+ * A request to move mass of one resource from one store slot to another, queued on a
+ * TransferEngine and carried out with the rest of its batch.
+ *
+ * Owners are whatever id the engine's caller uses to save state before a change (ship ids in
+ * the universe), or -1 for a store that doesn't belong to anything saved.
+ */
+public class TransferOrder
+{
+    public final ResourceStore source;
+    public final int sourceSlot;
+    public final int sourceOwner;
+    public final ResourceStore destination;
+    public final int destinationSlot;
+    public final int destinationOwner;
+    public final double mass;
+
+    // set when the batch is applied
+    private double delivered;
+    private boolean applied;
+
+    public TransferOrder(ResourceStore source, int sourceSlot, int sourceOwner,
+                         ResourceStore destination, int destinationSlot, int destinationOwner, double mass)
+    {
+        this.source = source;
+        this.sourceSlot = sourceSlot;
+        this.sourceOwner = sourceOwner;
+        this.destination = destination;
+        this.destinationSlot = destinationSlot;
+        this.destinationOwner = destinationOwner;
+        this.mass = mass;
+    }
+
+    /**
+     * Both ends hold the same resource and there is something to move.
+     */
+    public boolean isValid()
+    {
+        return source != null && destination != null
+                && (source != destination || sourceSlot != destinationSlot)
+                && source.getResource(sourceSlot) == destination.getResource(destinationSlot)
+                && mass > 0 && !Double.isNaN(mass);
+    }
+
+    /**
+     * Mass that actually moved (kg), after capacity limits and sharing with other orders.
+     */
+    public double getDelivered()
+    {
+        return delivered;
+    }
+
+    public boolean isApplied()
+    {
+        return applied;
+    }
+
+    void complete(double delivered)
+    {
+        this.delivered = delivered;
+        this.applied = true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s %.1f kg (%d -> %d)", source == null ? "?" : ResourceDatabase.nameOf(source.getResource(sourceSlot)), mass, sourceOwner, destinationOwner);
+    }
+}
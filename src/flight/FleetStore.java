@@ -0,0 +1,340 @@
+package flight;
+
+import simulation.Organisation;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Hot per-ship state for a whole fleet, kept in parallel primitive arrays indexed by ship id.
+ * Ship objects are handles onto a slot here plus their cold data (structure, plan, queue).
+ *
+ * The tick only scans nextEventTime: a ship is visited when its next event is due, so idle
+ * and waiting ships cost one array read per tick and their Ship objects are never touched.
+ *
+ * nextEventTime is the absolute sim time the ship's clock fires. It is +infinity while the
+ * clock is stopped (OFF, INACTIVE, PLAN_FAULT...), in which case timeToWait holds the
+ * remaining wait. While the clock runs, timeToWait is stale; ask the Ship.
+ *
+ * decayedTo is the sim time a ship's tank levels were last brought up to date for boil-off,
+ * see Ship.settleDecay.
+ */
+public class FleetStore
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size = 0;
+    private Ship[] ships = new Ship[INITIAL_CAPACITY];
+    private double[] nextEventTime = new double[INITIAL_CAPACITY];
+    private double[] timeToWait = new double[INITIAL_CAPACITY];
+    private byte[] stepState = new byte[INITIAL_CAPACITY];
+    private byte[] flightState = new byte[INITIAL_CAPACITY];
+    private byte[] taskState = new byte[INITIAL_CAPACITY];
+    private int[] location = new int[INITIAL_CAPACITY];
+    private int[] target = new int[INITIAL_CAPACITY];
+    private double[] decayedTo = new double[INITIAL_CAPACITY]; // sim time the tank levels are stored as of
+    private byte[] hasDeferred = new byte[INITIAL_CAPACITY]; // ship has effects for the merge phase
+    private int[] savedIn = new int[INITIAL_CAPACITY];      // checkpoint the ship's pre-image is already in
+    private int[] writtenIn = new int[INITIAL_CAPACITY];    // write epoch the ship was last changed in
+
+    // copy-on-write checkpointing: the first write to a ship after a checkpoint saves its old state here
+    private int checkpointSeq = 0;
+    private List<ShipMemento> undoLog;
+
+    // incremental snapshots: every write stamps the ship with the current epoch, see advanceEpoch
+    private int writeEpoch = 1;
+
+    private static final ShipState[] STEP_STATES = ShipState.values();
+    private static final FlightState[] FLIGHT_STATES = FlightState.values();
+    private static final ShipTaskState[] TASK_STATES = ShipTaskState.values();
+
+    private final List<Ship> view = new ShipView();
+
+    // bumped whenever a ship is added or removed or its parts change, for caches over every tank
+    private long structureVersion;
+
+    /**
+     * Allocates a slot for the ship and returns its id.
+     */
+    public int add(Ship ship, int locationId)
+    {
+        if (size == ships.length)
+        {
+            grow(size * 2);
+        }
+        int id = size++;
+        ships[id] = ship;
+        nextEventTime[id] = Double.POSITIVE_INFINITY;
+        timeToWait[id] = 0;
+        stepState[id] = (byte) ShipState.WAITING.ordinal();
+        flightState[id] = (byte) FlightState.ORBITING.ordinal();
+        taskState[id] = (byte) ShipTaskState.OFF.ordinal();
+        location[id] = locationId;
+        target[id] = -1;
+        savedIn[id] = checkpointSeq; // didn't exist at the checkpoint, rollback drops it instead
+        writtenIn[id] = writeEpoch;
+        structureVersion++;
+        return id;
+    }
+
+    /**
+     * Pre-sizes the arrays for a bulk spawn.
+     */
+    public void ensureCapacity(int capacity)
+    {
+        if (capacity > ships.length)
+        {
+            grow(capacity);
+        }
+    }
+
+    private void grow(int capacity)
+    {
+        ships = Arrays.copyOf(ships, capacity);
+        nextEventTime = Arrays.copyOf(nextEventTime, capacity);
+        timeToWait = Arrays.copyOf(timeToWait, capacity);
+        stepState = Arrays.copyOf(stepState, capacity);
+        flightState = Arrays.copyOf(flightState, capacity);
+        taskState = Arrays.copyOf(taskState, capacity);
+        location = Arrays.copyOf(location, capacity);
+        target = Arrays.copyOf(target, capacity);
+        decayedTo = Arrays.copyOf(decayedTo, capacity);
+        hasDeferred = Arrays.copyOf(hasDeferred, capacity);
+        savedIn = Arrays.copyOf(savedIn, capacity);
+        writtenIn = Arrays.copyOf(writtenIn, capacity);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public Ship getShip(int id)
+    {
+        return ships[id];
+    }
+
+    /**
+     * Read-only, random-access list over the fleet in id order. No copying.
+     */
+    public List<Ship> ships()
+    {
+        return view;
+    }
+
+    // -----------
+    // tick driver
+    // -----------
+
+    /**
+     * Runs every ship in [from, to) whose next event is due at the given time.
+     */
+    public void updateDue(int from, int to, double now)
+    {
+        final double[] next = nextEventTime;
+        final Ship[] s = ships;
+        for (int i = from; i < to; i++)
+        {
+            if (next[i] <= now)
+            {
+                s[i].update();
+            }
+        }
+    }
+
+    /**
+     * Merge phase: applies effects ships deferred during the update, in id order.
+     */
+    public void applyDeferredEffects()
+    {
+        final byte[] flags = hasDeferred;
+        for (int i = 0; i < size; i++)
+        {
+            if (flags[i] != 0)
+            {
+                flags[i] = 0;
+                ships[i].applyDeferredEffects();
+            }
+        }
+    }
+
+    void markDeferred(int id)
+    {
+        hasDeferred[id] = 1;
+    }
+
+    // -----------
+    // checkpoints
+    // -----------
+
+    /**
+     * Starts a new checkpoint. From now on the first write to each ship saves its current
+     * state into the returned log, so the checkpoint costs nothing up front and O(ships changed)
+     * afterwards.
+     */
+    public List<ShipMemento> beginCheckpoint()
+    {
+        checkpointSeq++;
+        undoLog = new ArrayList<>();
+        return undoLog;
+    }
+
+    /**
+     * Stops recording. Ships are no longer copied on write.
+     */
+    public void endCheckpoints()
+    {
+        undoLog = null;
+    }
+
+    /**
+     * Called before something outside the ship's own update changes it (transfers), so a
+     * checkpoint saves it first.
+     */
+    public void touch(int id)
+    {
+        writtenIn[id] = writeEpoch;
+        if (undoLog != null)
+        {
+            touch(ships[id]);
+        }
+    }
+
+    /**
+     * Called by a ship before it changes its own state.
+     */
+    void touch(Ship ship)
+    {
+        int id = ship.getId();
+        writtenIn[id] = writeEpoch;
+        if (undoLog == null || savedIn[id] == checkpointSeq)
+            return;
+
+        savedIn[id] = checkpointSeq;
+        ShipMemento m = ship.capture();
+        synchronized (undoLog) // parallel ship phase
+        {
+            undoLog.add(m);
+        }
+    }
+
+    /**
+     * Drops ships created after a checkpoint being rolled back to. Their ids are handed out again.
+     */
+    public void truncate(int newSize)
+    {
+        // one pass over each owner's list, not one per ship
+        Map<Organisation, Set<Ship>> dropped = new IdentityHashMap<>();
+        for (int i = newSize; i < size; i++)
+        {
+            dropped.computeIfAbsent(ships[i].owner, o -> Collections.newSetFromMap(new IdentityHashMap<>())).add(ships[i]);
+            ships[i] = null;
+            hasDeferred[i] = 0;
+        }
+        dropped.forEach(Organisation::removeShips);
+        size = Math.min(size, newSize);
+        structureVersion++;
+    }
+
+    /**
+     * Moves every ship's clocks on by dt, after the universe's own clock was (see
+     * Universe.shiftClock): due events stay as far ahead as they were, and boil-off counts from
+     * the new time.
+     */
+    public void shiftClock(double dt)
+    {
+        for (int id = 0; id < size; id++)
+        {
+            touch(id);
+            nextEventTime[id] += dt; // a stopped clock stays at +infinity
+            decayedTo[id] += dt;
+        }
+    }
+
+    // ------------
+    // write epochs
+    // ------------
+
+    /**
+     * Closes the current write epoch and returns it. Ships written from now on are stamped with
+     * a later epoch, so a snapshot taken now can later ask which ships changed since.
+     */
+    public int advanceEpoch()
+    {
+        return writeEpoch++;
+    }
+
+    /**
+     * True if the ship was written to after the given epoch was closed.
+     */
+    public boolean writtenSince(int id, int epoch)
+    {
+        return writtenIn[id] > epoch;
+    }
+
+    // a change that needs no undo record (renames, restores), still seen by snapshots
+    void written(int id)
+    {
+        writtenIn[id] = writeEpoch;
+    }
+
+    public long getStructureVersion()
+    {
+        return structureVersion;
+    }
+
+    void structureChanged()
+    {
+        structureVersion++;
+    }
+
+    // -------------------
+    // per-slot accessors
+    // -------------------
+    double getNextEventTime(int id) { return nextEventTime[id]; }
+    void setNextEventTime(int id, double t) { nextEventTime[id] = t; }
+
+    double getTimeToWait(int id) { return timeToWait[id]; }
+    void setTimeToWait(int id, double t) { timeToWait[id] = t; }
+
+    ShipState getStepState(int id) { return STEP_STATES[stepState[id]]; }
+    void setStepState(int id, ShipState s) { stepState[id] = (byte) s.ordinal(); }
+
+    FlightState getFlightState(int id) { return FLIGHT_STATES[flightState[id]]; }
+    void setFlightState(int id, FlightState s) { flightState[id] = (byte) s.ordinal(); }
+
+    ShipTaskState getTaskState(int id) { return TASK_STATES[taskState[id]]; }
+    void setTaskState(int id, ShipTaskState s) { taskState[id] = (byte) s.ordinal(); }
+
+    public int getLocation(int id) { return location[id]; }
+    void setLocation(int id, int celestialId) { location[id] = celestialId; }
+
+    public int getTarget(int id) { return target[id]; }
+    void setTarget(int id, int celestialId) { target[id] = celestialId; }
+
+    double getDecayedTo(int id) { return decayedTo[id]; }
+    void setDecayedTo(int id, double t) { decayedTo[id] = t; }
+
+    private class ShipView extends AbstractList<Ship> implements RandomAccess
+    {
+        @Override
+        public Ship get(int index)
+        {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return ships[index];
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
+}
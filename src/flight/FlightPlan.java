@@ -4,13 +4,16 @@ import flight.procedure.FlightProcedure;
 import simulation.Celestial;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FlightPlan {
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private final int id = nextId.getAndIncrement(); // stable for the session, unlike a repository index
     private ArrayList<FlightProcedure> procedures = new ArrayList<>();
     private String name;
     private String description;
     private boolean repeat = true;
-    private int currentIndex = 0;
 
     public FlightPlan(boolean repeat)
     {
@@ -22,22 +25,32 @@ public class FlightPlan {
         procedures.add(proc);
     }
 
-    public FlightProcedure getNextProcedure()
+    // A plan can be shared by many ships, so the cursor into it lives on each ship
+    // rather than here. That keeps ship updates independent of one another.
+    public FlightProcedure getProcedure(int cursor)
+    {
+        if(cursor < 0 || cursor >= procedures.size()) return null;
+        return procedures.get(cursor);
+    }
+
+    public int nextCursor(int cursor)
     {
-        if(procedures.isEmpty()) return null;
-        FlightProcedure proc = procedures.get(currentIndex);
-        currentIndex++;
-        if(currentIndex >= procedures.size())
+        int next = cursor + 1;
+        if(next >= procedures.size())
         {
-            if(repeat) currentIndex = 0;
-            else currentIndex = procedures.size();
+            return repeat ? 0 : procedures.size();
         }
-        return proc;
+        return next;
+    }
+
+    public boolean isComplete(int cursor)
+    {
+        return !repeat && cursor >= procedures.size();
     }
 
-    public boolean isComplete()
+    public int getId()
     {
-        return !repeat && currentIndex >= procedures.size();
+        return id;
     }
 
     public void setName(String text)
@@ -0,0 +1,80 @@
+package flight;
+
+import flight.procedure.FlightProcedure;
+import flight.step.FlightStep;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns procedures into step lists, either on a worker pool or on the calling thread.
+ * Ships sit in ShipState.PLANNING until their future completes; a procedure that throws
+ * ends up as a PLAN_FAULT on the ship instead of escaping the tick.
+ */
+public class PlanningService
+{
+    private final ExecutorService executor; // null: plan on the calling thread
+
+    private PlanningService(ExecutorService executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Plans inline. Deterministic, used for headless runs and forks.
+     */
+    public static PlanningService synchronous()
+    {
+        return new PlanningService(null);
+    }
+
+    /**
+     * Plans on a pool of daemon threads, so the simulation keeps ticking meanwhile.
+     */
+    public static PlanningService async(int threads)
+    {
+        AtomicInteger count = new AtomicInteger();
+        return new PlanningService(Executors.newFixedThreadPool(Math.max(1, threads), r ->
+        {
+            Thread t = new Thread(r, "planner-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    public boolean isAsync()
+    {
+        return executor != null;
+    }
+
+    /**
+     * Plans the procedure for the given sim epoch. The ship is only read; it must not
+     * execute steps until the future completes.
+     */
+    public CompletableFuture<List<FlightStep>> plan(FlightProcedure proc, Ship ship, double epoch)
+    {
+        if (executor == null)
+        {
+            try
+            {
+                return CompletableFuture.completedFuture(proc.generateSteps(ship, epoch));
+            }
+            catch (RuntimeException e)
+            {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> proc.generateSteps(ship, epoch), executor);
+    }
+
+    public void shutdown()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,27 +1,41 @@
 package flight;
 
-import economy.resource.ResourceContainer;
+import economy.resource.ResourceDatabase;
+import economy.resource.TransferEngine;
+import economy.resource.TransferOrder;
 import flight.construction.IMass;
 import flight.construction.parts.ContainerPart;
 import flight.construction.parts.Part;
 import flight.construction.parts.propulsion.Engine;
 import flight.construction.parts.propulsion.FuelMixture;
 import flight.construction.sections.Section;
+import flight.construction.staging.Stage;
+import flight.construction.staging.StageStack;
+import flight.construction.staging.Staging;
 import flight.construction.superstructures.*;
 import flight.procedure.FlightProcedure;
 import flight.step.FlightStep;
 import simulation.Celestial;
 import simulation.Organisation;
+import simulation.Universe;
 import util.ConversionHelper;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-public class Ship implements IMass
+public final class Ship implements IMass
 {
 
+    private final int id;
+    private final FleetStore fleet; // hot per-tick state, indexed by id
     private String name;
     public Organisation owner;
 
@@ -31,25 +45,29 @@ public class Ship implements IMass
     private PayloadShipModule payloadModule;
     private ServiceShipModule serviceModule;
     private EngineShipModule engineBlock;
-    private Map<String, Section> socketsBySectionName = new HashMap<>();
+    private Map<String, Section> socketsBySectionName; // created with the first section
+    private final ShipMassModel massModel = new ShipMassModel(this);
+    private Staging staging; // only once a stage is added
 
     // some object to store current crew...
 
     // flight logic
     private ArrayDeque<FlightStep> flightQueue = new ArrayDeque<>();
     private FlightPlan plan;
-    public double timeToWait;
+    private int planCursor = 0;
 
-    // flight states
-    public ShipState stepState;
-    public FlightState flightState;
-    public ShipTaskState taskState;
+    // procedure being planned off-thread, see PlanningService
+    private CompletableFuture<List<FlightStep>> pendingPlan;
+    private double planEpoch;
+
+    private long structureVersion;
+
+    // side effects on other ships (transfers, docking...) raised during update().
+    // They are applied by the universe in its merge phase, in fleet order, so a
+    // parallel update gives the same result as a serial one.
+    private ArrayList<Runnable> deferredEffects; // created on first use, most ships never defer
 
-    // journey locations
-    public Celestial location;
-    public Celestial target;
     public FlightProcedure currentProcedure;
-    private double currentSimTime = 0; // keeps track of total sim time for step scheduling
 
     // TODO replace this with actual fuelling
     private String propellantType = "default";
@@ -57,47 +75,150 @@ public class Ship implements IMass
     public Ship(String name, Celestial location, Organisation owner)
     {
         this.name = name;
-        this.location = location;
         this.owner = owner;
+        this.fleet = owner.getUniverse().getFleet();
+        this.id = owner.getUniverse().registerShip(this, location);
+        fleet.setDecayedTo(id, owner.getUniverse().time);
         owner.addShip(this);
         this.currentProcedure = null;
-        this.stepState = ShipState.WAITING;
-        this.flightState = FlightState.ORBITING;
-        this.taskState = ShipTaskState.OFF;
 
         // placeholders for now
         this.engineBlock = new EngineShipModule();
+        this.engineBlock.setChangeListener(this::enginesChanged);
         this.payloadModule = new PayloadShipModule();
         this.serviceModule = new ServiceShipModule();
+        engineBlock.getMassNode().attachTo(massModel.getRoot());
+        payloadModule.getMassNode().attachTo(massModel.getRoot());
+        serviceModule.getMassNode().attachTo(massModel.getRoot());
         this.truss = new Truss();
     }
 
+    /**
+     * Copies another ship into a new ship owned by the given organisation, normally one in a
+     * forked universe. Celestials, plans and queued steps don't change during a run and are
+     * shared; modules, sections and parts are copied.
+     */
+    public Ship(Ship source, Organisation owner)
+    {
+        this(source.name, source.getLocation(), owner);
+        fleet.setTarget(id, source.fleet.getTarget(source.id));
+        fleet.setStepState(id, source.getStepState());
+        fleet.setFlightState(id, source.getFlightState());
+        fleet.setTaskState(id, source.getTaskState());
+        // the fork starts at the source's time, so absolute event times carry over as-is
+        fleet.setTimeToWait(id, source.fleet.getTimeToWait(source.id));
+        fleet.setNextEventTime(id, source.fleet.getNextEventTime(source.id));
+        fleet.setDecayedTo(id, source.fleet.getDecayedTo(source.id)); // the copied tanks hold the source's levels
+        this.plan = source.plan;
+        this.planCursor = source.planCursor;
+        this.flightQueue.addAll(source.flightQueue);
+        this.currentProcedure = source.currentProcedure;
+        if (source.pendingPlan != null)
+        {
+            // plan again with the new owner's planner, for the same epoch
+            requestPlan(source.currentProcedure, source.planEpoch);
+        }
+
+        engineBlock.getMassNode().attachTo(null);
+        this.engineBlock = source.engineBlock.copy();
+        this.engineBlock.setChangeListener(this::enginesChanged);
+        engineBlock.getMassNode().attachTo(massModel.getRoot());
+        massModel.structureChanged();
+        this.payloadModule.copySectionsFrom(source.payloadModule);
+        this.serviceModule.copySectionsFrom(source.serviceModule);
+        for (Section s : payloadModule.getSections())
+        {
+            getSockets().put(s.getSocketName(), s);
+        }
+        for (Section s : serviceModule.getSections())
+        {
+            getSockets().put(s.getSocketName(), s);
+        }
+        if (source.staging != null)
+        {
+            copyStages(source);
+        }
+    }
+
+    // the copied modules keep the source's order, so sections and engines map across by position
+    private void copyStages(Ship source)
+    {
+        Map<Object, Object> copies = new IdentityHashMap<>();
+        mapByPosition(source.payloadModule.getSections(), payloadModule.getSections(), copies);
+        mapByPosition(source.serviceModule.getSections(), serviceModule.getSections(), copies);
+        mapByPosition(source.engineBlock.getAllEngines(), engineBlock.getAllEngines(), copies);
+
+        for (Stage stage : source.staging.getStages())
+        {
+            Stage copy = addStage(stage.getName());
+            for (Section s : stage.getSections())
+            {
+                copy.addSection((Section) copies.get(s));
+            }
+            for (Engine e : stage.getEngines())
+            {
+                copy.addEngine((Engine) copies.get(e));
+            }
+        }
+    }
+
+    private static void mapByPosition(List<?> from, List<?> to, Map<Object, Object> copies)
+    {
+        for (int i = 0; i < from.size(); i++)
+        {
+            copies.put(from.get(i), to.get(i));
+        }
+    }
+
     // -----------------
     // flight operations
     // -----------------
-    public void update(double dt)
+
+    /**
+     * Runs whatever is due at the universe's current time. The fleet store only calls this
+     * once the ship's next event time has passed, so it is never called for idle ships.
+     */
+    public void update()
     {
+        fleet.touch(this);
+
         // Don’t do anything if OFF
-        if (taskState == ShipTaskState.OFF)
+        if (getTaskState() == ShipTaskState.OFF)
             return;
 
-        if (stepState != ShipState.WAITING)
+        ShipState state = getStepState();
+        if (state == ShipState.PLANNING)
+        {
+            // the clock kept running while the planner worked, so steps catch up from the epoch
+            if (!collectPlan())
+                return;
+        }
+        else if (state != ShipState.WAITING)
+        {
             return;
+        }
 
-        currentSimTime += dt;
-        timeToWait -= dt;
+        runDueSteps();
+    }
 
-        while (timeToWait <= 0)
+    private void runDueSteps()
+    {
+        double now = owner.getUniverse().time;
+        while (getStepState() == ShipState.WAITING && fleet.getNextEventTime(id) <= now)
         {
             // When AUTO, refill only from plan
-            if (taskState == ShipTaskState.AUTO)
+            if (getTaskState() == ShipTaskState.AUTO && flightQueue.isEmpty())
             {
                 refillQueueIfNeeded();
+                if (getStepState() == ShipState.PLANNING && !collectPlan())
+                    return;
+                if (getStepState() != ShipState.WAITING)
+                    return;
             }
 
             if (flightQueue.isEmpty())
             {
-                stepState = ShipState.INACTIVE;
+                setStepState(ShipState.INACTIVE);
                 return;
             }
 
@@ -106,25 +227,32 @@ public class Ship implements IMass
                 break;
 
             step.execute(this);
-            timeToWait = step.getWait();
+            // measured from when the step was due, so steps stay on schedule regardless of tick size
+            fleet.setNextEventTime(id, fleet.getNextEventTime(id) + step.getWait());
+            fireStepExecuted(step);
         }
     }
 
     public void setFlightPlan(FlightPlan fp)
     {
+        fleet.touch(this);
         this.plan = fp;
+        this.planCursor = 0;
+        cancelPlanning();
+        fireFlightPlanChanged(fp);
         if (fp == null)
         {
             return;
         }
-        if (!fp.getOrigin().equals(this.location))
+        if (fp.getOrigin() != null && !fp.getOrigin().equals(getLocation()))
         {
             System.out.println("PlanFault on ship " + name + ": origin does not match current location!");
-            stepState = ShipState.PLAN_FAULT;
+            setStepState(ShipState.PLAN_FAULT);
             return;
         }
-        if (taskState == ShipTaskState.AUTO)
+        if (getTaskState() == ShipTaskState.AUTO && flightQueue.isEmpty())
         {
+            resetWait();
             refillQueueIfNeeded(); // pull in first procedure right away
         }
     }
@@ -134,47 +262,344 @@ public class Ship implements IMass
         return this.plan;
     }
 
+    public int getPlanCursor()
+    {
+        return planCursor;
+    }
+
     private void refillQueueIfNeeded()
     {
         if (plan == null) return;
+        if (pendingPlan != null) return;
         if (flightQueue.isEmpty())
         {
-            FlightProcedure proc = plan.getNextProcedure();
+            FlightProcedure proc = plan.getProcedure(planCursor);
+            planCursor = plan.nextCursor(planCursor);
             currentProcedure = proc;
             if (proc == null) return; // done
-            flightQueue.addAll(proc.generateSteps(this, currentSimTime));
+
+            // the queue actually ran dry when the last step's wait ran out, which may be before now
+            Universe u = owner.getUniverse();
+            requestPlan(proc, Math.min(u.time, fleet.getNextEventTime(id)));
+        }
+    }
+
+    private void requestPlan(FlightProcedure proc, double epoch)
+    {
+        planEpoch = epoch;
+        pendingPlan = owner.getUniverse().getPlanningService().plan(proc, this, epoch);
+        setStepState(ShipState.PLANNING);
+        collectPlan(); // a synchronous planner is already done
+    }
+
+    /**
+     * Takes the planner's result if it is ready.
+     * @return true once the ship is no longer waiting on the planner
+     */
+    private boolean collectPlan()
+    {
+        if (pendingPlan == null)
+            return true;
+        if (!pendingPlan.isDone())
+            return false;
+
+        CompletableFuture<List<FlightStep>> done = pendingPlan;
+        pendingPlan = null;
+        try
+        {
+            flightQueue.addAll(done.join());
+            if (currentProcedure != null && currentProcedure.getProcedureDestination() != null)
+            {
+                setTarget(currentProcedure.getProcedureDestination());
+            }
+            setStepState(ShipState.WAITING);
+        }
+        catch (CompletionException | CancellationException e)
+        {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.out.println("PlanFault on ship " + name + ": " + cause.getMessage());
+            setStepState(ShipState.PLAN_FAULT);
+        }
+        return true;
+    }
+
+    private void cancelPlanning()
+    {
+        if (pendingPlan != null)
+        {
+            pendingPlan.cancel(false);
+            pendingPlan = null;
+            if (getStepState() == ShipState.PLANNING)
+            {
+                setStepState(ShipState.WAITING);
+            }
+        }
+    }
+
+    public boolean isPlanning()
+    {
+        return pendingPlan != null;
+    }
+
+    /**
+     * Drops any queued steps and starts the current plan again from its first procedure.
+     */
+    public void restartPlan()
+    {
+        fleet.touch(this);
+        cancelPlanning();
+        flightQueue.clear();
+        planCursor = 0;
+        resetWait();
+        currentProcedure = null;
+        if (getTaskState() == ShipTaskState.AUTO)
+        {
+            setStepState(ShipState.WAITING);
+            refillQueueIfNeeded();
+        }
+    }
+
+    /**
+     * Queues an effect that touches state outside this ship.
+     * Only the ship's own state may be changed directly inside update().
+     */
+    public void defer(Runnable effect)
+    {
+        if (deferredEffects == null)
+        {
+            deferredEffects = new ArrayList<>(4);
+        }
+        deferredEffects.add(effect);
+        fleet.markDeferred(id);
+    }
+
+    public void applyDeferredEffects()
+    {
+        if (deferredEffects == null || deferredEffects.isEmpty())
+            return;
+
+        // effects may defer further work onto this ship, so walk by index
+        for (int i = 0; i < deferredEffects.size(); i++)
+        {
+            deferredEffects.get(i).run();
+        }
+        deferredEffects.clear();
+    }
+
+    // -----------
+    // checkpoints
+    // -----------
+    ShipMemento capture()
+    {
+        // the tank array is the mass model's, which is replaced rather than changed
+        ContainerPart[] tanks = massModel.getTanks();
+        double[] levels = new double[massModel.getSlotCount()];
+        int next = 0;
+        for (ContainerPart tank : tanks)
+        {
+            for (int k = 0; k < tank.size(); k++)
+            {
+                levels[next++] = tank.getLevel(k);
+            }
         }
+
+        return new ShipMemento(this, getStepState(), getFlightState(), getTaskState(),
+                fleet.getLocation(id), fleet.getTarget(id), fleet.getTimeToWait(id), fleet.getNextEventTime(id),
+                plan, planCursor, flightQueue.toArray(new FlightStep[0]), currentProcedure,
+                pendingPlan != null, planEpoch, tanks, levels, fleet.getDecayedTo(id));
     }
 
-    public void burn(double dv)
+    // raw restore: no events fire, the rolled-back changes are simply forgotten
+    void restore(ShipMemento m)
     {
-        if (dv <= getDeltaV())
+        if (pendingPlan != null)
+        {
+            pendingPlan.cancel(false);
+            pendingPlan = null;
+        }
+        if (deferredEffects != null)
         {
+            deferredEffects.clear();
+        }
 
-        System.out.println(name + " burned " + dv + " m/s. Remaining Δv: " + getDeltaV());
+        fleet.written(id);
+        fleet.setStepState(id, m.stepState);
+        fleet.setFlightState(id, m.flightState);
+        fleet.setTaskState(id, m.taskState);
+        fleet.setLocation(id, m.location);
+        fleet.setTarget(id, m.target);
+        fleet.setTimeToWait(id, m.timeToWait);
+        fleet.setNextEventTime(id, m.nextEventTime);
+
+        plan = m.plan;
+        planCursor = m.planCursor;
+        flightQueue.clear();
+        Collections.addAll(flightQueue, m.queue);
+        currentProcedure = m.currentProcedure;
+        int next = 0;
+        for (ContainerPart tank : m.tanks)
+        {
+            for (int k = 0; k < tank.size(); k++)
+            {
+                tank.setLevel(k, m.levels[next++]);
+            }
+        }
+        fleet.setDecayedTo(id, m.decayedTo);
+
+        if (m.planning)
+        {
+            // the future itself can't be rewound, so plan the same procedure again
+            planEpoch = m.planEpoch;
+            pendingPlan = owner.getUniverse().getPlanningService().plan(currentProcedure, this, planEpoch);
+        }
+    }
+
+    // -----------
+    // ship clock
+    // -----------
+
+    // The clock runs while the ship is switched on and waiting on (or planning) its next step.
+    // While it runs the store holds the absolute time the step is due; while stopped it holds
+    // the remaining wait instead, so a paused ship picks up where it left off.
+    private boolean clockRunning()
+    {
+        ShipState s = getStepState();
+        return getTaskState() != ShipTaskState.OFF && (s == ShipState.WAITING || s == ShipState.PLANNING);
+    }
+
+    private void retime(boolean wasRunning)
+    {
+        boolean running = clockRunning();
+        if (running == wasRunning)
+            return;
+
+        double now = owner.getUniverse().time;
+        if (running)
+        {
+            fleet.setNextEventTime(id, now + fleet.getTimeToWait(id));
         }
         else
         {
-            System.out.println("PlanFault on ship " + name + ": insufficient deltaV!");
-            stepState = ShipState.PLAN_FAULT;
+            fleet.setTimeToWait(id, fleet.getNextEventTime(id) - now);
+            fleet.setNextEventTime(id, Double.POSITIVE_INFINITY);
+        }
+    }
+
+    // the next step is due now
+    private void resetWait()
+    {
+        fleet.setTimeToWait(id, 0);
+        if (clockRunning())
+        {
+            fleet.setNextEventTime(id, owner.getUniverse().time);
+        }
+    }
+
+    /**
+     * Seconds until the ship's next step is due, from the universe's current time.
+     */
+    public double getTimeToWait()
+    {
+        if (clockRunning())
+        {
+            return fleet.getNextEventTime(id) - owner.getUniverse().time;
         }
+        return fleet.getTimeToWait(id);
+    }
+
+    // ------
+    // events
+    // ------
+    public ShipState getStepState()
+    {
+        return fleet.getStepState(id);
+    }
+
+    private void setStepState(ShipState newState)
+    {
+        ShipState old = getStepState();
+        if (old == newState)
+            return;
+
+        boolean wasRunning = clockRunning();
+        fleet.setStepState(id, newState);
+        retime(wasRunning);
+
+        Universe u = owner.getUniverse();
+        double t = u.time;
+        ShipStatus status = getStatus();
+        defer(() -> u.fireShipStateChanged(this, old, newState, status, t));
+    }
+
+    // listeners hear about events at the end of the tick, so the status goes with them as of now
+    private void fireStepExecuted(FlightStep step)
+    {
+        Universe u = owner.getUniverse();
+        double t = u.time;
+        ShipStatus status = getStatus();
+        defer(() -> u.fireStepExecuted(this, step, status, t));
+    }
+
+    private void fireFlightPlanChanged(FlightPlan fp)
+    {
+        Universe u = owner.getUniverse();
+        double t = u.time;
+        ShipStatus status = getStatus();
+        defer(() -> u.fireFlightPlanChanged(this, fp, status, t));
+    }
+
+    public ShipStatus getStatus()
+    {
+        return new ShipStatus(getFlightState(), getStepState(), getTaskState(), getLocationId(), getTargetId(),
+                plan, planCursor, getTimeToWait(), getPropellantMass());
+    }
+
+    /**
+     * Burns dv, using up the propellant the rocket equation says it takes. If there isn't
+     * enough, everything usable is burned and the ship faults.
+     * @return the Δv that could not be delivered (m/s), 0 if the burn completed
+     */
+    public double burn(double dv)
+    {
+        fleet.touch(this);
+        settleDecay();
+        double shortfall = massModel.burn(dv);
+        if (shortfall > 0)
+        {
+            System.out.println("PlanFault on ship " + name + ": insufficient deltaV, " + Math.round(shortfall) + " m/s short!");
+            setStepState(ShipState.PLAN_FAULT);
+        }
+        return shortfall;
+    }
+
+    public ShipTaskState getTaskState()
+    {
+        return fleet.getTaskState(id);
     }
 
     public void setTaskState(ShipTaskState newState)
     {
         // If nothing changes, skip
-        if (this.taskState == newState)
+        ShipTaskState old = getTaskState();
+        if (old == newState)
             return;
 
+        fleet.touch(this);
+
+        boolean wasRunning = clockRunning();
+        fleet.setTaskState(id, newState);
+        retime(wasRunning);
+
         // Handle mode transitions
         switch (newState)
         {
             case OFF ->
             {
                 // OFF: completely clear queue, ignore all new procedures
+                cancelPlanning();
                 flightQueue.clear();
                 plan = null;
-                stepState = ShipState.INACTIVE;
+                setStepState(ShipState.INACTIVE);
                 System.out.println(name + " switched OFF — all queued steps cleared.");
             }
 
@@ -182,9 +607,9 @@ public class Ship implements IMass
             {
                 // MANUAL: retain whatever’s in queue, allow manual procedures only
                 System.out.println(name + " switched to MANUAL mode.");
-                if (taskState == ShipTaskState.OFF)
+                if (old == ShipTaskState.OFF)
                 {
-                    stepState = ShipState.WAITING;
+                    setStepState(ShipState.WAITING);
                 }
             }
 
@@ -193,6 +618,14 @@ public class Ship implements IMass
                 // AUTO: complete remaining queue, then follow the plan
                 System.out.println(name + " switched to AUTO mode.");
 
+                if (pendingPlan != null)
+                {
+                    // already planning, the result arrives through update()
+                    break;
+                }
+
+                setStepState(ShipState.WAITING);
+
                 // If there’s still queued work, finish it first
                 if (!flightQueue.isEmpty())
                 {
@@ -202,14 +635,11 @@ public class Ship implements IMass
                 else
                 {
                     // Queue empty? Begin flight plan
+                    resetWait();
                     refillQueueIfNeeded();
                 }
-
-                stepState = ShipState.WAITING;
             }
         }
-
-        this.taskState = newState;
     }
 
     // -----------------------------
@@ -221,22 +651,22 @@ public class Ship implements IMass
         {
             case "orb":
             {
-                this.flightState = FlightState.ORBITING;
+                setFlightState(FlightState.ORBITING);
                 break;
             }
             case "dock":
             {
-                this.flightState = FlightState.DOCKED;
+                setFlightState(FlightState.DOCKED);
                 break;
             }
             case "wnd":
             {
-                this.flightState = FlightState.WAIT_WINDOW;
+                setFlightState(FlightState.WAIT_WINDOW);
                 break;
             }
             case "xfer":
             {
-                this.flightState = FlightState.XFER;
+                setFlightState(FlightState.XFER);
                 break;
             }
         }
@@ -244,7 +674,7 @@ public class Ship implements IMass
 
     public String getShortStatus()
     {
-        switch (flightState)
+        switch (getFlightState())
         {
             case FlightState.DOCKED:
             {
@@ -252,15 +682,15 @@ public class Ship implements IMass
             }
             case FlightState.ORBITING:
             {
-                return "Orbiting " + location;
+                return "Orbiting " + getLocation();
             }
             case FlightState.XFER:
             {
-                return "En route to " + target + ", arrival in " + Math.round(ConversionHelper.secondToDay(timeToWait)) + " days";
+                return "En route to " + getTarget() + ", arrival in " + Math.round(ConversionHelper.secondToDay(getTimeToWait())) + " days";
             }
             case FlightState.WAIT_WINDOW:
             {
-                return "Orbiting " + location + ", burning in " + Math.round(ConversionHelper.secondToDay(timeToWait)) + " days";
+                return "Orbiting " + getLocation() + ", burning in " + Math.round(ConversionHelper.secondToDay(getTimeToWait())) + " days";
             }
             default:
             {
@@ -279,7 +709,7 @@ public class Ship implements IMass
         {
             case "Wait":
             {
-                return "Waiting at " + location.name + " for " + Math.round(ConversionHelper.secondToDay(timeToWait)) + " days";
+                return "Waiting at " + getLocation().name + " for " + Math.round(ConversionHelper.secondToDay(getTimeToWait())) + " days";
             }
             case "Print":
             {
@@ -287,11 +717,11 @@ public class Ship implements IMass
             }
             case "HohmannTransfer", "LunarTransfer":
             {
-                return "Transferring from " + location.name + " to " + target.name;
+                return "Transferring from " + getLocation().name + " to " + getTarget().name;
             }
             case "LunarReturn":
             {
-                return "Returning from " + target.name + " to " + location.name;
+                return "Returning from " + getTarget().name + " to " + getLocation().name;
             }
             default:
             {
@@ -303,6 +733,54 @@ public class Ship implements IMass
     // -----------------
     // getters & setters
     // -----------------
+    public int getId()
+    {
+        return id;
+    }
+
+    public Celestial getLocation()
+    {
+        return owner.getUniverse().getCelestialById(fleet.getLocation(id));
+    }
+
+    public void setLocation(Celestial location)
+    {
+        fleet.touch(this);
+        fleet.setLocation(id, location != null ? location.id : -1);
+    }
+
+    public int getLocationId()
+    {
+        return fleet.getLocation(id);
+    }
+
+    public Celestial getTarget()
+    {
+        return owner.getUniverse().getCelestialById(fleet.getTarget(id));
+    }
+
+    public void setTarget(Celestial target)
+    {
+        fleet.touch(this);
+        fleet.setTarget(id, target != null ? target.id : -1);
+    }
+
+    public int getTargetId()
+    {
+        return fleet.getTarget(id);
+    }
+
+    public FlightState getFlightState()
+    {
+        return fleet.getFlightState(id);
+    }
+
+    public void setFlightState(FlightState state)
+    {
+        fleet.touch(this);
+        fleet.setFlightState(id, state);
+    }
+
     public String getName()
     {
         return name;
@@ -311,12 +789,15 @@ public class Ship implements IMass
     public void setName(String name)
     {
         this.name = name;
+        fleet.written(id);
     }
 
     // ------------
     // deltav, mass
     // ------------
 
+    // Masses are read off the ship's mass tree in O(1); propellant and Δv are only recomputed after tanks or engines change.
+
     /**
      * Returns the wet (full) mass of a ship in kg
      * @return wet mass (kg)
@@ -324,7 +805,7 @@ public class Ship implements IMass
     @Override
     public double getMass()
     {
-        return payloadModule.getMass() + serviceModule.getMass() + engineBlock.getMass();
+        return massModel.getMass();
     }
 
     /**
@@ -334,182 +815,335 @@ public class Ship implements IMass
      */
     public double getDryMass()
     {
-        return getMass() - getPropellantMass();
+        return massModel.getDryMass();
     }
+
+    /**
+     * Total mass of every resource the active engines burn, whatever the ratio.
+     */
     public double getPropellantMass()
     {
-        double total = 0.0;
-
-        if (engineBlock == null)
-        {
-            return total;
-        }
+        return massModel.getPropellantMass();
+    }
 
-        FuelMixture mix = engineBlock.getFuelMixture();
+    public double getResourceMass(String resourceID)
+    {
+        return massModel.getResourceMass(ResourceDatabase.indexOf(resourceID));
+    }
 
-        if (mix == null || mix.getComponents().isEmpty())
-        {
-            return total;
-        }
+    public double getResourceMass(int resource)
+    {
+        return massModel.getResourceMass(resource);
+    }
 
+    /**
+     * Δv of the ship as it is now, burning everything the active engines can burn as one stage.
+     * See getStagedDeltaV for the figure with drop stages.
+     */
+    public double getDeltaV()
+    {
+        return massModel.getDeltaV();
+    }
 
-        for (var entry : mix.getComponents().entrySet())
-        {
-            String resource = entry.getKey();
-            double ratio = entry.getValue();
+    // --------
+    // staging
+    // --------
 
-            // Multiply by actual resource mass?
-            // No — we want TOTAL mass of all propellants that exist regardless of ratio.
-            total += getResourceMass(resource);
-        }
+    /**
+     * Adds a drop stage above the ones already defined (so it fires after them). Sections and
+     * engines not in any stage form the core, which is never dropped.
+     */
+    public Stage addStage(String name)
+    {
+        return getStaging().addStage(name);
+    }
 
-        return total;
+    public List<Stage> getStages()
+    {
+        return staging != null ? staging.getStages() : List.of();
     }
 
-    public double getResourceMass(String resourceID)
+    /**
+     * Per-stage figures, drop stages in firing order and then the core.
+     */
+    public StageStack getStageStack()
     {
-        double total = 0.0;
+        settleDecay();
+        return getStaging().evaluate();
+    }
 
-        for (Part part : getParts())
+    public double getStagedDeltaV()
+    {
+        if (staging == null)
         {
-            if (part instanceof ContainerPart tank)
-            {
-                total += tank.getResourceMass(resourceID);
-            }
+            return getDeltaV();
         }
-
-        return total;
+        settleDecay(); // stages read their sections' mass trees directly
+        return staging.evaluate().getTotalDeltaV();
     }
 
-
-    public double getDeltaV()
+    /**
+     * Drops the first stage: its sections leave their modules and its engines the engine block.
+     * Not undone by a checkpoint rollback, which only restores tank contents.
+     * @return the stage dropped, or null if there are no drop stages
+     */
+    public Stage jettisonStage()
     {
-        FuelMixture mix = engineBlock.getFuelMixture();
-
-        if (mix == null || mix.getComponentList().isEmpty())
+        if (staging == null || staging.getStages().isEmpty())
         {
-            return 0.0;
+            return null;
         }
 
-        // Step 1: Determine limiting mix units
-        double limitingUnits = Double.POSITIVE_INFINITY;
-
-        for (FuelMixture.Component comp : mix.getComponentList())
+        fleet.touch(this);
+        Stage stage = staging.removeFirst();
+        for (Section s : stage.getSections())
         {
-            double availableMass = getResourceMass(comp.resourceId());
-            double units = availableMass / comp.massFraction();
-
-            if (units < limitingUnits)
+            s.getModule().removeSection(s);
+            if (socketsBySectionName != null)
             {
-                limitingUnits = units;
+                socketsBySectionName.values().remove(s);
             }
         }
-
-        // Step 2: If zero fuel left, no Δv
-        if (limitingUnits <= 0 || Double.isInfinite(limitingUnits))
+        for (Engine e : stage.getEngines())
         {
-            return 0.0;
+            engineBlock.removeEngine(e);
         }
+        massModel.structureChanged();
 
-        // Total burnable propellant mass
-        double totalMixtureMass = 0.0;
+        Universe u = owner.getUniverse();
+        double t = u.time;
+        defer(() -> u.fireStageJettisoned(this, stage, t));
+        return stage;
+    }
 
-        for (FuelMixture.Component comp : mix.getComponentList())
+    private Staging getStaging()
+    {
+        if (staging == null)
         {
-            totalMixtureMass += comp.massFraction();
+            staging = new Staging(massModel.getRoot(), engineBlock, this::structureChanged);
         }
+        return staging;
+    }
 
-        double usablePropellant = limitingUnits * totalMixtureMass;
+    // tells fleet-wide caches (transfers, snapshots) to re-gather this ship's tanks and stages
+    void structureChanged()
+    {
+        structureVersion++;
+        fleet.written(id);
+        fleet.structureChanged();
+    }
 
-        // Step 3: Apply rocket equation
-        double dryMass = getDryMass();
-        double wetMass = dryMass + usablePropellant;
+    // strips every section and engine, before a save journal builds the ship again
+    void clearConstruction()
+    {
+        for (Section s : new ArrayList<>(payloadModule.getSections()))
+        {
+            payloadModule.removeSection(s);
+        }
+        for (Section s : new ArrayList<>(serviceModule.getSections()))
+        {
+            serviceModule.removeSection(s);
+        }
+        for (Engine e : new ArrayList<>(engineBlock.getAllEngines()))
+        {
+            engineBlock.removeEngine(e);
+        }
+        if (socketsBySectionName != null)
+        {
+            socketsBySectionName.clear();
+        }
+        staging = null; // read back with the rest of the construction
+        massModel.structureChanged();
+    }
 
-        double isp = engineBlock.getSpecificImpulse();
+    // bumped whenever this ship's sections, parts or engines change
+    long getStructureVersion()
+    {
+        return structureVersion;
+    }
 
-        return isp * Math.log(wetMass / dryMass);
+    private void enginesChanged()
+    {
+        massModel.structureChanged();
+        if (staging != null)
+        {
+            staging.structureChanged();
+        }
     }
 
+    /**
+     * Removes propellant by the active engines' mixture ratio.
+     * @return mass actually removed (kg)
+     */
     public double drainPropellant(double totalMassToRemove)
     {
-        // grab mixture from active engines
-        FuelMixture mix = engineBlock.getFuelMixture();
-        if (mix == null || mix.getComponentList().isEmpty())
+        fleet.touch(this);
+        settleDecay();
+        return massModel.drain(totalMassToRemove);
+    }
+
+    /**
+     * Sets every tank slot to the given fraction of its capacity.
+     */
+    public void setFillFraction(double fraction)
+    {
+        fleet.touch(this);
+        settleDecay(); // the new levels are as of now
+        for (ContainerPart tank : massModel.getTanks())
         {
-            return 0.0;
+            tank.setFillFraction(fraction);
         }
+    }
 
-        ArrayList<Part> parts = this.getParts();
-
-        double totalRemoved = 0.0;
+    // -----
+    // decay
+    // -----
 
-        for (FuelMixture.Component comp : mix.getComponentList())
+    /**
+     * Writes the boil-off since the tanks were last settled into their levels. Levels are
+     * stored as of that time and mass reads fold in the loss since, so only writes to the tanks
+     * (burns, drains, transfers, new parts) need this first; nothing settles idle ships.
+     */
+    public void settleDecay()
+    {
+        double now = owner.getUniverse().time;
+        double elapsed = now - fleet.getDecayedTo(id);
+        if (elapsed == 0)
+        {
+            return;
+        }
+        if (elapsed > 0 && massModel.decays())
         {
-            String resource = comp.resourceId();
-            double fraction = comp.massFraction();
+            fleet.touch(this);
+            massModel.settleDecay(elapsed);
+        }
+        fleet.setDecayedTo(id, now);
+    }
 
-            double desired = totalMassToRemove * fraction;
+    // a tank slot's level now, with the decay since the last settle taken off
+    double getCurrentLevel(ContainerPart tank, int slot)
+    {
+        return tank.getLevel(slot) * massModel.getKeep(tank.getResource(slot));
+    }
 
-            double removed = drainSingleResource(parts, resource, desired);
+    // seconds of decay the stored tank levels are behind
+    double getDecayElapsed()
+    {
+        return Math.max(0.0, owner.getUniverse().time - fleet.getDecayedTo(id));
+    }
 
-            totalRemoved += removed;
-        }
+    // ------------------
+    // physical structure
+    // ------------------
+    public ArrayList<Part> getParts()
+    {
+        ArrayList<Part> parts = new ArrayList<>(engineBlock.getAllEngines());
+        parts.addAll(serviceModule.getParts());
+        parts.addAll(payloadModule.getParts());
+        return parts;
+    }
+    /**
+     * Every tank on the ship in part order. Shared and only valid until the parts next change,
+     * so don't modify or keep it. Their levels leave out boil-off since the last settleDecay.
+     */
+    public ContainerPart[] getTanks()
+    {
+        return massModel.getTanks();
+    }
 
-        return totalRemoved;
+    // ---------
+    // transfers
+    // ---------
+
+    /**
+     * Queues propellant to be pumped from depot into this ship at the end of the tick, split by
+     * the active engines' mixture ratio. Orders are sized from the tanks as they are now; the
+     * universe's TransferEngine trims them if other ships draw on the same depot.
+     * @return the orders queued, whose delivered mass is set once the tick ends
+     */
+    public List<TransferOrder> refuelFrom(Ship depot, double mass)
+    {
+        List<TransferOrder> orders = new ArrayList<>();
+        FuelMixture mix = engineBlock.getFuelMixture();
+        double total = 0;
+        for (int k = 0; k < mix.size(); k++)
+        {
+            total += mix.getFraction(k);
+        }
+        for (int k = 0; k < mix.size() && total > 0; k++)
+        {
+            queueTransfer(depot, mix.getResource(k), mass * mix.getFraction(k) / total, orders);
+        }
+        return orders;
     }
 
-    private double drainSingleResource(ArrayList<Part> parts, String resourceId, double massToDrain)
+    /**
+     * Queues mass of one resource to be pumped from source into this ship at the end of the tick.
+     * @return the orders queued
+     */
+    public List<TransferOrder> transferFrom(Ship source, String resourceID, double mass)
     {
-        double remaining = massToDrain;
-        double removedTotal = 0.0;
+        List<TransferOrder> orders = new ArrayList<>();
+        queueTransfer(source, ResourceDatabase.indexOf(resourceID), mass, orders);
+        return orders;
+    }
 
-        for (Part part : parts)
+    // pairs their full tanks with our empty ones in part order, one order per pair
+    private void queueTransfer(Ship source, int resource, double mass, List<TransferOrder> orders)
+    {
+        if (source == this || mass <= 0)
+        {
+            return;
+        }
+        TransferEngine transfers = owner.getUniverse().getTransfers();
+        ContainerPart[] theirs = source.getTanks();
+        ContainerPart[] ours = getTanks();
+
+        int i = -1, j = -1;
+        int from = -1, to = -1; // the resource's slot in theirs[i] and ours[j]
+        double available = 0, room = 0;
+        while (mass > 0)
         {
-            if (remaining <= 0)
+            while (available <= 0 && ++i < theirs.length)
             {
-                break;
+                from = theirs[i].slotOf(resource);
+                available = from < 0 ? 0 : source.getCurrentLevel(theirs[i], from);
             }
-
-            if (part instanceof ContainerPart tankPart)
+            while (room <= 0 && ++j < ours.length)
             {
-                if (tankPart.hasResource(resourceId))
-                {
-                    ResourceContainer rc = tankPart.getContainers()
-                            .stream()
-                            .filter(c -> c.getResourceID().equals(resourceId))
-                            .findFirst()
-                            .orElse(null);
-
-                    if (rc != null)
-                    {
-                        double available = rc.getCurrentMass();
-                        double toRemove = Math.min(available, remaining);
-
-                        // reduce tank content
-                        rc.add(-toRemove);
-
-                        remaining -= toRemove;
-                        removedTotal += toRemove;
-                    }
-                }
+                to = ours[j].slotOf(resource);
+                room = to < 0 ? 0 : ours[j].getCapacity(to) - getCurrentLevel(ours[j], to);
+            }
+            if (i >= theirs.length || j >= ours.length)
+            {
+                break;
             }
-        }
 
-        return removedTotal;
+            double m = Math.min(mass, Math.min(available, room));
+            TransferOrder order = new TransferOrder(theirs[i], from, source.id, ours[j], to, id, m);
+            transfers.submit(order);
+            orders.add(order);
+            mass -= m;
+            available -= m;
+            room -= m;
+        }
     }
 
+    EngineShipModule getEngineBlock()
+    {
+        return engineBlock;
+    }
 
+    PayloadShipModule getPayloadModule()
+    {
+        return payloadModule;
+    }
 
-    // ------------------
-    // physical structure
-    // ------------------
-    public ArrayList<Part> getParts()
+    ServiceShipModule getServiceModule()
     {
-        ArrayList<Part> parts = new ArrayList<>(engineBlock.getAllEngines());
-        parts.addAll(serviceModule.getParts());
-        parts.addAll(payloadModule.getParts());
-        return parts;
+        return serviceModule;
     }
+
     public void addEngine(Engine engine)
     {
         engineBlock.addEngine(engine);
@@ -517,8 +1151,10 @@ public class Ship implements IMass
     }
     public void addPartToSection(Part p, Section s)
     {
+        settleDecay(); // the new part's levels are current, so the rest must be too
         ShipModule m = s.getModule();
         m.addPartToSection(p, s);
+        massModel.structureChanged();
     }
 
     public void newSection(String name, double mass, String socketName, ShipModule module)
@@ -526,26 +1162,41 @@ public class Ship implements IMass
 
     }
 
-    public void newSection(String name, double mass, String socketName, String module)
+    public Section newSection(String name, double mass, String socketName, String module)
     {
         Section section = new Section(name, mass, socketName);
         switch (module)
         {
-            case "payload":
+            case "payload" ->
+            {
                 payloadModule.addSection(section);
                 section.setModule(payloadModule);
-            case "service":
+            }
+            case "service" ->
+            {
                 serviceModule.addSection(section);
                 section.setModule(serviceModule);
+            }
         }
-        socketsBySectionName.put(socketName, section);
+        getSockets().put(socketName, section);
+        massModel.structureChanged();
+        return section;
     }
+    private Map<String, Section> getSockets()
+    {
+        if (socketsBySectionName == null)
+        {
+            socketsBySectionName = new HashMap<>();
+        }
+        return socketsBySectionName;
+    }
+
     public void addPartBasedOnSockets(ContainerPart methaloxTank)
     {
         String socket = methaloxTank.getSocketName();
-        if (socketsBySectionName.containsKey(socket))
+        Section section = socketsBySectionName != null ? socketsBySectionName.get(socket) : null;
+        if (section != null)
         {
-            Section section = socketsBySectionName.get(socket);
             addPartToSection(methaloxTank, section);
         }
         else
@@ -0,0 +1,447 @@
+package flight;
+
+import flight.construction.ConstructionManager;
+import flight.construction.PartCatalog;
+import flight.construction.parts.ContainerPart;
+import flight.construction.parts.Part;
+import flight.construction.parts.PartDefinition;
+import flight.construction.parts.propulsion.Engine;
+import flight.construction.parts.propulsion.EngineDefinition;
+import flight.construction.sections.Section;
+import flight.construction.staging.Stage;
+import flight.construction.superstructures.ShipModule;
+import simulation.Celestial;
+import simulation.Organisation;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A ship's construction, taken from a built ship so more like it can be spawned: its sections,
+ * which part definition goes where, tank fill levels, which engines are on and its drop stages.
+ * Flight state and plans are not part of it.
+ *
+ * Every copy shares the blueprint's definitions and strings, so a spawned ship only allocates
+ * its own parts and fill levels. Saved, a blueprint is a short header, a table of definition
+ * names (resolved against the part catalog on reading) and the sections, parts and engines
+ * referring to it by index:
+ * <pre>
+ * int magic, short version, UTF name
+ * short n, n × UTF definition name
+ * short n, n × (UTF name, double mass, UTF socket, byte module,
+ *               short parts, parts × (short definition, short n, n × double fill))
+ * short n, n × (short definition, boolean enabled, boolean failed (version 3))
+ * short n, n × (UTF name, short n, n × short section, short n, n × short engine)   (version 2)
+ * </pre>
+ * Stages refer to sections and engines by their position in the tables above it.
+ */
+public class ShipBlueprint
+{
+    private static final int MAGIC = 0x4D464250; // "MFBP"
+    private static final short VERSION = 3;
+
+    private static final byte PAYLOAD = 0;
+    private static final byte SERVICE = 1;
+
+    private final String name;
+    private final PartDefinition[] definitions;
+    private final SectionPlan[] sections;
+    private final int[] engines;
+    private final boolean[] enginesEnabled;
+    private final boolean[] enginesFailed;
+    private final StagePlan[] stages;
+
+    private record SectionPlan(String name, double mass, String socket, byte module, int[] parts, double[][] fills)
+    {
+    }
+
+    private record StagePlan(String name, int[] sections, int[] engines)
+    {
+    }
+
+    private ShipBlueprint(String name, PartDefinition[] definitions, SectionPlan[] sections, int[] engines,
+                          boolean[] enginesEnabled, boolean[] enginesFailed, StagePlan[] stages)
+    {
+        this.name = name;
+        this.definitions = definitions;
+        this.sections = sections;
+        this.engines = engines;
+        this.enginesEnabled = enginesEnabled;
+        this.enginesFailed = enginesFailed;
+        this.stages = stages;
+    }
+
+    /**
+     * Takes the blueprint of a built ship.
+     */
+    public static ShipBlueprint of(Ship ship)
+    {
+        Map<PartDefinition, Integer> index = new IdentityHashMap<>();
+        List<PartDefinition> definitions = new ArrayList<>();
+        List<SectionPlan> sections = new ArrayList<>();
+        addSections(ship, ship.getPayloadModule(), PAYLOAD, index, definitions, sections);
+        addSections(ship, ship.getServiceModule(), SERVICE, index, definitions, sections);
+
+        List<Engine> all = ship.getEngineBlock().getAllEngines();
+        int[] engines = new int[all.size()];
+        boolean[] enabled = new boolean[all.size()], failed = new boolean[all.size()];
+        for (int i = 0; i < engines.length; i++)
+        {
+            Engine e = all.get(i);
+            engines[i] = indexOf(e.getDefinition(), index, definitions);
+            enabled[i] = e.isEnabled() || e.hasFailed(); // as ShipCodec: a failed engine is kept switched on
+            failed[i] = e.hasFailed();
+        }
+
+        // sections in the order addSections took them
+        List<Section> allSections = new ArrayList<>(ship.getPayloadModule().getSections());
+        allSections.addAll(ship.getServiceModule().getSections());
+        List<Stage> staged = ship.getStages();
+        StagePlan[] stages = new StagePlan[staged.size()];
+        for (int i = 0; i < stages.length; i++)
+        {
+            Stage stage = staged.get(i);
+            stages[i] = new StagePlan(stage.getName(), positions(stage.getSections(), allSections), positions(stage.getEngines(), all));
+        }
+
+        return new ShipBlueprint(ship.getName(), definitions.toArray(new PartDefinition[0]),
+                sections.toArray(new SectionPlan[0]), engines, enabled, failed, stages);
+    }
+
+    // by identity; a member no longer fitted to the ship is left out
+    private static int[] positions(List<?> members, List<?> in)
+    {
+        int[] found = new int[members.size()];
+        int n = 0;
+        for (Object member : members)
+        {
+            for (int i = 0; i < in.size(); i++)
+            {
+                if (in.get(i) == member)
+                {
+                    found[n++] = i;
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(found, n);
+    }
+
+    private static void addSections(Ship ship, ShipModule module, byte moduleId, Map<PartDefinition, Integer> index,
+                                    List<PartDefinition> definitions, List<SectionPlan> sections)
+    {
+        for (Section s : module.getSections())
+        {
+            List<Part> parts = s.getParts();
+            int[] refs = new int[parts.size()];
+            double[][] fills = new double[parts.size()][];
+            for (int i = 0; i < refs.length; i++)
+            {
+                Part p = parts.get(i);
+                refs[i] = indexOf(p.getDefinition(), index, definitions);
+                fills[i] = new double[0];
+                if (p instanceof ContainerPart tank)
+                {
+                    fills[i] = new double[tank.size()];
+                    for (int k = 0; k < fills[i].length; k++)
+                    {
+                        fills[i][k] = ship.getCurrentLevel(tank, k);
+                    }
+                }
+            }
+            sections.add(new SectionPlan(s.getName(), s.getStructuralMass(), s.getSocketName(), moduleId, refs, fills));
+        }
+    }
+
+    private static int indexOf(PartDefinition definition, Map<PartDefinition, Integer> index, List<PartDefinition> definitions)
+    {
+        return index.computeIfAbsent(definition, d ->
+        {
+            definitions.add(d);
+            return definitions.size() - 1;
+        });
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    // -------------
+    // instantiation
+    // -------------
+
+    /**
+     * Builds one ship from the blueprint.
+     */
+    public Ship instantiate(String shipName, Celestial location, Organisation owner)
+    {
+        Ship ship = new Ship(shipName, location, owner);
+        Section[] built = new Section[sections.length];
+        for (int s = 0; s < sections.length; s++)
+        {
+            SectionPlan plan = sections[s];
+            Section section = ship.newSection(plan.name, plan.mass, plan.socket, plan.module == PAYLOAD ? "payload" : "service");
+            built[s] = section;
+            for (int i = 0; i < plan.parts.length; i++)
+            {
+                Part part = definitions[plan.parts[i]].create();
+                if (part instanceof ContainerPart tank)
+                {
+                    double[] fill = plan.fills[i];
+                    for (int k = 0; k < fill.length && k < tank.size(); k++)
+                    {
+                        tank.setLevel(k, fill[k]);
+                    }
+                }
+                ship.addPartToSection(part, section);
+            }
+        }
+        Engine[] fitted = new Engine[engines.length];
+        for (int i = 0; i < engines.length; i++)
+        {
+            Engine engine = ((EngineDefinition) definitions[engines[i]]).create();
+            engine.setFailed(enginesFailed[i]);
+            ship.addEngine(engine);
+            if (!enginesEnabled[i])
+            {
+                ship.getEngineBlock().disableEngine(engine);
+            }
+            fitted[i] = engine;
+        }
+        for (StagePlan plan : stages)
+        {
+            Stage stage = ship.addStage(plan.name);
+            for (int s : plan.sections)
+            {
+                stage.addSection(built[s]);
+            }
+            for (int e : plan.engines)
+            {
+                stage.addEngine(fitted[e]);
+            }
+        }
+        return ship;
+    }
+
+    /**
+     * Builds count ships named prefix0, prefix1, ..., sizing the fleet and the organisation's
+     * ship list for all of them first.
+     */
+    public List<Ship> spawn(String prefix, int count, Celestial location, Organisation owner)
+    {
+        FleetStore fleet = owner.getUniverse().getFleet();
+        fleet.ensureCapacity(fleet.size() + count);
+        owner.ensureCapacity(count);
+
+        List<Ship> ships = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            ships.add(instantiate(prefix + i, location, owner));
+        }
+        return ships;
+    }
+
+    // ---
+    // I/O
+    // ---
+
+    public void write(OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeUTF(name);
+
+        data.writeShort(definitions.length);
+        for (PartDefinition d : definitions)
+        {
+            data.writeUTF(d.getName());
+        }
+
+        data.writeShort(sections.length);
+        for (SectionPlan s : sections)
+        {
+            data.writeUTF(s.name);
+            data.writeDouble(s.mass);
+            data.writeUTF(s.socket);
+            data.writeByte(s.module);
+            data.writeShort(s.parts.length);
+            for (int i = 0; i < s.parts.length; i++)
+            {
+                data.writeShort(s.parts[i]);
+                data.writeShort(s.fills[i].length);
+                for (double f : s.fills[i])
+                {
+                    data.writeDouble(f);
+                }
+            }
+        }
+
+        data.writeShort(engines.length);
+        for (int i = 0; i < engines.length; i++)
+        {
+            data.writeShort(engines[i]);
+            data.writeBoolean(enginesEnabled[i]);
+            data.writeBoolean(enginesFailed[i]);
+        }
+
+        data.writeShort(stages.length);
+        for (StagePlan s : stages)
+        {
+            data.writeUTF(s.name);
+            data.writeShort(s.sections.length);
+            for (int section : s.sections)
+            {
+                data.writeShort(section);
+            }
+            data.writeShort(s.engines.length);
+            for (int engine : s.engines)
+            {
+                data.writeShort(engine);
+            }
+        }
+        data.flush();
+    }
+
+    public byte[] toBytes()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try
+        {
+            write(bytes);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e); // not thrown by a byte array
+        }
+        return bytes.toByteArray();
+    }
+
+    public void save(Path path) throws IOException
+    {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path)))
+        {
+            write(out);
+        }
+    }
+
+    public static ShipBlueprint load(Path path) throws IOException
+    {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path)))
+        {
+            return read(in, ConstructionManager.getCatalog());
+        }
+    }
+
+    public static ShipBlueprint read(byte[] bytes) throws IOException
+    {
+        return read(new ByteArrayInputStream(bytes), ConstructionManager.getCatalog());
+    }
+
+    /**
+     * Reads a blueprint, looking its definitions up in the given catalog.
+     * @throws IOException if it isn't a blueprint or refers to a part the catalog doesn't have
+     */
+    public static ShipBlueprint read(InputStream in, PartCatalog catalog) throws IOException
+    {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+        {
+            throw new IOException("Not a ship blueprint");
+        }
+        short version = data.readShort();
+        if (version < 1 || version > VERSION)
+        {
+            throw new IOException("Unsupported blueprint version " + version);
+        }
+        String name = data.readUTF();
+
+        PartDefinition[] definitions = new PartDefinition[data.readUnsignedShort()];
+        for (int i = 0; i < definitions.length; i++)
+        {
+            String defName = data.readUTF();
+            definitions[i] = catalog.getDefinition(defName);
+            if (definitions[i] == null)
+            {
+                throw new IOException("Blueprint " + name + " uses unknown part " + defName);
+            }
+        }
+
+        SectionPlan[] sections = new SectionPlan[data.readUnsignedShort()];
+        for (int s = 0; s < sections.length; s++)
+        {
+            String sectionName = data.readUTF();
+            double mass = data.readDouble();
+            String socket = data.readUTF();
+            byte module = data.readByte();
+            int[] parts = new int[data.readUnsignedShort()];
+            double[][] fills = new double[parts.length][];
+            for (int i = 0; i < parts.length; i++)
+            {
+                parts[i] = checkIndex(data.readUnsignedShort(), definitions, name);
+                fills[i] = new double[data.readUnsignedShort()];
+                for (int k = 0; k < fills[i].length; k++)
+                {
+                    fills[i][k] = data.readDouble();
+                }
+            }
+            sections[s] = new SectionPlan(sectionName, mass, socket, module, parts, fills);
+        }
+
+        int[] engines = new int[data.readUnsignedShort()];
+        boolean[] enabled = new boolean[engines.length], failed = new boolean[engines.length];
+        for (int i = 0; i < engines.length; i++)
+        {
+            engines[i] = checkIndex(data.readUnsignedShort(), definitions, name);
+            enabled[i] = data.readBoolean();
+            failed[i] = version >= 3 && data.readBoolean();
+            if (!(definitions[engines[i]] instanceof EngineDefinition))
+            {
+                throw new IOException("Blueprint " + name + " fits " + definitions[engines[i]].getName() + " as an engine");
+            }
+        }
+
+        StagePlan[] stages = new StagePlan[version >= 2 ? data.readUnsignedShort() : 0];
+        for (int s = 0; s < stages.length; s++)
+        {
+            String stageName = data.readUTF();
+            int[] stageSections = new int[data.readUnsignedShort()];
+            for (int k = 0; k < stageSections.length; k++)
+            {
+                stageSections[k] = checkPosition(data.readUnsignedShort(), sections.length, "section", name);
+            }
+            int[] stageEngines = new int[data.readUnsignedShort()];
+            for (int k = 0; k < stageEngines.length; k++)
+            {
+                stageEngines[k] = checkPosition(data.readUnsignedShort(), engines.length, "engine", name);
+            }
+            stages[s] = new StagePlan(stageName, stageSections, stageEngines);
+        }
+        return new ShipBlueprint(name, definitions, sections, engines, enabled, failed, stages);
+    }
+
+    private static int checkPosition(int i, int count, String what, String name) throws IOException
+    {
+        if (i >= count)
+        {
+            throw new IOException("Blueprint " + name + " stages " + what + " " + i + " of " + count);
+        }
+        return i;
+    }
+
+    private static int checkIndex(int i, PartDefinition[] definitions, String name) throws IOException
+    {
+        if (i >= definitions.length)
+        {
+            throw new IOException("Blueprint " + name + " refers to part " + i + " of " + definitions.length);
+        }
+        return i;
+    }
+}
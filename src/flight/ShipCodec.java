@@ -0,0 +1,687 @@
+package flight;
+
+import flight.construction.parts.ContainerPart;
+import flight.construction.parts.Part;
+import flight.construction.parts.PartDefinition;
+import flight.construction.parts.propulsion.Engine;
+import flight.construction.parts.propulsion.EngineDefinition;
+import flight.construction.sections.Section;
+import flight.construction.staging.Stage;
+import flight.procedure.FlightProcedure;
+import flight.step.FlightStep;
+import simulation.Organisation;
+import simulation.Universe;
+import util.save.SaveReader;
+import util.save.SaveWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * The ship table of a save. Flight state is written as columns in id order (all names, then
+ * all owners, then all locations...), the same layout as the fleet store, and each ship's queued
+ * steps and construction follow as one row per ship. Ships are written from a Snapshot, not
+ * from the live fleet.
+ *
+ * Ships are read back in id order so they get their old ids. A procedure that was still being
+ * planned is planned again for the same epoch, as after a rollback. Drop stages are saved with
+ * the construction, as indices into its sections and engines (since save version 2). Tank
+ * levels are saved as stored, with the time they are as of (since version 3), so saving doesn't
+ * settle anyone's boil-off.
+ */
+public final class ShipCodec
+{
+    private static final int PAYLOAD = 0;
+    private static final int SERVICE = 1;
+
+    private ShipCodec()
+    {
+    }
+
+    // -------
+    // writing
+    // -------
+
+    /**
+     * Every ship as it was at one moment, immutable, so a save can be written from it on another
+     * thread while the ships fly on. Ships nobody wrote to since the previous snapshot are shared
+     * with it instead of being captured again, which makes taking one O(ships changed).
+     */
+    public static final class Snapshot
+    {
+        private final FleetStore fleet;
+        private final int epoch;
+        private final ShipRecord[] ships;
+        private final int captured;
+
+        private Snapshot(FleetStore fleet, int epoch, ShipRecord[] ships, int captured)
+        {
+            this.fleet = fleet;
+            this.epoch = epoch;
+            this.ships = ships;
+            this.captured = captured;
+        }
+
+        public int size()
+        {
+            return ships.length;
+        }
+
+        public Organisation getOwner(int id)
+        {
+            return ships[id].owner;
+        }
+
+        public FlightPlan getPlan(int id)
+        {
+            return ships[id].state.plan;
+        }
+
+        public FlightProcedure getProcedure(int id)
+        {
+            return ships[id].state.currentProcedure;
+        }
+
+        /**
+         * Ships captured afresh for this snapshot; the others were shared with the previous one.
+         */
+        public int getCaptured()
+        {
+            return captured;
+        }
+    }
+
+    /**
+     * Takes a snapshot of the fleet. Must run between ticks, on the simulation thread.
+     * @param previous last snapshot of the same universe, or null to capture every ship
+     */
+    public static Snapshot snapshot(Universe universe, Snapshot previous)
+    {
+        FleetStore fleet = universe.getFleet();
+        boolean incremental = previous != null && previous.fleet == fleet;
+        int n = universe.getShipIdCount();
+        int epoch = fleet.advanceEpoch();
+
+        ShipRecord[] records = new ShipRecord[n];
+        int captured = 0;
+        for (int id = 0; id < n; id++)
+        {
+            Ship ship = fleet.getShip(id);
+            ShipRecord old = incremental && id < previous.ships.length ? previous.ships[id] : null;
+            if (old != null && old.ship == ship && !fleet.writtenSince(id, previous.epoch))
+            {
+                records[id] = old;
+            }
+            else
+            {
+                records[id] = new ShipRecord(ship, old);
+                captured++;
+            }
+        }
+        return new Snapshot(fleet, epoch, records, captured);
+    }
+
+    public static void write(Snapshot snapshot, ToIntFunction<Organisation> owners, SaveWriter out)
+    {
+        ShipRecord[] ships = snapshot.ships;
+        out.putInt(ships.length);
+        writeColumns(ships, owners, out);
+        for (ShipRecord s : ships)
+        {
+            writeQueue(s, out);
+            writeConstruction(s, out);
+        }
+    }
+
+    /**
+     * Writes only the ships whose records differ from the previous snapshot's, for a save
+     * journal: ships written to since, and ships added since. Ships dropped by a rollback are
+     * dropped on loading too. A changed ship's construction is written again only if its
+     * structure changed; otherwise just its tank levels and throttles are.
+     */
+    public static void writeChanges(Snapshot snapshot, Snapshot previous, ToIntFunction<Organisation> owners, SaveWriter out)
+    {
+        ShipRecord[] now = snapshot.ships, before = previous.ships;
+
+        // ships below kept are the same ships as before; a rollback hands the ids above out again
+        int kept = Math.min(now.length, before.length);
+        for (int id = 0; id < kept; id++)
+        {
+            if (now[id].ship != before[id].ship)
+            {
+                kept = id;
+                break;
+            }
+        }
+        int[] ids = new int[now.length];
+        int k = 0;
+        for (int id = 0; id < now.length; id++)
+        {
+            if (id >= kept || now[id] != before[id])
+            {
+                ids[k++] = id;
+            }
+        }
+        ShipRecord[] changed = new ShipRecord[k];
+        for (int i = 0; i < k; i++)
+        {
+            changed[i] = now[ids[i]];
+        }
+
+        out.putInt(now.length);
+        out.putInt(kept);
+        out.putInt(k);
+        for (int i = 0; i < k; i++)
+        {
+            out.putInt(ids[i]);
+        }
+        writeColumns(changed, owners, out);
+        for (int i = 0; i < k; i++)
+        {
+            ShipRecord s = changed[i];
+            writeQueue(s, out);
+            boolean rebuilt = ids[i] >= kept || s.construction != before[ids[i]].construction;
+            out.putBoolean(rebuilt);
+            if (rebuilt)
+            {
+                writeConstruction(s, out);
+            }
+            else
+            {
+                out.putInt(s.state.levels.length);
+                for (double level : s.state.levels)
+                {
+                    out.putDouble(level);
+                }
+                out.putInt(s.throttles.length);
+                for (double throttle : s.throttles)
+                {
+                    out.putDouble(throttle);
+                }
+            }
+        }
+    }
+
+    private static void writeColumns(ShipRecord[] ships, ToIntFunction<Organisation> owners, SaveWriter out)
+    {
+        for (ShipRecord s : ships) out.putString(s.name);
+        for (ShipRecord s : ships) out.putInt(owners.applyAsInt(s.owner));
+        for (ShipRecord s : ships) out.putInt(s.state.location);
+        for (ShipRecord s : ships) out.putInt(s.state.target);
+        for (ShipRecord s : ships) out.putByte(s.state.stepState.ordinal());
+        for (ShipRecord s : ships) out.putByte(s.state.flightState.ordinal());
+        for (ShipRecord s : ships) out.putByte(s.state.taskState.ordinal());
+        for (ShipRecord s : ships) out.putDouble(s.state.timeToWait);
+        for (ShipRecord s : ships) out.putDouble(s.state.nextEventTime);
+        for (ShipRecord s : ships) out.putPlan(s.state.plan);
+        for (ShipRecord s : ships) out.putInt(s.state.planCursor);
+        for (ShipRecord s : ships) out.putProcedure(s.state.currentProcedure);
+        for (ShipRecord s : ships) out.putBoolean(s.state.planning);
+        for (ShipRecord s : ships) out.putDouble(s.state.planning ? s.state.planEpoch : 0.0); // stale otherwise
+        for (ShipRecord s : ships) out.putDouble(s.state.decayedTo);
+    }
+
+    private static void writeQueue(ShipRecord s, SaveWriter out)
+    {
+        out.putInt(s.state.queue.length);
+        for (FlightStep step : s.state.queue)
+        {
+            out.putStep(step);
+        }
+    }
+
+    // tank levels come from the captured state, which lists tank slots in part order
+    private static void writeConstruction(ShipRecord ship, SaveWriter out)
+    {
+        Construction c = ship.construction;
+        double[] levels = ship.state.levels;
+        int next = 0;
+        out.putInt(c.sections.length);
+        for (SectionRecord s : c.sections)
+        {
+            out.putString(s.name);
+            out.putDouble(s.mass);
+            out.putString(s.socket);
+            out.putByte(s.module);
+            out.putInt(s.parts.length);
+            for (int p = 0; p < s.parts.length; p++)
+            {
+                out.putPart(s.parts[p]);
+                out.putInt(s.containers[p]);
+                for (int k = 0; k < s.containers[p]; k++)
+                {
+                    out.putDouble(levels[next++]);
+                }
+            }
+        }
+
+        out.putInt(c.engines.length);
+        for (int i = 0; i < c.engines.length; i++)
+        {
+            out.putPart(c.engines[i]);
+            out.putBoolean(c.active[i]);
+            out.putBoolean(c.enabled[i]);
+            out.putBoolean(c.failed[i]);
+            out.putDouble(ship.throttles[i]);
+        }
+
+        out.putInt(c.stages.length);
+        for (StageRecord s : c.stages)
+        {
+            out.putString(s.name);
+            out.putInt(s.sections.length);
+            for (int section : s.sections)
+            {
+                out.putInt(section);
+            }
+            out.putInt(s.engines.length);
+            for (int engine : s.engines)
+            {
+                out.putInt(engine);
+            }
+        }
+    }
+
+    private static final class ShipRecord
+    {
+        final Ship ship;
+        final String name;
+        final Organisation owner;
+        final ShipMemento state;
+        final long structureVersion;
+        final Construction construction;
+        final double[] throttles;
+
+        ShipRecord(Ship ship, ShipRecord old)
+        {
+            this.ship = ship;
+            this.name = ship.getName();
+            this.owner = ship.owner;
+            this.state = ship.capture();
+            this.structureVersion = ship.getStructureVersion();
+            // the construction only changes with the structure
+            this.construction = old != null && old.ship == ship && old.structureVersion == structureVersion
+                    ? old.construction : Construction.of(ship);
+
+            List<Engine> engines = ship.getEngineBlock().getAllEngines();
+            this.throttles = new double[engines.size()];
+            for (int i = 0; i < throttles.length; i++)
+            {
+                throttles[i] = engines.get(i).getThrottle();
+            }
+        }
+    }
+
+    private record SectionRecord(String name, double mass, String socket, int module, PartDefinition[] parts, int[] containers)
+    {
+    }
+
+    // service sections before payload: the order Ship.getParts, and so the captured tank levels, use
+    private record StageRecord(String name, int[] sections, int[] engines)
+    {
+    }
+
+    private record Construction(SectionRecord[] sections, EngineDefinition[] engines,
+                                boolean[] active, boolean[] enabled, boolean[] failed, StageRecord[] stages)
+    {
+        static Construction of(Ship ship)
+        {
+            List<Section> service = ship.getServiceModule().getSections();
+            List<Section> payload = ship.getPayloadModule().getSections();
+            SectionRecord[] sections = new SectionRecord[service.size() + payload.size()];
+            for (int i = 0; i < sections.length; i++)
+            {
+                boolean isService = i < service.size();
+                Section s = isService ? service.get(i) : payload.get(i - service.size());
+                List<Part> parts = s.getParts();
+                PartDefinition[] definitions = new PartDefinition[parts.size()];
+                int[] containers = new int[parts.size()];
+                for (int p = 0; p < definitions.length; p++)
+                {
+                    definitions[p] = parts.get(p).getDefinition();
+                    containers[p] = parts.get(p) instanceof ContainerPart tank ? tank.size() : 0;
+                }
+                sections[i] = new SectionRecord(s.getName(), s.getStructuralMass(), s.getSocketName(),
+                        isService ? SERVICE : PAYLOAD, definitions, containers);
+            }
+
+            List<Engine> all = ship.getEngineBlock().getAllEngines();
+            List<Engine> active = ship.getEngineBlock().getActiveEngines();
+            EngineDefinition[] engines = new EngineDefinition[all.size()];
+            boolean[] isActive = new boolean[all.size()], enabled = new boolean[all.size()], failed = new boolean[all.size()];
+            for (int i = 0; i < engines.length; i++)
+            {
+                Engine e = all.get(i);
+                engines[i] = e.getDefinition();
+                isActive[i] = active.contains(e);
+                enabled[i] = e.isEnabled() || e.hasFailed(); // a failed engine is saved switched on
+                failed[i] = e.hasFailed();
+            }
+            // stages refer to sections and engines by their position above
+            List<Section> allSections = new ArrayList<>(service);
+            allSections.addAll(payload);
+            List<Stage> staged = ship.getStages();
+            StageRecord[] stages = new StageRecord[staged.size()];
+            for (int i = 0; i < stages.length; i++)
+            {
+                Stage stage = staged.get(i);
+                stages[i] = new StageRecord(stage.getName(), positions(stage.getSections(), allSections),
+                        positions(stage.getEngines(), all));
+            }
+            return new Construction(sections, engines, isActive, enabled, failed, stages);
+        }
+
+        // by identity; a member no longer fitted to the ship is left out
+        private static int[] positions(List<?> members, List<?> in)
+        {
+            int[] found = new int[members.size()];
+            int n = 0;
+            for (Object member : members)
+            {
+                for (int i = 0; i < in.size(); i++)
+                {
+                    if (in.get(i) == member)
+                    {
+                        found[n++] = i;
+                        break;
+                    }
+                }
+            }
+            return Arrays.copyOf(found, n);
+        }
+    }
+
+    // -------
+    // reading
+    // -------
+
+    public static void read(SaveReader in, Universe universe, Organisation[] owners) throws IOException
+    {
+        int n = in.getCount();
+        Columns columns = new Columns(in, n, owners, universe.time);
+
+        int[] owned = new int[owners.length];
+        for (int i = 0; i < n; i++)
+        {
+            owned[columns.owner[i]]++;
+        }
+        universe.getFleet().ensureCapacity(universe.getShipIdCount() + n);
+        for (int k = 0; k < owners.length; k++)
+        {
+            owners[k].ensureCapacity(owned[k]);
+        }
+
+        for (int i = 0; i < n; i++)
+        {
+            Ship ship = new Ship(columns.names[i], universe.getCelestialById(columns.location[i]), owners[columns.owner[i]]);
+            FlightStep[] queue = readQueue(in);
+            readConstruction(ship, in);
+
+            // the tanks are already filled, so take their levels as they are
+            ShipMemento built = ship.capture();
+            ship.restore(columns.state(i, ship, queue, built.tanks, built.levels));
+        }
+    }
+
+    /**
+     * Applies the ships of a journal entry written by writeChanges.
+     */
+    public static void readChanges(SaveReader in, Universe universe, Organisation[] owners) throws IOException
+    {
+        int n = in.getCount();
+        int kept = in.getCount();
+        FleetStore fleet = universe.getFleet();
+        if (kept > fleet.size())
+        {
+            throw new IOException("Save journal keeps " + kept + " ships, the save has " + fleet.size());
+        }
+        fleet.truncate(kept);
+
+        int k = in.getCount();
+        int[] ids = new int[k];
+        for (int i = 0; i < k; i++)
+        {
+            ids[i] = in.getInt();
+        }
+        Columns columns = new Columns(in, k, owners, universe.time);
+        fleet.ensureCapacity(n);
+
+        for (int i = 0; i < k; i++)
+        {
+            int id = ids[i];
+            Organisation owner = owners[columns.owner[i]];
+            Ship ship;
+            if (id < kept)
+            {
+                ship = universe.getShipById(id);
+                ship.setName(columns.names[i]);
+                if (ship.owner != owner)
+                {
+                    ship.owner.removeShip(ship);
+                    ship.owner = owner;
+                    owner.addShip(ship);
+                }
+            }
+            else if (id == universe.getShipIdCount())
+            {
+                ship = new Ship(columns.names[i], universe.getCelestialById(columns.location[i]), owner);
+            }
+            else
+            {
+                throw new IOException("Save journal adds ship " + id + " after " + universe.getShipIdCount() + " ships");
+            }
+
+            FlightStep[] queue = readQueue(in);
+            ShipMemento built;
+            double[] levels;
+            if (in.getBoolean())
+            {
+                ship.clearConstruction();
+                readConstruction(ship, in);
+                built = ship.capture();
+                levels = built.levels;
+            }
+            else
+            {
+                built = ship.capture();
+                levels = new double[in.getCount()];
+                if (levels.length != built.levels.length)
+                {
+                    throw new IOException("Save journal has " + levels.length + " tank levels for " + ship.getName()
+                            + ", which has " + built.levels.length + " tank slots");
+                }
+                for (int t = 0; t < levels.length; t++)
+                {
+                    levels[t] = in.getDouble();
+                }
+                List<Engine> engines = ship.getEngineBlock().getAllEngines();
+                if (in.getCount() != engines.size())
+                {
+                    throw new IOException("Save journal has the wrong number of engines for " + ship.getName());
+                }
+                for (Engine e : engines)
+                {
+                    e.setThrottle(in.getDouble());
+                }
+            }
+            ship.restore(columns.state(i, ship, queue, built.tanks, levels));
+        }
+
+        if (universe.getShipIdCount() != n)
+        {
+            throw new IOException("Save journal ends with " + universe.getShipIdCount() + " ships, expected " + n);
+        }
+    }
+
+    // the flight state columns, for the ships of a save or journal entry in the order written
+    private static final class Columns
+    {
+        final String[] names;
+        final int[] owner, location, target, planCursor;
+        final ShipState[] stepState;
+        final FlightState[] flightState;
+        final ShipTaskState[] taskState;
+        final double[] timeToWait, nextEventTime, planEpoch, decayedTo;
+        final FlightPlan[] plan;
+        final FlightProcedure[] current;
+        final boolean[] planning;
+
+        // saves before version 3 decayed every tick, so their levels are as of the save's time
+        Columns(SaveReader in, int n, Organisation[] owners, double savedAt) throws IOException
+        {
+            names = new String[n];
+            owner = new int[n];
+            location = new int[n];
+            target = new int[n];
+            planCursor = new int[n];
+            stepState = new ShipState[n];
+            flightState = new FlightState[n];
+            taskState = new ShipTaskState[n];
+            timeToWait = new double[n];
+            nextEventTime = new double[n];
+            planEpoch = new double[n];
+            decayedTo = new double[n];
+            plan = new FlightPlan[n];
+            current = new FlightProcedure[n];
+            planning = new boolean[n];
+
+            for (int i = 0; i < n; i++) names[i] = in.getString();
+            for (int i = 0; i < n; i++) owner[i] = in.getInt();
+            for (int i = 0; i < n; i++) location[i] = in.getInt();
+            for (int i = 0; i < n; i++) target[i] = in.getInt();
+            for (int i = 0; i < n; i++) stepState[i] = enumAt(ShipState.values(), in.getByte());
+            for (int i = 0; i < n; i++) flightState[i] = enumAt(FlightState.values(), in.getByte());
+            for (int i = 0; i < n; i++) taskState[i] = enumAt(ShipTaskState.values(), in.getByte());
+            for (int i = 0; i < n; i++) timeToWait[i] = in.getDouble();
+            for (int i = 0; i < n; i++) nextEventTime[i] = in.getDouble();
+            for (int i = 0; i < n; i++) plan[i] = in.getPlan();
+            for (int i = 0; i < n; i++) planCursor[i] = in.getInt();
+            for (int i = 0; i < n; i++) current[i] = in.getProcedure();
+            for (int i = 0; i < n; i++) planning[i] = in.getBoolean();
+            for (int i = 0; i < n; i++) planEpoch[i] = in.getDouble();
+            for (int i = 0; i < n; i++) decayedTo[i] = in.getVersion() >= 3 ? in.getDouble() : savedAt;
+
+            for (int i = 0; i < n; i++)
+            {
+                if (owner[i] < 0 || owner[i] >= owners.length)
+                {
+                    throw new IOException("Ship " + names[i] + " has no owner in the save");
+                }
+            }
+        }
+
+        ShipMemento state(int i, Ship ship, FlightStep[] queue, ContainerPart[] tanks, double[] levels)
+        {
+            return new ShipMemento(ship, stepState[i], flightState[i], taskState[i],
+                    location[i], target[i], timeToWait[i], nextEventTime[i],
+                    plan[i], planCursor[i], queue, current[i],
+                    planning[i], planEpoch[i], tanks, levels, decayedTo[i]);
+        }
+    }
+
+    private static FlightStep[] readQueue(SaveReader in) throws IOException
+    {
+        FlightStep[] queue = new FlightStep[in.getCount()];
+        for (int k = 0; k < queue.length; k++)
+        {
+            queue[k] = in.getStep();
+        }
+        return queue;
+    }
+
+    private static void readConstruction(Ship ship, SaveReader in) throws IOException
+    {
+        Section[] sections = new Section[in.getCount()];
+        for (int s = 0; s < sections.length; s++)
+        {
+            String name = in.getString();
+            double mass = in.getDouble();
+            String socket = in.getString();
+            int module = in.getByte();
+            Section section = ship.newSection(name, mass, socket, module == PAYLOAD ? "payload" : "service");
+            sections[s] = section;
+
+            int parts = in.getCount();
+            for (int p = 0; p < parts; p++)
+            {
+                PartDefinition definition = in.getPart();
+                if (definition == null)
+                {
+                    throw new IOException("Ship " + ship.getName() + " has a part without a definition");
+                }
+                Part part = definition.create();
+                int levels = in.getCount();
+                for (int k = 0; k < levels; k++)
+                {
+                    double level = in.getDouble();
+                    if (part instanceof ContainerPart tank && k < tank.size())
+                    {
+                        tank.setLevel(k, level);
+                    }
+                }
+                ship.addPartToSection(part, section);
+            }
+        }
+
+        Engine[] engines = new Engine[in.getCount()];
+        for (int i = 0; i < engines.length; i++)
+        {
+            if (!(in.getPart() instanceof EngineDefinition definition))
+            {
+                throw new IOException("Ship " + ship.getName() + " has an engine that isn't one");
+            }
+            Engine engine = definition.create();
+            boolean active = in.getBoolean();
+            engine.setEnabled(in.getBoolean());
+            engine.setFailed(in.getBoolean());
+            engine.setThrottle(in.getDouble());
+            ship.getEngineBlock().addEngine(engine);
+            if (active)
+            {
+                ship.getEngineBlock().enableEngine(engine);
+            }
+            engines[i] = engine;
+        }
+
+        if (in.getVersion() < 2)
+        {
+            return;
+        }
+        int stages = in.getCount();
+        for (int s = 0; s < stages; s++)
+        {
+            Stage stage = ship.addStage(in.getString());
+            int n = in.getCount();
+            for (int k = 0; k < n; k++)
+            {
+                stage.addSection(sections[checkPosition(in.getInt(), sections.length, "section", ship)]);
+            }
+            n = in.getCount();
+            for (int k = 0; k < n; k++)
+            {
+                stage.addEngine(engines[checkPosition(in.getInt(), engines.length, "engine", ship)]);
+            }
+        }
+    }
+
+    private static int checkPosition(int i, int count, String what, Ship ship) throws IOException
+    {
+        if (i < 0 || i >= count)
+        {
+            throw new IOException("Ship " + ship.getName() + " stages " + what + " " + i + " of " + count);
+        }
+        return i;
+    }
+
+    private static <E> E enumAt(E[] values, int ordinal) throws IOException
+    {
+        if (ordinal < 0 || ordinal >= values.length)
+        {
+            throw new IOException("Corrupt save: no " + values[0].getClass().getSimpleName() + " number " + ordinal);
+        }
+        return values[ordinal];
+    }
+}
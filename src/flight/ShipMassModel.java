@@ -0,0 +1,373 @@
+package flight;
+
+import economy.resource.ResourceDatabase;
+import economy.resource.ResourceDecay;
+import flight.construction.MassNode;
+import util.CONST;
+import flight.construction.parts.ContainerPart;
+import flight.construction.parts.Part;
+import flight.construction.parts.propulsion.FuelMixture;
+import flight.construction.superstructures.EngineShipModule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mass, propellant and Δv figures for one ship.
+ *
+ * Masses come straight from the root of the ship's mass tree (see MassNode), which tanks keep
+ * current by pushing deltas up, so they are O(1) to read. On top of that two things are cached:
+ * the structure (tank order, mixture, Isp), rebuilt when parts are added or engines change, and
+ * the propellant mass and Δv, recomputed when the tree's version has moved since.
+ *
+ * The tree holds tank levels as of the ship's decay time. Every read here folds in the boil-off
+ * since, so a ship whose tanks nothing has written to for months still reads right; settleDecay
+ * writes it into the tanks.
+ */
+class ShipMassModel
+{
+    private final Ship ship;
+    private final MassNode root = new MassNode();
+
+    private boolean structureDirty = true;
+    private long contentsVersion = -1;                      // root version the Δv was computed at
+
+    // structure
+    private ContainerPart[] tanks = new ContainerPart[0];
+    private int slotCount;                                  // tank slots over all tanks
+    private int[] mixResource = new int[0];                 // mixture component -> interned resource id
+    private double[] mixFraction = new double[0];
+    private double mixTotal;
+    private double isp;
+    private double[] need = new double[0];                  // drain scratch, by interned resource id
+    private int[] decayResource = new int[0];               // resources in the tanks that decay
+    private double[] rate = new double[0];                  // decay per second, by interned resource id
+    private long ratesVersion = -1;
+
+    // contents
+    private double decayElapsed;                            // seconds of decay folded into the figures below
+    private double[] keep = new double[0];                  // fraction left after decayElapsed, by resource id
+    private double mass;
+    private double propellantMass;
+    private double deltaV;
+
+    ShipMassModel(Ship ship)
+    {
+        this.ship = ship;
+    }
+
+    MassNode getRoot()
+    {
+        return root;
+    }
+
+    void structureChanged()
+    {
+        structureDirty = true;
+        ship.structureChanged();
+    }
+
+    // -----
+    // reads
+    // -----
+    double getMass()
+    {
+        refresh();
+        return mass;
+    }
+
+    double getDryMass()
+    {
+        refresh();
+        return mass - propellantMass;
+    }
+
+    double getPropellantMass()
+    {
+        refresh();
+        return propellantMass;
+    }
+
+    double getResourceMass(int resource)
+    {
+        refresh();
+        return resourceMass(resource);
+    }
+
+    /**
+     * Fraction of a resource's stored level still there at the current time.
+     */
+    double getKeep(int resource)
+    {
+        refresh();
+        return resource < keep.length ? keep[resource] : 1.0;
+    }
+
+    boolean decays()
+    {
+        refresh();
+        return decayResource.length > 0;
+    }
+
+    double getDeltaV()
+    {
+        refresh();
+        return deltaV;
+    }
+
+    /**
+     * Tanks in part order, for draining. Valid until the structure next changes.
+     */
+    ContainerPart[] getTanks()
+    {
+        refresh();
+        return tanks;
+    }
+
+    /**
+     * Slots over all of getTanks().
+     */
+    int getSlotCount()
+    {
+        refresh();
+        return slotCount;
+    }
+
+    // --------
+    // rebuilds
+    // --------
+    private void refresh()
+    {
+        if (structureDirty || ratesVersion != ResourceDecay.getRatesVersion())
+        {
+            rebuildStructure();
+        }
+        double elapsed = decayResource.length > 0 ? ship.getDecayElapsed() : 0.0;
+        if (contentsVersion != root.getVersion() || elapsed != decayElapsed)
+        {
+            recompute(elapsed);
+        }
+    }
+
+    private void rebuildStructure()
+    {
+        List<ContainerPart> found = new ArrayList<>();
+        slotCount = 0;
+        for (Part part : ship.getParts())
+        {
+            if (part instanceof ContainerPart tank)
+            {
+                found.add(tank);
+                slotCount += tank.size();
+            }
+        }
+        tanks = found.toArray(new ContainerPart[0]);
+
+        ratesVersion = ResourceDecay.getRatesVersion();
+        rate = new double[ResourceDatabase.size()];
+        keep = new double[rate.length];
+        int decaying = 0;
+        int[] resources = new int[slotCount];
+        for (ContainerPart tank : tanks)
+        {
+            for (int k = 0; k < tank.size(); k++)
+            {
+                int resource = tank.getResource(k);
+                if (resource < rate.length && keep[resource] == 0) // first slot holding it
+                {
+                    keep[resource] = 1.0;
+                    rate[resource] = ResourceDecay.rateOf(ResourceDatabase.nameOf(resource));
+                    if (rate[resource] > 0)
+                    {
+                        resources[decaying++] = resource;
+                    }
+                }
+            }
+        }
+        Arrays.fill(keep, 1.0);
+        decayResource = Arrays.copyOf(resources, decaying);
+
+        EngineShipModule engines = ship.getEngineBlock();
+        FuelMixture mix = engines.getFuelMixture();
+        mixResource = new int[mix.size()];
+        mixFraction = new double[mix.size()];
+        mixTotal = 0;
+        for (int k = 0; k < mix.size(); k++)
+        {
+            mixResource[k] = mix.getResource(k);
+            mixFraction[k] = mix.getFraction(k);
+            mixTotal += mixFraction[k];
+        }
+        need = new double[ResourceDatabase.size()];
+        isp = engines.getSpecificImpulse();
+
+        structureDirty = false;
+        contentsVersion = -1;
+    }
+
+    private void recompute(double elapsed)
+    {
+        double lost = 0;
+        for (int resource : decayResource)
+        {
+            keep[resource] = Math.exp(-rate[resource] * elapsed);
+            lost += root.getResourceMass(resource) * (1.0 - keep[resource]);
+        }
+        mass = root.getMass() - lost;
+
+        propellantMass = 0;
+        for (int resource : mixResource)
+        {
+            propellantMass += resourceMass(resource);
+        }
+
+        deltaV = computeDeltaV();
+        decayElapsed = elapsed;
+        contentsVersion = root.getVersion();
+    }
+
+    private double resourceMass(int resource)
+    {
+        double stored = root.getResourceMass(resource);
+        return resource < keep.length ? stored * keep[resource] : stored;
+    }
+
+    private double computeDeltaV()
+    {
+        if (mixResource.length == 0)
+        {
+            return 0.0;
+        }
+
+        // Determine limiting mix units
+        double limitingUnits = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < mixResource.length; k++)
+        {
+            double units = resourceMass(mixResource[k]) / mixFraction[k];
+            if (units < limitingUnits)
+            {
+                limitingUnits = units;
+            }
+        }
+
+        // If zero fuel left, no Δv
+        if (limitingUnits <= 0 || Double.isInfinite(limitingUnits))
+        {
+            return 0.0;
+        }
+
+        // Apply rocket equation to the burnable propellant; whatever the mixture leaves over
+        // stays on board as dead mass
+        double usablePropellant = limitingUnits * mixTotal;
+        double wetMass = mass;
+        double burnoutMass = wetMass - usablePropellant;
+
+        return isp * CONST.standardG * Math.log(wetMass / burnoutMass);
+    }
+
+    /**
+     * Writes the decay of the last elapsed seconds into the tank levels. The ship then restarts
+     * its decay clock.
+     */
+    void settleDecay(double elapsed)
+    {
+        refresh();
+        for (ContainerPart tank : tanks)
+        {
+            for (int k = 0; k < tank.size(); k++)
+            {
+                int resource = tank.getResource(k);
+                if (resource < rate.length && rate[resource] > 0)
+                {
+                    tank.setLevel(k, tank.getLevel(k) * Math.exp(-rate[resource] * elapsed));
+                }
+            }
+        }
+    }
+
+    // -----------
+    // burn kernel
+    // -----------
+    // Runs inside every BurnStep of every ship, so nothing here allocates; the per-resource
+    // scratch array is sized when the structure is rebuilt.
+
+    /**
+     * Propellant needed for dv from the current wet mass, by the rocket equation
+     * m_p = m0 (1 - e^(-dv / ve)), with ve = Isp g0.
+     */
+    double propellantFor(double dv)
+    {
+        refresh();
+        double ve = isp * CONST.standardG;
+        if (dv <= 0 || ve <= 0)
+        {
+            return 0.0;
+        }
+        return mass * (1.0 - Math.exp(-dv / ve));
+    }
+
+    /**
+     * Burns up to dv, draining the propellant by mixture ratio.
+     * @return the part of dv that could not be delivered, 0 if the burn completed
+     */
+    double burn(double dv)
+    {
+        if (dv <= 0)
+        {
+            return 0.0;
+        }
+        double achieved = Math.min(dv, getDeltaV());
+        if (achieved > 0)
+        {
+            drain(propellantFor(achieved));
+        }
+        return dv - achieved;
+    }
+
+    /**
+     * Removes mass of propellant split by mixture ratio, taking each resource from the tanks
+     * in part order, in one pass over the tanks.
+     * @return mass actually removed
+     */
+    double drain(double mass)
+    {
+        refresh();
+        if (mass <= 0 || mixResource.length == 0)
+        {
+            return 0.0;
+        }
+
+        for (int k = 0; k < mixResource.length; k++)
+        {
+            need[mixResource[k]] += mass * mixFraction[k] / mixTotal;
+        }
+
+        double removed = 0.0;
+        for (ContainerPart tank : tanks)
+        {
+            for (int k = 0; k < tank.size(); k++)
+            {
+                int resource = tank.getResource(k);
+                double wanted = need[resource];
+                if (wanted <= 0)
+                    continue;
+
+                double current = tank.getLevel(k);
+                double take = Math.min(current, wanted);
+                if (take > 0)
+                {
+                    tank.setLevel(k, current - take);
+                    need[resource] = wanted - take;
+                    removed += take;
+                }
+            }
+        }
+
+        for (int resource : mixResource)
+        {
+            need[resource] = 0.0;
+        }
+        return removed;
+    }
+}
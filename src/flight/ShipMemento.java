@@ -0,0 +1,70 @@
+package flight;
+
+import flight.construction.parts.ContainerPart;
+import flight.procedure.FlightProcedure;
+import flight.step.FlightStep;
+
+/**
+ * A ship's mutable state at one checkpoint, captured the first time the ship is written to
+ * after the checkpoint. Plans, procedures and queued steps are immutable during a run, so
+ * they are shared with the live ship rather than copied; only the values that change per
+ * tick and tank contents are stored.
+ */
+public class ShipMemento
+{
+    final Ship ship;
+
+    final ShipState stepState;
+    final FlightState flightState;
+    final ShipTaskState taskState;
+    final int location, target;
+    final double timeToWait, nextEventTime;
+
+    final FlightPlan plan;
+    final int planCursor;
+    final FlightStep[] queue;
+    final FlightProcedure currentProcedure;
+    final boolean planning;
+    final double planEpoch;
+
+    final ContainerPart[] tanks;
+    final double[] levels; // every slot of every tank, in tank order
+    final double decayedTo; // sim time the levels are as of
+
+    ShipMemento(Ship ship, ShipState stepState, FlightState flightState, ShipTaskState taskState,
+                int location, int target, double timeToWait, double nextEventTime,
+                FlightPlan plan, int planCursor, FlightStep[] queue, FlightProcedure currentProcedure,
+                boolean planning, double planEpoch, ContainerPart[] tanks, double[] levels, double decayedTo)
+    {
+        this.ship = ship;
+        this.stepState = stepState;
+        this.flightState = flightState;
+        this.taskState = taskState;
+        this.location = location;
+        this.target = target;
+        this.timeToWait = timeToWait;
+        this.nextEventTime = nextEventTime;
+        this.plan = plan;
+        this.planCursor = planCursor;
+        this.queue = queue;
+        this.currentProcedure = currentProcedure;
+        this.planning = planning;
+        this.planEpoch = planEpoch;
+        this.tanks = tanks;
+        this.levels = levels;
+        this.decayedTo = decayedTo;
+    }
+
+    public Ship getShip()
+    {
+        return ship;
+    }
+
+    /**
+     * Puts the ship back the way it was when this was captured.
+     */
+    public void restore()
+    {
+        ship.restore(this);
+    }
+}
@@ -0,0 +1,13 @@
+package flight;
+
+/**
+ * A ship's flight status as it was right after one event, captured when the event happens and
+ * handed to listeners with it. Events are delivered at the end of the tick, by which time a
+ * ship that ran several steps has moved on, so listeners that record state should take it
+ * from here rather than from the ship.
+ */
+public record ShipStatus(FlightState flightState, ShipState stepState, ShipTaskState taskState,
+                         int locationId, int targetId, FlightPlan plan, int planCursor,
+                         double timeToWait, double propellantMass)
+{
+}
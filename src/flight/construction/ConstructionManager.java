@@ -1,19 +1,35 @@
 package flight.construction;
 
 import flight.construction.parts.Part;
+import flight.construction.parts.PartDefinition;
+import flight.construction.parts.TankDefinition;
+import flight.construction.parts.propulsion.EngineDefinition;
 import flight.construction.sections.Section;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 public class ConstructionManager
 {
 
-    private static ArrayList<Part> parts = new ArrayList<>();
     private static ArrayList<Section> sections = new ArrayList<>();
     private static ArrayList<Module> modules = new ArrayList<>();
 
+    // replaced, never modified; readers on other threads see either the old or the new one whole
+    private static volatile PartCatalog catalog = PartCatalog.EMPTY;
+
+    /**
+     * Prototype parts, one per catalog entry. Builds every definition, prefer the catalog queries.
+     */
     public static ArrayList<Part> getParts()
     {
+        ArrayList<Part> parts = new ArrayList<>();
+        for (PartCatalog.Entry e : catalog.entries())
+        {
+            parts.add(e.getDefinition().create());
+        }
         return parts;
     }
     public static ArrayList<Section> getSections()
@@ -24,10 +40,6 @@ public class ConstructionManager
     {
         return modules;
     }
-    public static void populateParts(ArrayList<Part> parts)
-    {
-        ConstructionManager.parts = parts;
-    }
     public static void populateSections(ArrayList<Section> sections)
     {
         ConstructionManager.sections = sections;
@@ -36,4 +48,46 @@ public class ConstructionManager
     {
         ConstructionManager.modules = modules;
     }
+
+    // ------------
+    // part catalog
+    // ------------
+
+    /**
+     * The current snapshot. Hold on to it for a whole query; it won't change underneath you.
+     */
+    public static PartCatalog getCatalog()
+    {
+        return catalog;
+    }
+
+    /**
+     * Adds entries to the catalog and publishes the result as the new snapshot.
+     */
+    public static synchronized void publish(Collection<PartCatalog.Entry> entries)
+    {
+        catalog = catalog.with(entries);
+    }
+
+    public static void registerDefinition(PartDefinition definition)
+    {
+        String type = definition instanceof EngineDefinition ? "engine"
+                : definition instanceof TankDefinition ? "tank" : "part";
+        publish(List.of(PartCatalog.Entry.of(definition, type, Set.of())));
+    }
+
+    public static PartDefinition getDefinition(String name)
+    {
+        return catalog.getDefinition(name);
+    }
+
+    public static EngineDefinition getEngineDefinition(String name)
+    {
+        return catalog.getDefinition(name) instanceof EngineDefinition def ? def : null;
+    }
+
+    public static TankDefinition getTankDefinition(String name)
+    {
+        return catalog.getDefinition(name) instanceof TankDefinition def ? def : null;
+    }
 }
@@ -0,0 +1,108 @@
+package flight.construction;
+
+import economy.resource.MassListener;
+
+import java.util.Arrays;
+
+/**
+ * One node of a ship's mass tree: tank, section, module or the ship itself.
+ *
+ * Each node keeps the total and per-resource stored mass of everything below it. Changes are
+ * pushed up as deltas, so a tank fill or drain costs O(depth) and every read is O(1).
+ * Attaching or detaching a subtree moves its whole totals in one go.
+ */
+public class MassNode implements MassListener
+{
+    private MassNode parent;
+    private double mass;                            // dry + stored, whole subtree
+    private double storedMass;
+    private double[] resourceMass = new double[0];  // by interned resource id
+    private long version;                           // bumped on every change in the subtree
+
+    public double getMass()
+    {
+        return mass;
+    }
+
+    public double getStoredMass()
+    {
+        return storedMass;
+    }
+
+    public double getDryMass()
+    {
+        return mass - storedMass;
+    }
+
+    public double getResourceMass(int resource)
+    {
+        return resource >= 0 && resource < resourceMass.length ? resourceMass[resource] : 0.0;
+    }
+
+    /**
+     * Changes whenever anything below this node does; compare to tell whether a derived value
+     * is stale.
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    // -------
+    // updates
+    // -------
+    public void addDryMass(double delta)
+    {
+        if (delta == 0) return;
+        for (MassNode n = this; n != null; n = n.parent)
+        {
+            n.mass += delta;
+            n.version++;
+        }
+    }
+
+    @Override
+    public void resourceMassChanged(int resource, double delta)
+    {
+        if (delta == 0) return;
+        for (MassNode n = this; n != null; n = n.parent)
+        {
+            if (resource >= n.resourceMass.length)
+            {
+                n.resourceMass = Arrays.copyOf(n.resourceMass, resource + 1);
+            }
+            n.resourceMass[resource] += delta;
+            n.storedMass += delta;
+            n.mass += delta;
+            n.version++;
+        }
+    }
+
+    /**
+     * Moves this subtree under another node, or detaches it with null.
+     */
+    public void attachTo(MassNode newParent)
+    {
+        if (parent != null)
+        {
+            push(parent, -1);
+        }
+        parent = newParent;
+        if (parent != null)
+        {
+            push(parent, 1);
+        }
+    }
+
+    private void push(MassNode to, double sign)
+    {
+        for (int r = 0; r < resourceMass.length; r++)
+        {
+            if (resourceMass[r] != 0)
+            {
+                to.resourceMassChanged(r, sign * resourceMass[r]);
+            }
+        }
+        to.addDryMass(sign * getDryMass());
+    }
+}
@@ -0,0 +1,189 @@
+package flight.construction;
+
+import flight.construction.parts.PartDefinition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Immutable snapshot of every known part type, indexed by name, socket and tag.
+ *
+ * Entries are indexed when a catalog file is read but only built into a PartDefinition the
+ * first time someone asks for it. Snapshots never change once published, so planning threads
+ * can hold one and query it without locking; loading more parts publishes a new snapshot that
+ * shares the existing entries (and whatever they have already built).
+ */
+public final class PartCatalog
+{
+    public static final PartCatalog EMPTY = new PartCatalog(new LinkedHashMap<>());
+
+    private final Map<String, Entry> byName;            // load order
+    private final Map<String, List<Entry>> bySocket;
+    private final Map<String, List<Entry>> byTag;
+
+    private PartCatalog(LinkedHashMap<String, Entry> entries)
+    {
+        Map<String, List<Entry>> sockets = new LinkedHashMap<>();
+        Map<String, List<Entry>> tags = new LinkedHashMap<>();
+        for (Entry e : entries.values())
+        {
+            sockets.computeIfAbsent(e.socket, k -> new ArrayList<>()).add(e);
+            for (String tag : e.tags)
+            {
+                tags.computeIfAbsent(tag, k -> new ArrayList<>()).add(e);
+            }
+        }
+        sockets.replaceAll((k, list) -> List.copyOf(list));
+        tags.replaceAll((k, list) -> List.copyOf(list));
+
+        this.byName = Collections.unmodifiableMap(entries);
+        this.bySocket = Collections.unmodifiableMap(sockets);
+        this.byTag = Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * A new snapshot with these entries added; an entry replaces any existing one of the same name.
+     */
+    public PartCatalog with(Collection<Entry> entries)
+    {
+        LinkedHashMap<String, Entry> merged = new LinkedHashMap<>(byName);
+        for (Entry e : entries)
+        {
+            merged.put(e.name, e);
+        }
+        return new PartCatalog(merged);
+    }
+
+    // -------
+    // queries
+    // -------
+    public Entry get(String name)
+    {
+        return byName.get(name);
+    }
+
+    /**
+     * The definition for a part name, built on first use, or null if there is no such part.
+     */
+    public PartDefinition getDefinition(String name)
+    {
+        Entry e = byName.get(name);
+        return e != null ? e.getDefinition() : null;
+    }
+
+    public List<Entry> bySocket(String socket)
+    {
+        return bySocket.getOrDefault(socket, List.of());
+    }
+
+    public List<Entry> byTag(String tag)
+    {
+        return byTag.getOrDefault(tag, List.of());
+    }
+
+    public Collection<Entry> entries()
+    {
+        return byName.values();
+    }
+
+    public int size()
+    {
+        return byName.size();
+    }
+
+    public int materialisedCount()
+    {
+        int n = 0;
+        for (Entry e : byName.values())
+        {
+            if (e.isMaterialised()) n++;
+        }
+        return n;
+    }
+
+    // -----
+    // entry
+    // -----
+    /**
+     * One part type: the fields the catalog is indexed on, and the definition, built on demand.
+     */
+    public static final class Entry
+    {
+        private final String name;
+        private final String type;
+        private final String socket;
+        private final Set<String> tags;
+
+        private Supplier<PartDefinition> source;   // dropped once the definition is built
+        private volatile PartDefinition definition;
+
+        public Entry(String name, String type, String socket, Set<String> tags, Supplier<PartDefinition> source)
+        {
+            this.name = name;
+            this.type = type;
+            this.socket = socket;
+            this.tags = Set.copyOf(tags);
+            this.source = source;
+        }
+
+        /**
+         * An entry for a definition that already exists.
+         */
+        public static Entry of(PartDefinition definition, String type, Set<String> tags)
+        {
+            Entry e = new Entry(definition.getName(), type, definition.getSocketName(), tags, null);
+            e.definition = definition;
+            return e;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getType()
+        {
+            return type;
+        }
+
+        public String getSocket()
+        {
+            return socket;
+        }
+
+        public Set<String> getTags()
+        {
+            return tags;
+        }
+
+        public boolean isMaterialised()
+        {
+            return definition != null;
+        }
+
+        public PartDefinition getDefinition()
+        {
+            PartDefinition def = definition;
+            if (def == null)
+            {
+                synchronized (this)
+                {
+                    def = definition;
+                    if (def == null)
+                    {
+                        def = source.get();
+                        definition = def;
+                        source = null;
+                    }
+                }
+            }
+            return def;
+        }
+    }
+}
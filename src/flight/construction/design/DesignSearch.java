@@ -0,0 +1,261 @@
+package flight.construction.design;
+
+import flight.construction.PartCatalog;
+import flight.construction.parts.PartDefinition;
+import flight.construction.parts.TankDefinition;
+import flight.construction.parts.propulsion.EngineDefinition;
+import flight.construction.parts.propulsion.FuelMixture;
+import util.CONST;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Searches a parts catalog for single-stage designs that carry a payload to a Δv target above a
+ * thrust/weight floor, and returns the Pareto set over (wet mass, Δv, cost), ranked.
+ *
+ * A design is N identical engines plus M identical tanks. Each (engine, tank) pair is one
+ * parallel task, branching on the engine count; the tank count range for each branch comes
+ * straight from the rocket equation (fewest tanks that reach the Δv) and the thrust floor (most
+ * tanks the engines can lift). Pairs whose tank can't reach the Δv even in an infinite stack are
+ * dropped up front, and a branch stops as soon as the best it could still reach is dominated by
+ * the front. Tank stack figures per (tank, mixture) are memoised, since engines sharing a
+ * definition's mixture share them.
+ *
+ * The catalog snapshot is only read, so this is safe to run off the Swing thread.
+ */
+public class DesignSearch
+{
+    /**
+     * Lightest first, then cheapest, then most Δv; names and counts break exact ties.
+     */
+    public static final Comparator<ShipDesign> RANKING = Comparator
+            .comparingDouble((ShipDesign d) -> d.wetMass)
+            .thenComparingDouble(d -> d.cost)
+            .thenComparingDouble(d -> -d.deltaV)
+            .thenComparing(d -> d.engine.getName())
+            .thenComparingInt(d -> d.engineCount)
+            .thenComparing(d -> d.tank.getName())
+            .thenComparingInt(d -> d.tankCount);
+
+    private final PartCatalog catalog;
+    private double payloadMass;
+    private double deltaV;
+    private double minThrustToWeight;
+    private int maxEngines = 9;
+    private int maxTanks = 64;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    // per (tank, mixture): what one more tank adds
+    private final Map<StackKey, TankStack> stacks = new ConcurrentHashMap<>();
+
+    public DesignSearch(PartCatalog catalog)
+    {
+        this.catalog = catalog;
+    }
+
+    public DesignSearch payload(double kg)
+    {
+        this.payloadMass = kg;
+        return this;
+    }
+
+    public DesignSearch deltaV(double metresPerSecond)
+    {
+        this.deltaV = metresPerSecond;
+        return this;
+    }
+
+    public DesignSearch minThrustToWeight(double ratio)
+    {
+        this.minThrustToWeight = ratio;
+        return this;
+    }
+
+    public DesignSearch maxEngines(int n)
+    {
+        this.maxEngines = n;
+        return this;
+    }
+
+    public DesignSearch maxTanks(int n)
+    {
+        this.maxTanks = n;
+        return this;
+    }
+
+    public DesignSearch pool(ForkJoinPool pool)
+    {
+        this.pool = pool;
+        return this;
+    }
+
+    public List<ShipDesign> run() throws InterruptedException
+    {
+        List<EngineDefinition> engines = new ArrayList<>();
+        List<TankDefinition> tanks = new ArrayList<>();
+        for (PartCatalog.Entry e : catalog.entries())
+        {
+            switch (e.getType())
+            {
+                case "engine" -> engines.add((EngineDefinition) e.getDefinition());
+                case "tank" -> tanks.add((TankDefinition) e.getDefinition());
+            }
+        }
+
+        ParetoFront front = new ParetoFront();
+        List<Callable<Void>> tasks = new ArrayList<>(engines.size() * tanks.size());
+        for (EngineDefinition engine : engines)
+        {
+            for (TankDefinition tank : tanks)
+            {
+                tasks.add(() ->
+                {
+                    searchPair(engine, tank, front);
+                    return null;
+                });
+            }
+        }
+
+        for (Future<Void> f : pool.invokeAll(tasks))
+        {
+            try
+            {
+                f.get();
+            }
+            catch (ExecutionException e)
+            {
+                throw new RuntimeException("Design search failed", e.getCause());
+            }
+        }
+
+        List<ShipDesign> ranked = front.snapshot();
+        ranked.sort(RANKING);
+        return ranked;
+    }
+
+    // ------
+    // search
+    // ------
+    private void searchPair(EngineDefinition engine, TankDefinition tank, ParetoFront front)
+    {
+        TankStack stack = stacks.computeIfAbsent(new StackKey(tank, engine.getMixture()), TankStack::of);
+        double ve = engine.getIspVacuum() * CONST.standardG;
+        if (stack.usable <= 0 || ve <= 0)
+        {
+            return;
+        }
+
+        // an endless stack of this tank tends to mass ratio gross / (gross - usable); anything
+        // carrying engines and payload as well does worse
+        double targetRatio = Math.exp(deltaV / ve);
+        if (stack.gross / (stack.gross - stack.usable) <= targetRatio)
+        {
+            return;
+        }
+
+        for (int n = 1; n <= maxEngines; n++)
+        {
+            double base = payloadMass + n * engine.getDryMass();
+            double thrust = n * engine.getThrustVacuum() * 1000.0; // kN -> N
+            double engineCost = n * engine.getCost();
+
+            int fewest = fewestTanks(base, stack, targetRatio, ve);
+            int most = mostTanks(base, stack, thrust);
+            if (fewest > most)
+            {
+                continue;
+            }
+
+            // the branch's best case: mass and cost of its lightest design, Δv of its heaviest
+            double bestDeltaV = deltaV(base, most, stack, ve);
+            if (front.dominates(base + fewest * stack.gross, bestDeltaV, engineCost + fewest * stack.cost))
+            {
+                continue;
+            }
+
+            for (int m = fewest; m <= most; m++)
+            {
+                double wet = base + m * stack.gross;
+                double cost = engineCost + m * stack.cost;
+                // mass and cost only grow from here, Δv can't beat the heaviest
+                if (front.dominates(wet, bestDeltaV, cost))
+                {
+                    break;
+                }
+
+                double burnout = wet - m * stack.usable;
+                front.offer(new ShipDesign(engine, n, tank, m, payloadMass, wet, burnout,
+                        ve * Math.log(wet / burnout), thrust / (wet * CONST.standardG), cost));
+            }
+        }
+    }
+
+    // rocket equation solved for the tank count: (base + m g) / (base + m (g - u)) >= R
+    private int fewestTanks(double base, TankStack stack, double targetRatio, double ve)
+    {
+        double denominator = stack.gross - targetRatio * (stack.gross - stack.usable);
+        if (denominator <= 0)
+        {
+            return Integer.MAX_VALUE;
+        }
+        int m = Math.max(1, (int) Math.ceil((targetRatio - 1) * base / denominator));
+        while (m <= maxTanks && deltaV(base, m, stack, ve) < deltaV)
+        {
+            m++; // rounding
+        }
+        return m;
+    }
+
+    private int mostTanks(double base, TankStack stack, double thrust)
+    {
+        if (minThrustToWeight <= 0)
+        {
+            return maxTanks;
+        }
+        double liftable = thrust / (minThrustToWeight * CONST.standardG);
+        return (int) Math.min(maxTanks, Math.floor((liftable - base) / stack.gross));
+    }
+
+    private static double deltaV(double base, int tanks, TankStack stack, double ve)
+    {
+        double wet = base + tanks * stack.gross;
+        return ve * Math.log(wet / (wet - tanks * stack.usable));
+    }
+
+    // -----------
+    // tank stacks
+    // -----------
+    private record StackKey(TankDefinition tank, FuelMixture mixture)
+    {
+    }
+
+    /**
+     * What one full tank adds for a given mixture: gross mass, how much of it the engines can
+     * burn (the rest of the contents stays on board), and cost.
+     */
+    private record TankStack(double gross, double usable, double cost)
+    {
+        static TankStack of(StackKey key)
+        {
+            TankDefinition tank = key.tank();
+            FuelMixture mix = key.mixture();
+
+            double units = mix.isEmpty() ? 0 : Double.POSITIVE_INFINITY;
+            double fractions = 0;
+            for (int k = 0; k < mix.size(); k++)
+            {
+                units = Math.min(units, tank.getCapacityOf(mix.getResource(k)) / mix.getFraction(k));
+                fractions += mix.getFraction(k);
+            }
+            return new TankStack(tank.getDryMass() + tank.getTotalCapacity(), units * fractions, tank.getCost());
+        }
+    }
+}
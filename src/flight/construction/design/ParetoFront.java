@@ -0,0 +1,61 @@
+package flight.construction.design;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-dominated designs so far: lower mass, higher Δv, lower cost. Shared by the search tasks.
+ */
+class ParetoFront
+{
+    private final List<ShipDesign> designs = new ArrayList<>();
+
+    /**
+     * True if some design already on the front is at least as good as (mass, dv, cost) on every
+     * objective. Used as the bound: pass the best a branch could still reach.
+     */
+    synchronized boolean dominates(double mass, double dv, double cost)
+    {
+        for (ShipDesign d : designs)
+        {
+            if (d.wetMass <= mass && d.deltaV >= dv && d.cost <= cost)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the design unless it is dominated, dropping whatever it dominates. Exact ties are
+     * settled by DesignSearch.RANKING, so the front doesn't depend on which thread got there first.
+     */
+    synchronized boolean offer(ShipDesign candidate)
+    {
+        for (ShipDesign d : designs)
+        {
+            if (covers(d, candidate) && !(ties(d, candidate) && DesignSearch.RANKING.compare(candidate, d) < 0))
+            {
+                return false;
+            }
+        }
+        designs.removeIf(d -> covers(candidate, d));
+        designs.add(candidate);
+        return true;
+    }
+
+    private static boolean covers(ShipDesign a, ShipDesign b)
+    {
+        return a.wetMass <= b.wetMass && a.deltaV >= b.deltaV && a.cost <= b.cost;
+    }
+
+    private static boolean ties(ShipDesign a, ShipDesign b)
+    {
+        return a.wetMass == b.wetMass && a.deltaV == b.deltaV && a.cost == b.cost;
+    }
+
+    synchronized List<ShipDesign> snapshot()
+    {
+        return new ArrayList<>(designs);
+    }
+}
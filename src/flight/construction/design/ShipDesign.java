@@ -0,0 +1,66 @@
+package flight.construction.design;
+
+import flight.Ship;
+import flight.construction.parts.ContainerPart;
+import flight.construction.parts.TankDefinition;
+import flight.construction.parts.propulsion.EngineDefinition;
+
+/**
+ * One candidate from a DesignSearch: a cluster of identical engines fed by a stack of
+ * identical tanks, plus the payload. All figures assume full tanks.
+ */
+public class ShipDesign
+{
+    public final EngineDefinition engine;
+    public final int engineCount;
+    public final TankDefinition tank;
+    public final int tankCount;
+
+    public final double payloadMass;     // kg
+    public final double wetMass;         // kg, payload + parts + full tanks
+    public final double burnoutMass;     // kg, once the usable propellant is gone
+    public final double deltaV;          // m/s
+    public final double thrustToWeight; // at ignition, in standard g
+    public final double cost;
+
+    ShipDesign(EngineDefinition engine, int engineCount, TankDefinition tank, int tankCount, double payloadMass,
+               double wetMass, double burnoutMass, double deltaV, double thrustToWeight, double cost)
+    {
+        this.engine = engine;
+        this.engineCount = engineCount;
+        this.tank = tank;
+        this.tankCount = tankCount;
+        this.payloadMass = payloadMass;
+        this.wetMass = wetMass;
+        this.burnoutMass = burnoutMass;
+        this.deltaV = deltaV;
+        this.thrustToWeight = thrustToWeight;
+        this.cost = cost;
+    }
+
+    /**
+     * Fits this design's tanks (filled) and engines to a ship, the same layout Main builds by hand.
+     * The payload is not added.
+     */
+    public void outfit(Ship ship)
+    {
+        ship.newSection("tank", 0, tank.getSocketName(), "service");
+        for (int i = 0; i < tankCount; i++)
+        {
+            ContainerPart part = tank.create();
+            part.fillAll();
+            ship.addPartBasedOnSockets(part);
+        }
+        for (int i = 0; i < engineCount; i++)
+        {
+            ship.addEngine(engine.create());
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d x %s + %d x %s: %.0f kg, %.0f m/s, TWR %.2f, cost %.1f",
+                engineCount, engine.getName(), tankCount, tank.getName(), wetMass, deltaV, thrustToWeight, cost);
+    }
+}
@@ -1,21 +1,98 @@
 package flight.construction.parts;
 
-import economy.resource.ResourceContainer;
-import economy.resource.ResourceDefinition;
 import economy.resource.ResourceDatabase;
+import economy.resource.ResourceStore;
+import flight.construction.MassNode;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-
-public class ContainerPart extends Part
+/**
+ * A tank. What it holds and how much of each comes from its TankDefinition, shared by every tank
+ * of the type; the tank itself only carries its fill levels, one per definition slot.
+ *
+ * Level changes are pushed straight into the mass node of the section the tank is attached to.
+ */
+public class ContainerPart extends Part implements ResourceStore
 {
-    private ArrayList<ResourceContainer> containers = new ArrayList<>();
-    private HashMap<String, ResourceContainer> resourceMap = new HashMap<String, ResourceContainer>();
+    private final double[] levels; // kg, by definition slot
+    private MassNode parent;       // section node while attached
+
+    /**
+     * An empty tank of the given type.
+     */
+    public ContainerPart(TankDefinition definition)
+    {
+        super(definition);
+        this.levels = new double[definition.size()];
+    }
+
+    // copy: shares the definition, copies the fill levels
+    private ContainerPart(ContainerPart source)
+    {
+        super(source.getDefinition());
+        this.levels = source.levels.clone();
+    }
+
+    public TankDefinition getTankDefinition()
+    {
+        return (TankDefinition) getDefinition();
+    }
+
+    // -----
+    // slots
+    // -----
+    @Override
+    public int size()
+    {
+        return levels.length;
+    }
+
+    @Override
+    public int getResource(int slot)
+    {
+        return getTankDefinition().getResource(slot);
+    }
+
+    @Override
+    public double getCapacity(int slot)
+    {
+        return getTankDefinition().getCapacity(slot);
+    }
+
+    @Override
+    public double getLevel(int slot)
+    {
+        return levels[slot];
+    }
+
+    @Override
+    public void setLevel(int slot, double massKg)
+    {
+        double level = Math.max(0.0, Math.min(getCapacity(slot), massKg));
+        double delta = level - levels[slot];
+        if (delta == 0)
+        {
+            return;
+        }
+        levels[slot] = level;
+        if (parent != null)
+        {
+            parent.resourceMassChanged(getResource(slot), delta);
+        }
+    }
 
-    public ContainerPart(double dryMass)
+    /**
+     * The slot holding an interned resource id, or -1.
+     */
+    public int slotOf(int resource)
     {
-        super("tank_", dryMass, "tank"); // change this later!
+        TankDefinition definition = getTankDefinition();
+        for (int k = 0; k < levels.length; k++)
+        {
+            if (definition.getResource(k) == resource)
+            {
+                return k;
+            }
+        }
+        return -1;
     }
 
     // -----------------------------------------------------
@@ -23,12 +100,13 @@ public class ContainerPart extends Part
     // -----------------------------------------------------
     public double getResourceMass(String resourceId)
     {
-        if (resourceMap.containsKey(resourceId))
-        {
-            return resourceMap.get(resourceId).getCurrentMass();
-        }
+        return getResourceMass(ResourceDatabase.indexOf(resourceId));
+    }
 
-        return 0.0;
+    public double getResourceMass(int resource)
+    {
+        int slot = slotOf(resource);
+        return slot < 0 ? 0.0 : levels[slot];
     }
 
     // -----------------------------------------------------
@@ -36,14 +114,12 @@ public class ContainerPart extends Part
     // -----------------------------------------------------
     public double getStoredMass()
     {
-        double total = 0.0;
-
-        for (ResourceContainer c : containers)
+        double stored = 0;
+        for (double level : levels)
         {
-            total += c.getCurrentMass();
+            stored += level;
         }
-
-        return total;
+        return stored;
     }
 
     // -----------------------------------------------------
@@ -52,28 +128,56 @@ public class ContainerPart extends Part
     @Override
     public double getMass()
     {
-        return super.getMass() + getStoredMass();
+        return getDryMass() + getStoredMass();
+    }
+
+    @Override
+    public void attachMass(MassNode parent)
+    {
+        this.parent = parent;
+        push(parent, 1);
     }
 
-    public ArrayList<ResourceContainer> getContainers()
+    @Override
+    public void detachMass(MassNode parent)
     {
-        return containers;
+        push(parent, -1);
+        this.parent = null;
     }
-    public void addContainer(ResourceContainer rc)
+
+    private void push(MassNode to, double sign)
     {
-        containers.add(rc);
-        resourceMap.put(rc.getResourceID(), rc);
+        to.addDryMass(sign * getDryMass());
+        for (int k = 0; k < levels.length; k++)
+        {
+            to.resourceMassChanged(getResource(k), sign * levels[k]);
+        }
     }
 
     public boolean hasResource(String resourceId)
     {
-        return resourceMap.containsKey(resourceId);
+        return slotOf(ResourceDatabase.indexOf(resourceId)) >= 0;
     }
+
     public void fillAll()
     {
-        for (ResourceContainer c : containers)
+        for (int k = 0; k < levels.length; k++)
         {
-            c.add(c.getMaxMass());
+            setLevel(k, getCapacity(k));
         }
     }
+
+    public void setFillFraction(double fraction)
+    {
+        for (int k = 0; k < levels.length; k++)
+        {
+            setLevel(k, getCapacity(k) * fraction);
+        }
+    }
+
+    @Override
+    public ContainerPart clonePart()
+    {
+        return new ContainerPart(this);
+    }
 }
@@ -1,13 +1,12 @@
 package flight.construction.parts;
 
 import flight.construction.IMass;
+import flight.construction.MassNode;
 
 public class Part implements IMass
 {
 
-    private String name;
-    private double mass;
-    private String socketName;
+    private final PartDefinition definition; // shared, see PartDefinition
 
     /**
      * Creates a part
@@ -18,28 +17,55 @@ public class Part implements IMass
      */
     public Part(String name, double dryMass, String socketName)
     {
-        this.name = name;
-        this.mass = dryMass;
-        this.socketName = socketName;
+        this(new PartDefinition(name, dryMass, socketName));
+    }
+
+    public Part(PartDefinition definition)
+    {
+        this.definition = definition;
+    }
+
+    public PartDefinition getDefinition()
+    {
+        return definition;
     }
 
     public String getName()
     {
-        return name;
+        return definition.getName();
     }
     public String getSocketName()
     {
-        return socketName;
+        return definition.getSocketName();
     }
     @Override
     public double getMass()
     {
-        return this.mass;
+        return definition.getDryMass();
+    }
+
+    public double getDryMass()
+    {
+        return definition.getDryMass();
+    }
+
+    /**
+     * Adds this part's mass into a node of the ship's mass tree. Tanks also keep the node so
+     * later fills and drains keep flowing up.
+     */
+    public void attachMass(MassNode parent)
+    {
+        parent.addDryMass(getDryMass());
+    }
+
+    public void detachMass(MassNode parent)
+    {
+        parent.addDryMass(-getDryMass());
     }
 
     public Part clonePart()
     {
-        return new Part(this.name, this.mass, this.socketName);
+        return new Part(definition);
     }
 
 }
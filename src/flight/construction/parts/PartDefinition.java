@@ -0,0 +1,51 @@
+package flight.construction.parts;
+
+/**
+ * Immutable description of a part type, shared by every part built from it.
+ * Parts keep only their per-instance state and point back here for the rest.
+ */
+public class PartDefinition
+{
+    private final String name;
+    private final double dryMass;
+    private final String socketName;
+    private final double cost;
+
+    public PartDefinition(String name, double dryMass, String socketName)
+    {
+        this(name, dryMass, socketName, 0);
+    }
+
+    public PartDefinition(String name, double dryMass, String socketName, double cost)
+    {
+        this.name = name;
+        this.dryMass = dryMass;
+        this.socketName = socketName;
+        this.cost = cost;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public double getDryMass()
+    {
+        return dryMass;
+    }
+
+    public String getSocketName()
+    {
+        return socketName;
+    }
+
+    public double getCost()
+    {
+        return cost;
+    }
+
+    public Part create()
+    {
+        return new Part(this);
+    }
+}
@@ -0,0 +1,90 @@
+package flight.construction.parts;
+
+import flight.construction.parts.propulsion.FuelMixture;
+
+/**
+ * Immutable tank type: dry mass plus the capacity of each resource it holds.
+ * Tanks built from it start empty.
+ */
+public class TankDefinition extends PartDefinition
+{
+    private final int[] resources;      // interned resource ids
+    private final double[] capacities;  // kg, parallel to resources
+
+    public TankDefinition(String name, double dryMass, String socketName, int[] resources, double[] capacities)
+    {
+        this(name, dryMass, socketName, resources, capacities, 0);
+    }
+
+    public TankDefinition(String name, double dryMass, String socketName, int[] resources, double[] capacities, double cost)
+    {
+        super(name, dryMass, socketName, cost);
+        if (resources.length != capacities.length)
+        {
+            throw new IllegalArgumentException("Tank " + name + ": " + resources.length + " resources but " + capacities.length + " capacities");
+        }
+        this.resources = resources.clone();
+        this.capacities = capacities.clone();
+    }
+
+    /**
+     * A tank sized to carry propellant kg of the given mixture, split by its mass fractions.
+     */
+    public static TankDefinition forMixture(String name, double dryMass, String socketName, FuelMixture mixture, double propellant, double cost)
+    {
+        int[] resources = new int[mixture.size()];
+        double[] capacities = new double[mixture.size()];
+        for (int k = 0; k < mixture.size(); k++)
+        {
+            resources[k] = mixture.getResource(k);
+            capacities[k] = propellant * mixture.getFraction(k);
+        }
+        return new TankDefinition(name, dryMass, socketName, resources, capacities, cost);
+    }
+
+    public int size()
+    {
+        return resources.length;
+    }
+
+    public int getResource(int k)
+    {
+        return resources[k];
+    }
+
+    public double getCapacity(int k)
+    {
+        return capacities[k];
+    }
+
+    /**
+     * Capacity for an interned resource id, 0 if this tank doesn't hold it.
+     */
+    public double getCapacityOf(int resource)
+    {
+        for (int k = 0; k < resources.length; k++)
+        {
+            if (resources[k] == resource)
+            {
+                return capacities[k];
+            }
+        }
+        return 0.0;
+    }
+
+    public double getTotalCapacity()
+    {
+        double total = 0;
+        for (double c : capacities)
+        {
+            total += c;
+        }
+        return total;
+    }
+
+    @Override
+    public ContainerPart create()
+    {
+        return new ContainerPart(this);
+    }
+}
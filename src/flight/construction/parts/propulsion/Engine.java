@@ -1,50 +1,47 @@
 package flight.construction.parts.propulsion;
 
-import economy.resource.ResourceContainer;
 import flight.construction.parts.Part;
 
 public class Engine extends Part
 {
-    private String name;
-
-    private FuelMixture mixture;
-
-    private double thrustVacuum;   // kN
-    private double ispVacuum;      // seconds
-
+    // per-engine state only; name, mass, thrust, Isp and mixture live in the shared definition
     private boolean enabled = true;
     private boolean failed = false;
 
     // engines may throttle 0–1
     private double throttle = 1.0;
 
+    private Runnable changeListener; // the engine block, so it can recompute Isp and mixture
+
     public Engine(String name, double mass, FuelMixture mixture, double thrustVacuum, double ispVacuum)
     {
-        super(name, mass, "engine_generic");
-        this.name = name;
-        this.mixture = mixture;
-        this.thrustVacuum = thrustVacuum;
-        this.ispVacuum = ispVacuum;
+        this(new EngineDefinition(name, mass, mixture, thrustVacuum, ispVacuum));
     }
 
-    public String getName()
+    public Engine(EngineDefinition definition)
     {
-        return name;
+        super(definition);
+    }
+
+    @Override
+    public EngineDefinition getDefinition()
+    {
+        return (EngineDefinition) super.getDefinition();
     }
 
     public FuelMixture getMixture()
     {
-        return mixture;
+        return getDefinition().getMixture();
     }
 
     public double getThrustVacuum()
     {
-        return thrustVacuum;
+        return getDefinition().getThrustVacuum();
     }
 
     public double getIspVacuum()
     {
-        return ispVacuum;
+        return getDefinition().getIspVacuum();
     }
 
     public void setThrottle(double t)
@@ -65,6 +62,7 @@ public class Engine extends Part
     public void setEnabled(boolean enabled)
     {
         this.enabled = enabled;
+        changed();
     }
 
     public boolean hasFailed()
@@ -75,6 +73,30 @@ public class Engine extends Part
     public void setFailed(boolean failed)
     {
         this.failed = failed;
+        changed();
+    }
+
+    public void setChangeListener(Runnable listener)
+    {
+        this.changeListener = listener;
+    }
+
+    private void changed()
+    {
+        if (changeListener != null)
+        {
+            changeListener.run();
+        }
+    }
+
+    @Override
+    public Engine clonePart()
+    {
+        Engine copy = new Engine(getDefinition());
+        copy.enabled = enabled;
+        copy.failed = failed;
+        copy.throttle = throttle;
+        return copy;
     }
 
     // ----------------------------------------------------------
@@ -88,6 +110,6 @@ public class Engine extends Part
         {
             return 0.0;
         }
-        return thrustVacuum * throttle;
+        return getThrustVacuum() * throttle;
     }
 }
@@ -0,0 +1,48 @@
+package flight.construction.parts.propulsion;
+
+import flight.construction.parts.PartDefinition;
+
+/**
+ * Immutable engine type. The mixture is shared by every engine built from this definition
+ * and must not be changed once the definition exists.
+ */
+public class EngineDefinition extends PartDefinition
+{
+    private final FuelMixture mixture;
+    private final double thrustVacuum;   // kN
+    private final double ispVacuum;      // seconds
+
+    public EngineDefinition(String name, double dryMass, FuelMixture mixture, double thrustVacuum, double ispVacuum)
+    {
+        this(name, dryMass, mixture, thrustVacuum, ispVacuum, 0);
+    }
+
+    public EngineDefinition(String name, double dryMass, FuelMixture mixture, double thrustVacuum, double ispVacuum, double cost)
+    {
+        super(name, dryMass, "engine_generic", cost);
+        this.mixture = mixture;
+        this.thrustVacuum = thrustVacuum;
+        this.ispVacuum = ispVacuum;
+    }
+
+    public FuelMixture getMixture()
+    {
+        return mixture;
+    }
+
+    public double getThrustVacuum()
+    {
+        return thrustVacuum;
+    }
+
+    public double getIspVacuum()
+    {
+        return ispVacuum;
+    }
+
+    @Override
+    public Engine create()
+    {
+        return new Engine(this);
+    }
+}
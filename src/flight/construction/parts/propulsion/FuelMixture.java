@@ -1,42 +1,105 @@
 package flight.construction.parts.propulsion;
 
+import economy.resource.ResourceDatabase;
+
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Mass fractions of the resources an engine burns.
+ * Stored as parallel arrays of interned resource indices and fractions, in the order the
+ * components were added; the String methods are shims over them.
+ */
 public class FuelMixture
 {
-    private Map<String, Double> components = new LinkedHashMap<>();
+    private int[] resources = new int[0];
+    private double[] fractions = new double[0];
 
     public Map<String, Double> getComponents()
     {
+        Map<String, Double> components = new LinkedHashMap<>();
+        for (int k = 0; k < resources.length; k++)
+        {
+            components.put(ResourceDatabase.nameOf(resources[k]), fractions[k]);
+        }
         return components;
     }
 
     // Adds a fuel component; ratio is mass fraction (un-normalized)
     public void add(String resource, double ratio)
     {
-        components.merge(resource, ratio, Double::sum);
+        add(ResourceDatabase.intern(resource), ratio);
+    }
+
+    public void add(int resource, double ratio)
+    {
+        for (int k = 0; k < resources.length; k++)
+        {
+            if (resources[k] == resource)
+            {
+                fractions[k] += ratio;
+                return;
+            }
+        }
+        resources = Arrays.copyOf(resources, resources.length + 1);
+        fractions = Arrays.copyOf(fractions, fractions.length + 1);
+        resources[resources.length - 1] = resource;
+        fractions[fractions.length - 1] = ratio;
     }
 
     // Normalize so total fraction = 1.0
     public void normalize()
     {
-        double total = components.values().stream().mapToDouble(Double::doubleValue).sum();
+        double total = 0;
+        for (double f : fractions)
+        {
+            total += f;
+        }
         if (total > 0)
         {
-            components.replaceAll((r, v) -> v / total);
+            for (int k = 0; k < fractions.length; k++)
+            {
+                fractions[k] /= total;
+            }
         }
     }
 
+    // --------------------
+    // indexed access
+    // --------------------
+    public int size()
+    {
+        return resources.length;
+    }
+
+    public boolean isEmpty()
+    {
+        return resources.length == 0;
+    }
+
+    /**
+     * Interned resource index of the k-th component.
+     */
+    public int getResource(int k)
+    {
+        return resources[k];
+    }
+
+    public double getFraction(int k)
+    {
+        return fractions[k];
+    }
+
     // Convenience: get as a list of components for iteration
     public List<Component> getComponentList()
     {
         List<Component> list = new ArrayList<>();
-        for (Map.Entry<String, Double> e : components.entrySet())
+        for (int k = 0; k < resources.length; k++)
         {
-            list.add(new Component(e.getKey(), e.getValue()));
+            list.add(new Component(ResourceDatabase.nameOf(resources[k]), fractions[k]));
         }
         return list;
     }
@@ -1,7 +1,7 @@
 package flight.construction.sections;
 
 import flight.construction.IMass;
-import flight.construction.parts.ContainerPart;
+import flight.construction.MassNode;
 import flight.construction.parts.Part;
 import flight.construction.superstructures.PayloadShipModule;
 import flight.construction.superstructures.ShipModule;
@@ -16,12 +16,14 @@ public class Section implements IMass
     protected String socketName;
     private ShipModule module;
     private ArrayList<Part> parts = new ArrayList<>();
+    private final MassNode massNode = new MassNode(); // structure + parts, see MassNode
 
     public Section(String name, double mass, String socketName)
     {
         this.name = name;
         this.mass = mass;
         this.socketName = socketName;
+        massNode.addDryMass(mass);
     }
 
     public String getName()
@@ -29,26 +31,33 @@ public class Section implements IMass
         return name;
     }
 
+    /**
+     * Structural mass plus every part in the section, including tank contents.
+     */
     @Override
     public double getMass()
     {
-        double sum = 0;
-        for (Part p : parts)
-        {
-            sum += p.getMass();
-            if (p instanceof ContainerPart)
-            {
-                ContainerPart tank = (ContainerPart) p;
-                mass += tank.getStoredMass();
-            }
-        }
-        return sum;
+        return massNode.getMass();
+    }
+
+    /**
+     * The section's own structure, without its parts.
+     */
+    public double getStructuralMass()
+    {
+        return mass;
     }
+
+    public MassNode getMassNode()
+    {
+        return massNode;
+    }
+
     public void addPart(Part p)
     {
         if (p.getSocketName().equals(this.socketName))
         {
-            parts.add(p);
+            insertPart(p);
         }
         else
         {
@@ -61,7 +70,16 @@ public class Section implements IMass
     }
     public void removePart(Part p)
     {
-        parts.remove(p);
+        if (parts.remove(p))
+        {
+            p.detachMass(massNode);
+        }
+    }
+
+    private void insertPart(Part p)
+    {
+        parts.add(p);
+        p.attachMass(massNode);
     }
 
     public ShipModule getModule()
@@ -73,6 +91,24 @@ public class Section implements IMass
         return new Section(this.name, this.mass, this.socketName);
     }
 
+    /**
+     * Clone of this section including clones of all its parts.
+     */
+    public Section copySection()
+    {
+        Section copy = cloneSection();
+        for (Part p : parts)
+        {
+            copy.insertPart(p.clonePart());
+        }
+        return copy;
+    }
+
+    public String getSocketName()
+    {
+        return socketName;
+    }
+
     public void setModule(ShipModule payloadModule)
     {
         this.module = payloadModule;
@@ -0,0 +1,61 @@
+package flight.construction.staging;
+
+import flight.construction.parts.propulsion.Engine;
+import flight.construction.sections.Section;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sections and engines that fire together and are jettisoned together once burnt out.
+ * The sections and engines stay in their ship modules; a stage only groups them.
+ */
+public class Stage
+{
+    private final String name;
+    private final List<Section> sections = new ArrayList<>();
+    private final List<Engine> engines = new ArrayList<>();
+    private final Runnable onChange;
+
+    Stage(String name, Runnable onChange)
+    {
+        this.name = name;
+        this.onChange = onChange;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public Stage addSection(Section section)
+    {
+        sections.add(section);
+        onChange.run();
+        return this;
+    }
+
+    public Stage addEngine(Engine engine)
+    {
+        engines.add(engine);
+        onChange.run();
+        return this;
+    }
+
+    public List<Section> getSections()
+    {
+        return Collections.unmodifiableList(sections);
+    }
+
+    public List<Engine> getEngines()
+    {
+        return Collections.unmodifiableList(engines);
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
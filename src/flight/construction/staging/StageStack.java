@@ -0,0 +1,96 @@
+package flight.construction.staging;
+
+import util.CONST;
+
+import java.util.Arrays;
+
+/**
+ * Δv of a stack of stages, from primitive per-stage figures.
+ *
+ * Stage 0 fires first and the last stage is never dropped. Each stage has its own dry mass
+ * (jettisoned with it, including any propellant its engines can't burn), usable propellant and
+ * Isp. One backward pass sums the mass above each stage and a forward pass applies the rocket
+ * equation, so evaluating is O(stages) and allocates nothing; usable on its own inside search
+ * loops as well as behind Staging.
+ */
+public class StageStack
+{
+    private int count;
+    private double[] dryMass = new double[0];       // kg, jettisoned with the stage
+    private double[] propellant = new double[0];    // kg, burnable by the stage's engines
+    private double[] isp = new double[0];           // s
+
+    // cached results
+    private boolean dirty = true;
+    private double[] ignitionMass = new double[0];  // whole stack from this stage up, at ignition
+    private double[] stageDeltaV = new double[0];
+    private double totalDeltaV;
+
+    public void setStageCount(int n)
+    {
+        if (n > dryMass.length)
+        {
+            dryMass = Arrays.copyOf(dryMass, n);
+            propellant = Arrays.copyOf(propellant, n);
+            isp = Arrays.copyOf(isp, n);
+            ignitionMass = new double[n];
+            stageDeltaV = new double[n];
+        }
+        count = n;
+        dirty = true;
+    }
+
+    public int getStageCount()
+    {
+        return count;
+    }
+
+    public void setStage(int i, double dryMass, double propellant, double isp)
+    {
+        this.dryMass[i] = dryMass;
+        this.propellant[i] = propellant;
+        this.isp[i] = isp;
+        dirty = true;
+    }
+
+    public double getTotalDeltaV()
+    {
+        evaluate();
+        return totalDeltaV;
+    }
+
+    public double getStageDeltaV(int i)
+    {
+        evaluate();
+        return stageDeltaV[i];
+    }
+
+    public double getIgnitionMass(int i)
+    {
+        evaluate();
+        return ignitionMass[i];
+    }
+
+    private void evaluate()
+    {
+        if (!dirty) return;
+
+        double above = 0;
+        for (int i = count - 1; i >= 0; i--)
+        {
+            above += dryMass[i] + propellant[i];
+            ignitionMass[i] = above;
+        }
+
+        totalDeltaV = 0;
+        for (int i = 0; i < count; i++)
+        {
+            double m0 = ignitionMass[i];
+            double m1 = m0 - propellant[i];
+            double dv = propellant[i] > 0 && isp[i] > 0 && m1 > 0 ? isp[i] * CONST.standardG * Math.log(m0 / m1) : 0.0;
+            stageDeltaV[i] = dv;
+            totalDeltaV += dv;
+        }
+        dirty = false;
+    }
+}
@@ -0,0 +1,238 @@
+package flight.construction.staging;
+
+import flight.construction.MassNode;
+import flight.construction.parts.propulsion.Engine;
+import flight.construction.parts.propulsion.FuelMixture;
+import flight.construction.sections.Section;
+import flight.construction.superstructures.EngineShipModule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A ship's drop stages, in firing order, on top of which sits the core: every section and
+ * engine not in a stage, which is never jettisoned.
+ *
+ * Per-stage masses are read off the ship's mass tree and handed to a StageStack; they are only
+ * re-read when the tree's version moves, and each stage's Isp and mixture only when the stages
+ * change or an engine does. A stage only counts the sections and engines still fitted to the
+ * ship; one taken off since it was staged weighs nothing.
+ *
+ * A stage with no engines of its own is a drop tank: its propellant is burnt by the next
+ * engines up, those of the next stage that has any, or else the core's.
+ */
+public class Staging
+{
+    private final MassNode root;
+    private final EngineShipModule engineBlock;
+    private final List<Stage> stages = new ArrayList<>();
+    private final StageStack stack = new StageStack();
+    private final Runnable onChange; // told when stages are added, removed or regrouped
+
+    private boolean structureDirty = true;
+    private long version = -1;
+
+    // per stage, core last; rebuilt with the structure
+    private double[] isp = new double[0];
+    private FuelMixture[] mixtures = new FuelMixture[0];
+    private Section[][] fittedSections = new Section[0][];
+    private Engine[][] fittedEngines = new Engine[0][];
+
+    public Staging(MassNode root, EngineShipModule engineBlock, Runnable onChange)
+    {
+        this.root = root;
+        this.engineBlock = engineBlock;
+        this.onChange = onChange;
+    }
+
+    public Stage addStage(String name)
+    {
+        Stage stage = new Stage(name, this::stagesChanged);
+        stages.add(stage);
+        stagesChanged();
+        return stage;
+    }
+
+    public List<Stage> getStages()
+    {
+        return Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * Takes the first stage off the list. Removing its parts from the ship is up to the caller.
+     */
+    public Stage removeFirst()
+    {
+        Stage stage = stages.remove(0);
+        stagesChanged();
+        return stage;
+    }
+
+    public void structureChanged()
+    {
+        structureDirty = true;
+    }
+
+    private void stagesChanged()
+    {
+        structureChanged();
+        onChange.run();
+    }
+
+    /**
+     * Current per-stage figures; the drop stages in order, then the core.
+     */
+    public StageStack evaluate()
+    {
+        if (structureDirty)
+        {
+            rebuild();
+        }
+        if (version != root.getVersion())
+        {
+            refill();
+        }
+        return stack;
+    }
+
+    // -----
+    // build
+    // -----
+    private void rebuild()
+    {
+        int n = stages.size() + 1;
+        isp = new double[n];
+        mixtures = new FuelMixture[n];
+        fittedSections = new Section[n - 1][];
+        fittedEngines = new Engine[n - 1][];
+
+        List<Engine> core = new ArrayList<>(engineBlock.getActiveEngines());
+        List<Engine> unclaimed = new ArrayList<>(engineBlock.getAllEngines());
+        boolean[] engineless = new boolean[n];
+        for (int i = 0; i < stages.size(); i++)
+        {
+            Stage stage = stages.get(i);
+            List<Section> sections = new ArrayList<>();
+            for (Section s : stage.getSections())
+            {
+                if (s.getModule() != null && s.getModule().getSections().contains(s) && !sections.contains(s))
+                {
+                    sections.add(s);
+                }
+            }
+            fittedSections[i] = sections.toArray(new Section[0]);
+            List<Engine> mounted = new ArrayList<>();
+            for (Engine e : stage.getEngines())
+            {
+                if (unclaimed.remove(e))
+                {
+                    mounted.add(e); // its mass counts whether it's on or not
+                }
+            }
+            fittedEngines[i] = mounted.toArray(new Engine[0]);
+
+            List<Engine> engines = new ArrayList<>();
+            for (Engine e : stage.getEngines())
+            {
+                if (core.remove(e))
+                {
+                    engines.add(e); // only engines still fitted and enabled fire
+                }
+            }
+            engineless[i] = engines.isEmpty();
+            isp[i] = EngineShipModule.combinedSpecificImpulse(engines);
+            mixtures[i] = EngineShipModule.combinedMixture(engines);
+        }
+        isp[n - 1] = EngineShipModule.combinedSpecificImpulse(core);
+        mixtures[n - 1] = EngineShipModule.combinedMixture(core);
+
+        // drop tanks feed the next engines up; top down, so a run of them all reaches the same engines
+        for (int i = n - 2; i >= 0; i--)
+        {
+            if (engineless[i])
+            {
+                isp[i] = isp[i + 1];
+                mixtures[i] = mixtures[i + 1];
+            }
+        }
+
+        stack.setStageCount(n);
+        structureDirty = false;
+        version = -1;
+    }
+
+    private void refill()
+    {
+        int core = stages.size();
+        double stagedMass = 0;
+
+        for (int i = 0; i < core; i++)
+        {
+            double mass = 0;
+            for (Section s : fittedSections[i])
+            {
+                mass += s.getMass();
+            }
+            for (Engine e : fittedEngines[i])
+            {
+                mass += e.getDryMass();
+            }
+
+            double usable = usablePropellant(mixtures[i], fittedSections[i]);
+            stack.setStage(i, mass - usable, usable, isp[i]);
+            stagedMass += mass;
+        }
+
+        double coreMass = root.getMass() - stagedMass;
+        double usable = usablePropellant(mixtures[core], null);
+        stack.setStage(core, coreMass - usable, usable, isp[core]);
+
+        version = root.getVersion();
+    }
+
+    /**
+     * Burnable propellant for a mixture: limited by whichever component runs out first. Taken
+     * from one stage's sections, or, for the core (null), from the whole ship less every drop stage.
+     */
+    private double usablePropellant(FuelMixture mix, Section[] sections)
+    {
+        if (mix.isEmpty())
+        {
+            return 0.0;
+        }
+
+        double units = Double.POSITIVE_INFINITY;
+        double fractions = 0;
+        for (int k = 0; k < mix.size(); k++)
+        {
+            int resource = mix.getResource(k);
+            double available;
+            if (sections != null)
+            {
+                available = resourceMass(sections, resource);
+            }
+            else
+            {
+                available = root.getResourceMass(resource);
+                for (Section[] dropped : fittedSections)
+                {
+                    available -= resourceMass(dropped, resource);
+                }
+            }
+            units = Math.min(units, Math.max(0.0, available) / mix.getFraction(k));
+            fractions += mix.getFraction(k);
+        }
+        return units * fractions;
+    }
+
+    private static double resourceMass(Section[] sections, int resource)
+    {
+        double m = 0;
+        for (Section s : sections)
+        {
+            m += s.getMassNode().getResourceMass(resource);
+        }
+        return m;
+    }
+}
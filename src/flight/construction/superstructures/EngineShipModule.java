@@ -16,11 +16,28 @@ public class EngineShipModule extends ShipModule
 
     private EngineConfiguration activeConfig;
 
+    // combined Isp and mixture of the working engines (enabled and not failed), rebuilt when an
+    // engine is added, removed, enabled, disabled or fails
+    private boolean dirty = true;
+    private double specificImpulse;
+    private FuelMixture fuelMixture;
+    private Runnable changeListener;
+
     public void addEngine(Engine e)
     {
         allEngines.add(e);
+        e.attachMass(massNode);
+        e.setChangeListener(this::enginesChanged);
+        enginesChanged();
+    }
+    public void removeEngine(Engine e)
+    {
+        if (!allEngines.remove(e)) return;
+        activeEngines.remove(e);
+        e.detachMass(massNode);
+        e.setChangeListener(null);
+        enginesChanged();
     }
-    public void removeEngine(Engine e) { allEngines.remove(e); }
     public void addPart(Part e)
     {
         if (e instanceof Engine)
@@ -31,10 +48,29 @@ public class EngineShipModule extends ShipModule
     public void enableEngine(Engine e)
     {
         activeEngines.add(e);
+        enginesChanged();
     }
     public void disableEngine(Engine e)
     {
         activeEngines.remove(e);
+        enginesChanged();
+    }
+
+    /**
+     * Told when engines are added, removed, enabled, disabled or fail.
+     */
+    public void setChangeListener(Runnable listener)
+    {
+        this.changeListener = listener;
+    }
+
+    private void enginesChanged()
+    {
+        dirty = true;
+        if (changeListener != null)
+        {
+            changeListener.run();
+        }
     }
 
     public List<Engine> getAllEngines()
@@ -46,6 +82,23 @@ public class EngineShipModule extends ShipModule
         return activeEngines;
     }
 
+    public EngineShipModule copy()
+    {
+        EngineShipModule copy = new EngineShipModule();
+        copy.copySectionsFrom(this);
+        for (Engine e : allEngines)
+        {
+            Engine c = e.clonePart();
+            copy.addEngine(c);
+            if (activeEngines.contains(e))
+            {
+                copy.activeEngines.add(c);
+            }
+        }
+        copy.activeConfig = activeConfig;
+        return copy;
+    }
+
     public void setConfiguration(EngineConfiguration config)
     {
         this.activeConfig = config;
@@ -56,19 +109,6 @@ public class EngineShipModule extends ShipModule
         return activeConfig;
     }
 
-    // -----------------------------------------------------
-    // Mass (structural + engines)
-    // -----------------------------------------------------
-    public double getMass()
-    {
-        double m = 0;
-        for (Engine e : allEngines)
-        {
-            m += e.getMass();
-        }
-        return m;
-    }
-
     // -----------------------------------------------------
     // Engine failure handling
     // -----------------------------------------------------
@@ -91,7 +131,33 @@ public class EngineShipModule extends ShipModule
 
     public double getSpecificImpulse()
     {
-        if (activeEngines.isEmpty())
+        if (dirty) rebuild();
+        return specificImpulse;
+    }
+
+    /**
+     * Thrust-weighted, normalised mixture of the working engines.
+     * The instance is cached and shared, don't modify it.
+     */
+    public FuelMixture getFuelMixture()
+    {
+        if (dirty) rebuild();
+        return fuelMixture;
+    }
+
+    private void rebuild()
+    {
+        specificImpulse = combinedSpecificImpulse(activeEngines);
+        fuelMixture = combinedMixture(activeEngines);
+        dirty = false;
+    }
+
+    /**
+     * Thrust-weighted Isp of the working engines in a group, e.g. one stage's.
+     */
+    public static double combinedSpecificImpulse(List<Engine> engines)
+    {
+        if (engines.isEmpty())
         {
             return 0.0;
         }
@@ -99,9 +165,9 @@ public class EngineShipModule extends ShipModule
         double totalThrust = 0.0;
         double thrustOverIsp = 0.0;
 
-        for (Engine e : activeEngines)
+        for (Engine e : engines)
         {
-            if (e.hasFailed())
+            if (!e.isEnabled()) // switched off or failed
             {
                 continue;
             }
@@ -120,11 +186,14 @@ public class EngineShipModule extends ShipModule
 
         return totalThrust / thrustOverIsp;
     }
-    public FuelMixture getFuelMixture()
+    /**
+     * Thrust-weighted, normalised mixture of the working engines in a group.
+     */
+    public static FuelMixture combinedMixture(List<Engine> engines)
     {
         FuelMixture mix = new FuelMixture();
 
-        if (activeEngines.isEmpty())
+        if (engines.isEmpty())
         {
             return mix;
         }
@@ -132,9 +201,9 @@ public class EngineShipModule extends ShipModule
         double totalThrust = 0.0;
 
         // First pass: total working thrust
-        for (Engine e : activeEngines)
+        for (Engine e : engines)
         {
-            if (!e.hasFailed())
+            if (e.isEnabled())
             {
                 totalThrust += e.getThrustVacuum();
             }
@@ -146,24 +215,21 @@ public class EngineShipModule extends ShipModule
         }
 
         // Second pass: weighted mixture accumulation
-        for (Engine e : activeEngines)
+        for (Engine e : engines)
         {
-            if (e.hasFailed())
+            if (!e.isEnabled())
             {
                 continue;
             }
 
             double weight = e.getThrustVacuum() / totalThrust;
 
-            var engineMix = e.getMixture().getComponents();
+            FuelMixture engineMix = e.getMixture();
 
-            for (var entry : engineMix.entrySet())
+            for (int k = 0; k < engineMix.size(); k++)
             {
-                String resource = entry.getKey();
-                double ratio = entry.getValue();
-
                 // Weighted contribution
-                mix.add(resource, ratio * weight);
+                mix.add(engineMix.getResource(k), engineMix.getFraction(k) * weight);
             }
         }
 
@@ -1,8 +1,9 @@
 package flight.construction.superstructures;
 
+import economy.resource.ResourceDatabase;
 import flight.construction.IMass;
 import flight.construction.IResourceMass;
-import flight.construction.parts.ContainerPart;
+import flight.construction.MassNode;
 import flight.construction.parts.Part;
 import flight.construction.sections.Section;
 
@@ -12,6 +13,7 @@ public abstract class ShipModule implements IMass, IResourceMass
 {
     ArrayList<Section> sections = new ArrayList<>();
     protected String name;
+    protected final MassNode massNode = new MassNode(); // sections (and engines), see MassNode
 
     public ArrayList<Section> getSections()
     {
@@ -29,28 +31,17 @@ public abstract class ShipModule implements IMass, IResourceMass
     }
     public double getMass()
     {
-        double mass = 0;
-        for (Section s : sections)
-        {
-            mass += s.getMass();
-        }
-        return mass;
+        return massNode.getMass();
     }
 
     public double getResourceMass(String resourceID)
     {
-        double mass = 0.0;
-
-        for (Part part : this.getParts())
-        {
-            if (part instanceof ContainerPart tankPart)
-            {
-                ContainerPart tank = (ContainerPart) part;
-                mass += tank.getResourceMass(resourceID); // pass resourceID here
-            }
-        }
+        return massNode.getResourceMass(ResourceDatabase.indexOf(resourceID));
+    }
 
-        return mass;
+    public MassNode getMassNode()
+    {
+        return massNode;
     }
 
     public void addPartToSection(Part p, Section s)
@@ -68,5 +59,27 @@ public abstract class ShipModule implements IMass, IResourceMass
     public void addSection(Section section)
     {
         sections.add(section);
+        section.getMassNode().attachTo(massNode);
+    }
+
+    public void removeSection(Section section)
+    {
+        if (sections.remove(section))
+        {
+            section.getMassNode().attachTo(null);
+        }
+    }
+
+    /**
+     * Adds deep copies of another module's sections to this one.
+     */
+    public void copySectionsFrom(ShipModule source)
+    {
+        for (Section s : source.sections)
+        {
+            Section copy = s.copySection();
+            copy.setModule(this);
+            addSection(copy);
+        }
     }
 }
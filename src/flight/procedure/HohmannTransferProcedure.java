@@ -25,7 +25,7 @@ public class HohmannTransferProcedure extends DeltaVProcedure
 
     @Override
     public ArrayList<FlightStep> generateSteps(Ship s, double cumulativeTime) {
-        if (s.location != origin)
+        if (s.getLocation() != origin)
             throw new RuntimeException("Ship.Ship not at origin!");
 
         double candidateDep = cumulativeTime;
@@ -51,8 +51,6 @@ public class HohmannTransferProcedure extends DeltaVProcedure
         steps.add(new InterceptStep(destination));
         steps.add(new StateStep("orb"));
 
-        s.target = destination;
-
         System.out.println("Hohmann transfer window found");
         System.out.println("For " + origin + " to " + destination);
         System.out.println("Burning at " + ConversionHelper.secondToDay(candidateDep - cumulativeTime) + " days");
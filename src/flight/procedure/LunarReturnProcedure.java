@@ -30,7 +30,7 @@ public class LunarReturnProcedure extends DeltaVProcedure
     @Override
     public ArrayList<FlightStep> generateSteps(Ship s, double cumulativeTime)
     {
-        if(s.location != moon)
+        if(s.getLocation() != moon)
         {
             throw new RuntimeException("Ship not in orbit around the moon for lunar return!");
         }
@@ -76,8 +76,6 @@ public class LunarReturnProcedure extends DeltaVProcedure
         steps.add(new InterceptStep(planet));
         steps.add(new StateStep("orb"));
 
-        s.target = planet;
-
         System.out.println("Lunar return computed:");
         System.out.println("From moon " + moon.name + " to planet " + planet.name);
         System.out.println("Departure burn: " + dvDepart + " m/s, arrival burn: " + dvArrive + " m/s");
@@ -23,7 +23,7 @@ public class LunarTransferProcedure extends DeltaVProcedure
     @Override
     public ArrayList<FlightStep> generateSteps(Ship s, double cumulativeTime)
     {
-        if (s.location != planet)
+        if (s.getLocation() != planet)
         {
             throw new RuntimeException("Ship not in orbit around the planet for lunar transfer!");
         }
@@ -67,8 +67,6 @@ public class LunarTransferProcedure extends DeltaVProcedure
         steps.add(new InterceptStep(moon));
         steps.add(new StateStep("orb"));
 
-        s.target = moon;
-
         System.out.printf(
                 "Lunar transfer computed:%nReference: %s%s%nFrom %s to %s%nΔv Depart = %.1f m/s, Δv Arrive = %.1f m/s%nTotal Δv = %.1f m/s%nTime of Flight = %.2f days%n",
                 reference.name,
@@ -13,6 +13,11 @@ public class BurnStep extends FlightStep
         this.deltaV = deltaV;
     }
 
+    public double getDeltaV()
+    {
+        return deltaV;
+    }
+
     public double getWait()
     {
         return 0;
@@ -14,6 +14,11 @@ public class InterceptStep extends FlightStep
         this.target = target;
     }
 
+    public Celestial getTarget()
+    {
+        return target;
+    }
+
     public double getWait()
     {
         return 0;
@@ -21,6 +26,6 @@ public class InterceptStep extends FlightStep
 
     public void execute(Ship s)
     {
-        s.location = target;
+        s.setLocation(target);
     }
 }
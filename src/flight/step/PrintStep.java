@@ -13,6 +13,11 @@ public class PrintStep extends FlightStep
         this.message = message;
     }
 
+    public String getMessage()
+    {
+        return message;
+    }
+
     public double getWait()
     {
         return 0;
@@ -13,6 +13,11 @@ public class StateStep extends FlightStep
         this.state = stater;
     }
 
+    public String getState()
+    {
+        return state;
+    }
+
     public double getWait()
     {
         return 0;
@@ -101,8 +101,6 @@ public class ShipCreatorWindow extends JFrame
         Ship newShip = new Ship(name, body, org);
         newShip.setName(name);
 
-        org.addShip(newShip);
-
         JOptionPane.showMessageDialog(this, "Ship '" + name + "' created under " + org.getName() + " around " + body.name + "!");
         dispose();
     }
@@ -2,9 +2,13 @@ package gui;
 
 import flight.*;
 import simulation.*;
+import util.schedule.Subsystem;
+import util.schedule.SubsystemScheduler;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class ShipInfoWindow extends JFrame
 {
@@ -21,7 +25,10 @@ public class ShipInfoWindow extends JFrame
     private JComboBox<String> flightPlanSelector;
     private JButton applyPlanButton;
 
-    public ShipInfoWindow(Universe universe, Ship initialLegacyShip)
+    /**
+     * @param scheduler the game loop's scheduler, which refreshes the window on the EDT between ticks
+     */
+    public ShipInfoWindow(Universe universe, Ship initialLegacyShip, SubsystemScheduler scheduler)
     {
         this.universe = universe;
         this.currentLegacyShip = initialLegacyShip;
@@ -90,9 +97,17 @@ public class ShipInfoWindow extends JFrame
 
         add(planPanel, BorderLayout.NORTH);
 
-        // Refresh info every second
-        Timer t = new Timer(1000, e -> refreshInfo());
-        t.start();
+        // Refresh info every second, until the window is closed
+        Subsystem refresh = scheduler.every("ship info", Subsystem.Clock.WALL, 1.0, wallSeconds -> refreshInfo());
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        addWindowListener(new WindowAdapter()
+        {
+            @Override
+            public void windowClosed(WindowEvent e)
+            {
+                scheduler.remove(refresh);
+            }
+        });
 
         setVisible(true);
     }
@@ -156,7 +171,7 @@ public class ShipInfoWindow extends JFrame
         if (currentLegacyShip == null)
             return;
 
-        switch (currentLegacyShip.taskState)
+        switch (currentLegacyShip.getTaskState())
         {
             case OFF -> offButton.setSelected(true);
             case MANUAL -> manualButton.setSelected(true);
@@ -183,7 +198,7 @@ public class ShipInfoWindow extends JFrame
 
         nameLabel.setText("Name: " + currentLegacyShip.getName());
         statusLabel.setText("Status: " + currentLegacyShip.getShortStatus());
-        locationLabel.setText("Location: " + currentLegacyShip.location.name);
+        locationLabel.setText("Location: " + currentLegacyShip.getLocation().name);
         procedureLabel.setText("Procedure: " + currentLegacyShip.getProcedureStatus());
         deltavLabel.setText("Delta-V: " + currentLegacyShip.getDeltaV());
 
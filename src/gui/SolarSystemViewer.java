@@ -1,6 +1,8 @@
 package gui;
 
 import simulation.Celestial;
+import simulation.SmallBodyTable;
+import simulation.SolarSystem;
 import simulation.Universe;
 import util.Vector2;
 
@@ -23,6 +25,7 @@ public class SolarSystemViewer {
 
     public SolarSystemViewer(Universe universe) {
         this.universe = universe;
+        this.simulationTime = universe.time;
         panel = new SimulationPanel();
     }
 
@@ -33,8 +36,8 @@ public class SolarSystemViewer {
     public void followBody(Celestial body) {
         followed = body;
         if (body != null) {
-            cameraX = -body.getPositionAtTime(universe.time).x;
-            cameraY = -body.getPositionAtTime(universe.time).y;
+            cameraX = -body.getPositionAtTime(simulationTime).x;
+            cameraY = -body.getPositionAtTime(simulationTime).y;
         }
     }
 
@@ -78,8 +81,8 @@ public class SolarSystemViewer {
                             // Double-clicked a body -> follow it
                             followed = clicked;
                             selected = clicked;
-                            cameraX = -clicked.getPositionAtTime(universe.time).x;
-                            cameraY = -clicked.getPositionAtTime(universe.time).y;
+                            cameraX = -clicked.getPositionAtTime(simulationTime).x;
+                            cameraY = -clicked.getPositionAtTime(simulationTime).y;
                         }
                         else
                         {
@@ -124,8 +127,8 @@ public class SolarSystemViewer {
 
             // Keep camera centered on followed body
             if (followed != null) {
-                cameraX = -followed.getPositionAtTime(universe.time).x;
-                cameraY = -followed.getPositionAtTime(universe.time).y;
+                cameraX = -followed.getPositionAtTime(simulationTime).x;
+                cameraY = -followed.getPositionAtTime(simulationTime).y;
             }
 
             int cx = getWidth() / 2;
@@ -137,6 +140,11 @@ public class SolarSystemViewer {
                 if (body.parent != null) drawOrbit(g2d, body, cx, cy);
             }
 
+            // Small bodies: dots only, no orbits or labels
+            for (SolarSystem system : universe.getSolarSystems()) {
+                drawSmallBodies(g2d, system.getSmallBodies(), cx, cy);
+            }
+
             // Draw bodies
             for (Celestial body : universe.getAllBodies()) {
                 drawBody(g2d, body, cx, cy);
@@ -150,7 +158,6 @@ public class SolarSystemViewer {
 
             // Draw simulation time in years
             g.setColor(Color.WHITE);
-            simulationTime = universe.time;
             g.drawString(String.format("Time: %.2f years", simulationTime / (365.25*24*3600)), 10, 20);
         }
 
@@ -166,7 +173,7 @@ public class SolarSystemViewer {
                 g.setColor(Color.GREEN);
             }
 
-            Vector2 parentPos = body.parent.getPositionAtTime(universe.time);
+            Vector2 parentPos = body.parent.getPositionAtTime(simulationTime);
             double cosW = Math.cos(body.orbitalElements.argPeriapsis);
             double sinW = Math.sin(body.orbitalElements.argPeriapsis);
 
@@ -195,8 +202,8 @@ public class SolarSystemViewer {
 
         private void drawBody(Graphics2D g, Celestial body, int cx, int cy) {
             // Screen position
-            double sx = cx + (body.getPositionAtTime(universe.time).x + cameraX) * BASE_SCALE * zoom;
-            double sy = cy - (body.getPositionAtTime(universe.time).y + cameraY) * BASE_SCALE * zoom;
+            double sx = cx + (body.getPositionAtTime(simulationTime).x + cameraX) * BASE_SCALE * zoom;
+            double sy = cy - (body.getPositionAtTime(simulationTime).y + cameraY) * BASE_SCALE * zoom;
 
             // Real radius in km
             double radiusKm = body.radius / 1e6;
@@ -226,6 +233,17 @@ public class SolarSystemViewer {
             }
         }
 
+        private void drawSmallBodies(Graphics2D g, SmallBodyTable table, int cx, int cy) {
+            for (int row = 0; row < table.size(); row++) {
+                Vector2 parentPos = table.getParent(row).getPositionAtTime(simulationTime);
+                Vector2 pos = table.getPosition(row, simulationTime);
+                int sx = cx + (int) ((parentPos.x + pos.x + cameraX) * BASE_SCALE * zoom);
+                int sy = cy - (int) ((parentPos.y + pos.y + cameraY) * BASE_SCALE * zoom);
+                g.setColor(table.getColor(row));
+                g.fillRect(sx - 1, sy - 1, 2, 2);
+            }
+        }
+
         private void drawLabels(Graphics2D g, int cx, int cy) {
             // Sort so bigger/more important bodies go first
             List<Celestial> bodies = universe.getAllBodies().stream()
@@ -249,8 +267,8 @@ public class SolarSystemViewer {
                 if (!isStar && zoom < 0.05 && body != followed && body != selected) continue;
 
 
-                double sx = cx + (body.getPositionAtTime(universe.time).x + cameraX) * SimulationPanel.BASE_SCALE * zoom;
-                double sy = cy - (body.getPositionAtTime(universe.time).y + cameraY) * SimulationPanel.BASE_SCALE * zoom;
+                double sx = cx + (body.getPositionAtTime(simulationTime).x + cameraX) * SimulationPanel.BASE_SCALE * zoom;
+                double sy = cy - (body.getPositionAtTime(simulationTime).y + cameraY) * SimulationPanel.BASE_SCALE * zoom;
 
                 String label = body.name;
                 FontMetrics fm = g.getFontMetrics();
@@ -288,7 +306,7 @@ public class SolarSystemViewer {
             g.setColor(color);
             double cosW = Math.cos(body.orbitalElements.argPeriapsis);
             double sinW = Math.sin(body.orbitalElements.argPeriapsis);
-            Vector2 parentPos = body.parent.getPositionAtTime(universe.time);
+            Vector2 parentPos = body.parent.getPositionAtTime(simulationTime);
 
             double rp = body.orbitalElements.a * (1 - body.orbitalElements.e);
             double ra = body.orbitalElements.a * (1 + body.orbitalElements.e);
@@ -322,8 +340,8 @@ public class SolarSystemViewer {
             int cy = getHeight() / 2;
 
             for (Celestial b : universe.getAllBodies()) {
-                double bx = cx + (b.getPositionAtTime(universe.time).x + cameraX) * BASE_SCALE * zoom;
-                double by = cy - (b.getPositionAtTime(universe.time).y + cameraY) * BASE_SCALE * zoom;
+                double bx = cx + (b.getPositionAtTime(simulationTime).x + cameraX) * BASE_SCALE * zoom;
+                double by = cy - (b.getPositionAtTime(simulationTime).y + cameraY) * BASE_SCALE * zoom;
                 double dist = Math.hypot(sx - bx, sy - by);
                 int size = (int)Math.max(3, 3 + Math.log10(b.radius / 1e6));
                 if (dist <= size + 5) return b;
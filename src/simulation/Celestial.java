@@ -13,6 +13,7 @@ public class Celestial implements Serializable
 {
     private static final long serialVersionUID = 1L;
     // meta attributes
+    public int id = -1; // dense index assigned by the universe, -1 until registered
     public String name;
     public Color color;
 
@@ -0,0 +1,45 @@
+package simulation;
+
+import flight.ShipMemento;
+
+import java.util.List;
+
+/**
+ * A point the universe can be rolled back to. Holds the clock and, for every ship changed
+ * since, that ship's state as it was here. Ships left untouched aren't stored at all.
+ */
+public class Checkpoint
+{
+    final double time;
+    final double previousTime;
+    final int shipCount;
+    final int turn;
+    List<ShipMemento> undoLog;
+
+    Checkpoint(double time, double previousTime, int shipCount, int turn, List<ShipMemento> undoLog)
+    {
+        this.time = time;
+        this.previousTime = previousTime;
+        this.shipCount = shipCount;
+        this.turn = turn;
+        this.undoLog = undoLog;
+    }
+
+    public double getTime()
+    {
+        return time;
+    }
+
+    public int getTurn()
+    {
+        return turn;
+    }
+
+    /**
+     * Number of ships saved so far, i.e. changed since this checkpoint (up to the next one).
+     */
+    public int getChangedShips()
+    {
+        return undoLog.size();
+    }
+}
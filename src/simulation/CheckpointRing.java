@@ -0,0 +1,96 @@
+package simulation;
+
+import flight.FleetStore;
+import flight.ShipMemento;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The most recent checkpoints of a universe, oldest dropped first.
+ *
+ * Taking a checkpoint is O(1): the fleet store copies a ship only when it is first written
+ * to afterwards. Rolling back restores just those ships, newest checkpoint first, so it costs
+ * O(ships changed since the target checkpoint) and never touches the rest of the fleet.
+ */
+class CheckpointRing
+{
+    private final ArrayDeque<Checkpoint> ring = new ArrayDeque<>();
+    private int capacity;
+
+    CheckpointRing(int capacity)
+    {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    Checkpoint push(Universe u, FleetStore fleet, int turn)
+    {
+        Checkpoint c = new Checkpoint(u.time, u.getPreviousTime(), fleet.size(), turn, fleet.beginCheckpoint());
+        ring.addLast(c);
+        while (ring.size() > capacity)
+        {
+            ring.removeFirst();
+        }
+        return c;
+    }
+
+    /**
+     * Undoes everything since the given checkpoint, which stays in the ring (now empty) so
+     * the same point can be tried again. Newer checkpoints are discarded.
+     * @return false if the checkpoint is no longer in the ring
+     */
+    boolean rollback(Checkpoint target, Universe u, FleetStore fleet)
+    {
+        if (!ring.contains(target))
+            return false;
+
+        Iterator<Checkpoint> newestFirst = ring.descendingIterator();
+        while (newestFirst.hasNext())
+        {
+            Checkpoint c = newestFirst.next();
+            for (ShipMemento m : c.undoLog)
+            {
+                // ships created after the target are dropped below anyway
+                if (m.getShip().getId() < target.shipCount)
+                {
+                    m.restore();
+                }
+            }
+            if (c == target)
+                break;
+            newestFirst.remove();
+        }
+
+        fleet.truncate(target.shipCount);
+        u.restoreClock(target.time, target.previousTime);
+        target.undoLog = fleet.beginCheckpoint();
+        return true;
+    }
+
+    Checkpoint latest()
+    {
+        return ring.peekLast();
+    }
+
+    List<Checkpoint> all()
+    {
+        return new ArrayList<>(ring);
+    }
+
+    void clear(FleetStore fleet)
+    {
+        ring.clear();
+        fleet.endCheckpoints();
+    }
+
+    void setCapacity(int capacity)
+    {
+        this.capacity = Math.max(1, capacity);
+        while (ring.size() > this.capacity)
+        {
+            ring.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package simulation;
+
+import flight.FlightPlan;
+import flight.Ship;
+import flight.ShipState;
+import flight.step.FlightStep;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tallies ship events by kind. Used by the headless runner for its report.
+ */
+public class EventCounter implements SimulationListener
+{
+    private final Map<String, Long> stepsByType = new TreeMap<>();
+    private final EnumMap<ShipState, Long> transitionsTo = new EnumMap<>(ShipState.class);
+    private long steps = 0;
+    private long planChanges = 0;
+
+    @Override
+    public void onStepExecuted(Ship ship, FlightStep step, double simTime)
+    {
+        steps++;
+        stepsByType.merge(step.getClass().getSimpleName(), 1L, Long::sum);
+    }
+
+    @Override
+    public void onShipStateChanged(Ship ship, ShipState from, ShipState to, double simTime)
+    {
+        transitionsTo.merge(to, 1L, Long::sum);
+    }
+
+    @Override
+    public void onFlightPlanChanged(Ship ship, FlightPlan plan, double simTime)
+    {
+        planChanges++;
+    }
+
+    public long getSteps()
+    {
+        return steps;
+    }
+
+    public long getPlanChanges()
+    {
+        return planChanges;
+    }
+
+    public long getTransitionsTo(ShipState state)
+    {
+        return transitionsTo.getOrDefault(state, 0L);
+    }
+
+    public Map<String, Long> getStepsByType()
+    {
+        return stepsByType;
+    }
+}
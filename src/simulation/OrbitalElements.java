@@ -24,8 +24,22 @@ public class OrbitalElements implements Serializable
         this.argPeriapsis = Math.toRadians(argPeriapsisDeg);
         this.meanAnomalyAtEpoch = Math.toRadians(meanAnomalyDeg);
         this.centralMass = centralMass;
+        this.meanMotion = meanMotion(a, centralMass);
+    }
+
+    /**
+     * Sets the mass being orbited, and the mean motion that goes with it.
+     */
+    public void setCentralMass(double centralMass)
+    {
+        this.centralMass = centralMass;
+        this.meanMotion = meanMotion(a, centralMass);
+    }
+
+    static double meanMotion(double a, double centralMass)
+    {
         double mu = CONST.G * centralMass;
-        this.meanMotion = Math.sqrt(mu / Math.pow(a, 3));
+        return Math.sqrt(mu / Math.pow(a, 3));
     }
 
     public double getPeriod()
@@ -38,6 +52,12 @@ public class OrbitalElements implements Serializable
      * Returns vector in parent-centered frame.
      */
     public Vector2 computePosition2D(double t)
+    {
+        return positionAt(a, e, argPeriapsis, meanAnomalyAtEpoch, meanMotion, t);
+    }
+
+    // shared with SmallBodyTable, whose rows hold the same elements as columns
+    static Vector2 positionAt(double a, double e, double argPeriapsis, double meanAnomalyAtEpoch, double meanMotion, double t)
     {
         double M = meanAnomalyAtEpoch + meanMotion * t;
         M %= 2 * Math.PI;
@@ -81,7 +101,7 @@ public class OrbitalElements implements Serializable
         return new Vector2(vx, vy);
     }
 
-    private double solveEccentricAnomaly(double M, double e)
+    private static double solveEccentricAnomaly(double M, double e)
     {
         double E = M;
         for (int i = 0; i < 15; i++)
@@ -3,6 +3,7 @@ package simulation;
 import flight.Ship;
 
 import java.util.ArrayList;
+import java.util.Set;
 
 public class Organisation
 {
@@ -20,11 +21,30 @@ public class Organisation
     {
         allLegacyShips.add(s);
     }
-    public void update(double dt)
+    /**
+     * Makes room for n more ships, before spawning a batch.
+     */
+    public void ensureCapacity(int n)
+    {
+        allLegacyShips.ensureCapacity(allLegacyShips.size() + n);
+    }
+    public void removeShip(Ship s)
+    {
+        allLegacyShips.remove(s);
+    }
+    /**
+     * Removes a batch of ships in one pass over the list.
+     */
+    public void removeShips(Set<Ship> ships)
+    {
+        allLegacyShips.removeIf(ships::contains);
+    }
+
+    public void update()
     {
         for (Ship legacyShip : allLegacyShips)
         {
-            legacyShip.update(dt);
+            legacyShip.update();
         }
     }
 
@@ -37,4 +57,14 @@ public class Organisation
     {
         return name;
     }
+
+    public Universe getUniverse()
+    {
+        return universe;
+    }
+
+    public Celestial getHomeworld()
+    {
+        return homeworld;
+    }
 }
@@ -0,0 +1,41 @@
+package simulation;
+
+import flight.FleetStore;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Updates a contiguous slice of the fleet, splitting in half until the slice is small enough.
+ * Ships only touch their own state here; anything else goes through Ship.defer().
+ */
+@SuppressWarnings("serial") // fork/join tasks are never serialized
+final class ShipUpdateTask extends RecursiveAction
+{
+    private final FleetStore fleet;
+    private final int from, to;
+    private final int batchSize;
+    private final double now;
+
+    ShipUpdateTask(FleetStore fleet, int from, int to, int batchSize, double now)
+    {
+        this.fleet = fleet;
+        this.from = from;
+        this.to = to;
+        this.batchSize = batchSize;
+        this.now = now;
+    }
+
+    @Override
+    protected void compute()
+    {
+        if (to - from <= batchSize)
+        {
+            fleet.updateDue(from, to, now);
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        invokeAll(new ShipUpdateTask(fleet, from, mid, batchSize, now),
+                new ShipUpdateTask(fleet, mid, to, batchSize, now));
+    }
+}
@@ -0,0 +1,40 @@
+package simulation;
+
+import flight.FlightPlan;
+import flight.Ship;
+import flight.ShipState;
+import flight.ShipStatus;
+import flight.construction.staging.Stage;
+import flight.step.FlightStep;
+
+/**
+ * Receives ship activity from a Universe.
+ * Events are delivered in the universe's merge phase, in fleet order, on the thread running Universe.update().
+ */
+public interface SimulationListener
+{
+    default void onStepExecuted(Ship ship, FlightStep step, double simTime) {}
+
+    default void onShipStateChanged(Ship ship, ShipState from, ShipState to, double simTime) {}
+
+    default void onFlightPlanChanged(Ship ship, FlightPlan plan, double simTime) {}
+
+    // The same events with the ship's status right after each one. The ship itself may have
+    // moved on by the time events are delivered; override these to record what it was.
+    default void onStepExecuted(Ship ship, FlightStep step, ShipStatus after, double simTime)
+    {
+        onStepExecuted(ship, step, simTime);
+    }
+
+    default void onShipStateChanged(Ship ship, ShipState from, ShipState to, ShipStatus after, double simTime)
+    {
+        onShipStateChanged(ship, from, to, simTime);
+    }
+
+    default void onFlightPlanChanged(Ship ship, FlightPlan plan, ShipStatus after, double simTime)
+    {
+        onFlightPlanChanged(ship, plan, simTime);
+    }
+
+    default void onStageJettisoned(Ship ship, Stage stage, double simTime) {}
+}
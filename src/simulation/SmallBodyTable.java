@@ -0,0 +1,131 @@
+package simulation;
+
+import util.Vector2;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * Small bodies (asteroids, comets) kept as rows of columns rather than as Celestial objects,
+ * for catalogs too large to give every rock its own object. Each row orbits a Celestial on the
+ * same kind of orbit as OrbitalElements, with the angles in radians.
+ */
+public class SmallBodyTable
+{
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int size = 0;
+    private String[] names = new String[INITIAL_CAPACITY];
+    private Celestial[] parents = new Celestial[INITIAL_CAPACITY];
+    private int[] colors = new int[INITIAL_CAPACITY]; // RGB
+    private double[] mass = new double[INITIAL_CAPACITY];
+    private double[] radius = new double[INITIAL_CAPACITY];
+    private double[] a = new double[INITIAL_CAPACITY];
+    private double[] e = new double[INITIAL_CAPACITY];
+    private double[] argPeriapsis = new double[INITIAL_CAPACITY];
+    private double[] meanAnomalyAtEpoch = new double[INITIAL_CAPACITY];
+    private double[] meanMotion = new double[INITIAL_CAPACITY];
+
+    /**
+     * Adds a row orbiting the parent, with angles in degrees as in the system files.
+     * @return the row's index
+     */
+    public int add(String name, Celestial parent, Color color, double mass, double radius,
+                   double a, double e, double argPeriapsisDeg, double meanAnomalyDeg)
+    {
+        return addRow(name, parent, color.getRGB(), mass, radius, a, e,
+                Math.toRadians(argPeriapsisDeg), Math.toRadians(meanAnomalyDeg), OrbitalElements.meanMotion(a, parent.mass));
+    }
+
+    /**
+     * Adds a row exactly as another table held it, angles in radians, e.g. from a save.
+     * @return the row's index
+     */
+    public int addRow(String name, Celestial parent, int rgb, double mass, double radius,
+                      double a, double e, double argPeriapsis, double meanAnomalyAtEpoch, double meanMotion)
+    {
+        if (size == names.length)
+        {
+            grow(size * 2);
+        }
+        int row = size++;
+        names[row] = name;
+        parents[row] = parent;
+        colors[row] = rgb;
+        this.mass[row] = mass;
+        this.radius[row] = radius;
+        this.a[row] = a;
+        this.e[row] = e;
+        this.argPeriapsis[row] = argPeriapsis;
+        this.meanAnomalyAtEpoch[row] = meanAnomalyAtEpoch;
+        this.meanMotion[row] = meanMotion;
+        return row;
+    }
+
+    /**
+     * Works the row's mean motion out again, for when its parent's mass wasn't known yet.
+     */
+    public void setCentralMass(int row, double centralMass)
+    {
+        meanMotion[row] = OrbitalElements.meanMotion(a[row], centralMass);
+    }
+
+    private void grow(int capacity)
+    {
+        names = Arrays.copyOf(names, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        a = Arrays.copyOf(a, capacity);
+        e = Arrays.copyOf(e, capacity);
+        argPeriapsis = Arrays.copyOf(argPeriapsis, capacity);
+        meanAnomalyAtEpoch = Arrays.copyOf(meanAnomalyAtEpoch, capacity);
+        meanMotion = Arrays.copyOf(meanMotion, capacity);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public String getName(int row) { return names[row]; }
+    public Celestial getParent(int row) { return parents[row]; }
+    public Color getColor(int row) { return new Color(colors[row]); }
+    public int getRGB(int row) { return colors[row]; }
+    public double getMass(int row) { return mass[row]; }
+    public double getRadius(int row) { return radius[row]; }
+    public double getSemiMajorAxis(int row) { return a[row]; }
+    public double getEccentricity(int row) { return e[row]; }
+    public double getArgPeriapsis(int row) { return argPeriapsis[row]; }
+    public double getMeanAnomalyAtEpoch(int row) { return meanAnomalyAtEpoch[row]; }
+    public double getMeanMotion(int row) { return meanMotion[row]; }
+
+    /**
+     * Position relative to the row's parent at time t since epoch (seconds).
+     */
+    public Vector2 getPosition(int row, double t)
+    {
+        return OrbitalElements.positionAt(a[row], e[row], argPeriapsis[row], meanAnomalyAtEpoch[row], meanMotion[row], t);
+    }
+
+    /**
+     * Makes a full Celestial out of a row, for when one body needs to become a destination.
+     * It isn't attached to its parent's children.
+     */
+    public Celestial toCelestial(int row)
+    {
+        Celestial c = new Celestial(names[row]);
+        c.mass = mass[row];
+        c.radius = radius[row];
+        c.color = getColor(row);
+        c.type = CelestialType.ASTEROID;
+        c.parent = parents[row];
+        OrbitalElements o = new OrbitalElements(a[row], e[row], 0, 0, parents[row].mass);
+        o.argPeriapsis = argPeriapsis[row];
+        o.meanAnomalyAtEpoch = meanAnomalyAtEpoch[row];
+        o.meanMotion = meanMotion[row];
+        c.orbitalElements = o;
+        return c;
+    }
+}
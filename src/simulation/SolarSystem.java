@@ -9,10 +9,17 @@ public class SolarSystem
 {
     private Celestial root;
     private List<Celestial> celestials;
+    private final SmallBodyTable smallBodies; // asteroids kept as rows, not in the tree
 
     public SolarSystem(Celestial root)
+    {
+        this(root, new SmallBodyTable());
+    }
+
+    public SolarSystem(Celestial root, SmallBodyTable smallBodies)
     {
         this.root = root;
+        this.smallBodies = smallBodies;
         this.celestials = new ArrayList<>();
         collectBodies(root); // gather all children automatically
     }
@@ -35,6 +42,13 @@ public class SolarSystem
         return celestials;
     }
 
+    /**
+     * Bodies loaded as rows rather than Celestials; their parents are in getAllBodies.
+     */
+    public SmallBodyTable getSmallBodies() {
+        return smallBodies;
+    }
+
     /**
      * Helper to recursively collect all bodies.
      */
@@ -1,10 +1,23 @@
 package simulation;
 
+import economy.resource.TransferEngine;
+import flight.FleetStore;
+import flight.FlightPlan;
+import flight.PlanningService;
 import flight.Ship;
+import flight.ShipState;
+import flight.ShipStatus;
+import flight.construction.staging.Stage;
+import flight.step.FlightStep;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 public class Universe implements Serializable
 {
@@ -12,7 +25,10 @@ public class Universe implements Serializable
 
     private List<SolarSystem> solarSystems = new ArrayList<>();
     private List<Organisation> organisations = new ArrayList<>();
-    public int time;
+    private ArrayList<Celestial> celestialsById = new ArrayList<>();
+    private transient FleetStore fleet; // ships by id, plus their hot per-tick state
+    public double time;
+    private double previousTime; // time before the last update, for render interpolation
 
     public enum TimeMode
     {REAL_TIME, TURN_BASED}
@@ -21,42 +37,248 @@ public class Universe implements Serializable
     private double timeStep = 60 * 60 * 24; // default: 1 day in seconds
     private double speedMultiplier = 1.0;   // 1x speed
 
+    // parallel ship update
+    private boolean parallelUpdate = false;
+    private int parallelThreshold = 512; // below this many ships the fork/join overhead isn't worth it
+    private int shipBatchSize = 64;
+    private transient ForkJoinPool updatePool;
+
+    private transient List<SimulationListener> listeners;
+    private transient PlanningService planningService;
+
+    // turn-based undo, see checkpoint() / rollback()
+    private int checkpointCapacity = 16;
+    private transient CheckpointRing checkpoints;
+
+    private transient TransferEngine transfers;
+
 
     public Universe()
     {
         time = 0;
+        createServices();
+    }
+
+    // made up front, not on first use: ship updates reach them from the parallel phase
+    private void createServices()
+    {
+        planningService = PlanningService.synchronous();
+        transfers = new TransferEngine();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        createServices();
+    }
+
+    /**
+     * Cheap copy for what-if runs. Solar systems and celestials are shared (they are read only
+     * during a run); organisations and ships are copied, keeping their ids. Listeners and the
+     * parallel-update setting are not carried over.
+     */
+    public Universe fork()
+    {
+        Universe f = new Universe();
+        f.solarSystems = solarSystems;
+        f.celestialsById = celestialsById;
+        f.time = time;
+        f.previousTime = previousTime;
+        f.mode = mode;
+        f.timeStep = timeStep;
+        f.speedMultiplier = speedMultiplier;
+        f.planningService = PlanningService.synchronous(); // forks must be reproducible
+
+        Map<Organisation, Organisation> orgCopies = new IdentityHashMap<>();
+        for (Organisation org : organisations)
+        {
+            Organisation copy = new Organisation(org.getName(), f, org.getHomeworld());
+            orgCopies.put(org, copy);
+            f.organisations.add(copy);
+        }
+
+        // walk in id order so every copy gets its original's id
+        f.getFleet().ensureCapacity(getShipIdCount());
+        for (int id = 0; id < getShipIdCount(); id++)
+        {
+            Ship ship = getShipById(id);
+            // owners never added to this universe get a detached copy, same as the original
+            Organisation owner = orgCopies.computeIfAbsent(ship.owner,
+                    o -> new Organisation(o.getName(), f, o.getHomeworld()));
+            new Ship(ship, owner);
+        }
+        return f;
     }
 
     public void tick()
+    {
+        // if Timer is ~33ms, 30 frames ≈ 1 second
+        tick(1.0 / 30.0);
+    }
+
+    /**
+     * Advances real-time mode by the given amount of wall-clock time.
+     * One wall second is timeStep × speedMultiplier sim seconds.
+     */
+    public void tick(double wallSeconds)
     {
         if (mode == TimeMode.REAL_TIME)
         {
-            update(timeStep * speedMultiplier / 30.0);
-            // if Timer is ~33ms, 30 frames ≈ 1 second
+            update(timeStep * speedMultiplier * wallSeconds);
         }
     }
 
     public void update(double dt)
     {
+        previousTime = time;
         time += dt;
         for (SolarSystem system : solarSystems)
         {
             system.update(dt);
         }
-        for (Organisation org : organisations)
+
+        // ship phase: ships whose next event is due advance on their own state only
+        FleetStore ships = getFleet();
+        int n = ships.size();
+        if (parallelUpdate && n >= parallelThreshold)
+        {
+            getUpdatePool().invoke(new ShipUpdateTask(ships, 0, n, shipBatchSize, time));
+        }
+        else
         {
-            org.update(dt);
+            ships.updateDue(0, n, time);
         }
+
+        // merge phase: cross-ship effects, applied in fleet order
+        ships.applyDeferredEffects();
+
+        // boil-off isn't applied here: ships settle it themselves before their tanks are written
+        transfers.apply(id ->
+        {
+            ships.touch(id);
+            ships.getShip(id).settleDecay();
+        });
+    }
+
+    /**
+     * Queue for propellant transfers between tanks; everything queued is applied together at the
+     * end of the next update.
+     */
+    public TransferEngine getTransfers()
+    {
+        return transfers;
+    }
+
+    /**
+     * Sim time between the last two updates, alpha 0 = previous, 1 = current.
+     */
+    public double getInterpolatedTime(double alpha)
+    {
+        return previousTime + (time - previousTime) * alpha;
     }
 
     public void advanceTurn()
     {
         if (mode == TimeMode.TURN_BASED)
         {
+            checkpoint(); // so the turn can be undone with rollback()
             update(timeStep);
         }
     }
 
+    // -----------
+    // checkpoints
+    // -----------
+
+    /**
+     * Marks a point to roll back to. Cheap: ships are only copied when next written to.
+     * The last checkpointCapacity checkpoints are kept. Checkpoints are not carried into forks
+     * or saves.
+     */
+    public Checkpoint checkpoint()
+    {
+        return getCheckpointRing().push(this, getFleet(), (int) Math.round(time / timeStep));
+    }
+
+    /**
+     * Rolls back to the most recent checkpoint, i.e. undoes the last turn.
+     * Events already delivered to listeners are not taken back.
+     * @return false if there is no checkpoint
+     */
+    public boolean rollback()
+    {
+        Checkpoint latest = getCheckpointRing().latest();
+        return latest != null && rollback(latest);
+    }
+
+    /**
+     * Rolls back to the given checkpoint, dropping the ones after it. Ships created since are
+     * removed. Changes made to a ship's structure (sections, parts) are not undone, only its
+     * flight state and tank contents.
+     * @return false if the checkpoint has already fallen out of the ring
+     */
+    public boolean rollback(Checkpoint checkpoint)
+    {
+        return getCheckpointRing().rollback(checkpoint, this, getFleet());
+    }
+
+    public List<Checkpoint> getCheckpoints()
+    {
+        return getCheckpointRing().all();
+    }
+
+    /**
+     * Drops every checkpoint and stops copying ships on write.
+     */
+    public void clearCheckpoints()
+    {
+        getCheckpointRing().clear(getFleet());
+    }
+
+    public void setCheckpointCapacity(int checkpoints)
+    {
+        this.checkpointCapacity = Math.max(1, checkpoints);
+        getCheckpointRing().setCapacity(checkpointCapacity);
+    }
+
+    public int getCheckpointCapacity()
+    {
+        return checkpointCapacity;
+    }
+
+    private CheckpointRing getCheckpointRing()
+    {
+        if (checkpoints == null)
+        {
+            checkpoints = new CheckpointRing(checkpointCapacity);
+        }
+        return checkpoints;
+    }
+
+    public double getPreviousTime()
+    {
+        return previousTime;
+    }
+
+    /**
+     * Sets the clock without running an update, for rollbacks and loading saves.
+     */
+    public void restoreClock(double time, double previousTime)
+    {
+        this.time = time;
+        this.previousTime = previousTime;
+    }
+
+    /**
+     * Moves the clock dt seconds on without running an update, as if everything had started that
+     * much later: ships' due events and boil-off move with it.
+     */
+    public void shiftClock(double dt)
+    {
+        restoreClock(time + dt, previousTime + dt);
+        getFleet().shiftClock(dt);
+    }
+
     public void setMode(TimeMode mode)
     {
         this.mode = mode;
@@ -72,14 +294,172 @@ public class Universe implements Serializable
         this.timeStep = seconds;
     }
 
+    public double getTimeStep()
+    {
+        return timeStep;
+    }
+
     public void setSpeedMultiplier(double multiplier)
     {
         this.speedMultiplier = multiplier;
     }
 
+    public double getSpeedMultiplier()
+    {
+        return speedMultiplier;
+    }
+
+    public void setParallelUpdate(boolean parallel)
+    {
+        this.parallelUpdate = parallel;
+    }
+
+    public boolean isParallelUpdate()
+    {
+        return parallelUpdate;
+    }
+
+    public void setParallelThreshold(int ships)
+    {
+        this.parallelThreshold = Math.max(1, ships);
+    }
+
+    public int getParallelThreshold()
+    {
+        return parallelThreshold;
+    }
+
+    public void setShipBatchSize(int ships)
+    {
+        this.shipBatchSize = Math.max(1, ships);
+    }
+
+    public int getShipBatchSize()
+    {
+        return shipBatchSize;
+    }
+
+    public PlanningService getPlanningService()
+    {
+        return planningService;
+    }
+
+    public void setPlanningService(PlanningService service)
+    {
+        this.planningService = service;
+    }
+
+    public void setUpdatePool(ForkJoinPool pool)
+    {
+        this.updatePool = pool;
+    }
+
+    private ForkJoinPool getUpdatePool()
+    {
+        if (updatePool == null)
+        {
+            updatePool = ForkJoinPool.commonPool();
+        }
+        return updatePool;
+    }
+
+    // ---------------
+    // event listeners
+    // ---------------
+    public void addListener(SimulationListener listener)
+    {
+        getListeners().add(listener);
+    }
+
+    public void removeListener(SimulationListener listener)
+    {
+        getListeners().remove(listener);
+    }
+
+    private List<SimulationListener> getListeners()
+    {
+        if (listeners == null)
+        {
+            listeners = new ArrayList<>();
+        }
+        return listeners;
+    }
+
+    public void fireStepExecuted(Ship ship, FlightStep step, ShipStatus after, double simTime)
+    {
+        for (SimulationListener l : getListeners())
+        {
+            l.onStepExecuted(ship, step, after, simTime);
+        }
+    }
+
+    public void fireShipStateChanged(Ship ship, ShipState from, ShipState to, ShipStatus after, double simTime)
+    {
+        for (SimulationListener l : getListeners())
+        {
+            l.onShipStateChanged(ship, from, to, after, simTime);
+        }
+    }
+
+    public void fireFlightPlanChanged(Ship ship, FlightPlan plan, ShipStatus after, double simTime)
+    {
+        for (SimulationListener l : getListeners())
+        {
+            l.onFlightPlanChanged(ship, plan, after, simTime);
+        }
+    }
+
+    public void fireStageJettisoned(Ship ship, Stage stage, double simTime)
+    {
+        for (SimulationListener l : getListeners())
+        {
+            l.onStageJettisoned(ship, stage, simTime);
+        }
+    }
+
     public void addSolarSystem(SolarSystem system)
     {
         solarSystems.add(system);
+        for (Celestial body : system.getAllBodies())
+        {
+            body.id = celestialsById.size();
+            celestialsById.add(body);
+        }
+    }
+
+    public Celestial getCelestialById(int id)
+    {
+        if (id < 0 || id >= celestialsById.size()) return null;
+        return celestialsById.get(id);
+    }
+
+    public FleetStore getFleet()
+    {
+        if (fleet == null)
+        {
+            fleet = new FleetStore();
+        }
+        return fleet;
+    }
+
+    /**
+     * Hands out the ship's dense id, its slot in the fleet store. Ids are only reused after a
+     * rollback removes the ships that had them.
+     */
+    public int registerShip(Ship ship, Celestial location)
+    {
+        return getFleet().add(ship, location != null ? location.id : -1);
+    }
+
+    public Ship getShipById(int id)
+    {
+        if (id < 0 || id >= getShipIdCount()) return null;
+        return fleet.getShip(id);
+    }
+
+    public int getShipIdCount()
+    {
+        return fleet == null ? 0 : fleet.size();
     }
 
     public List<SolarSystem> getSolarSystems()
@@ -112,14 +492,12 @@ public class Universe implements Serializable
         organisations.add(o);
     }
 
-    public ArrayList<Ship> getShips()
+    /**
+     * All ships in id order, as a read-only view of the fleet store.
+     */
+    public List<Ship> getShips()
     {
-        ArrayList<Ship> legacyShips = new ArrayList<>();
-        for (Organisation org : organisations)
-        {
-            legacyShips.addAll(org.getShips());
-        }
-        return legacyShips;
+        return getFleet().ships();
     }
 
     public ArrayList<Celestial> findCoOrbitals(Celestial location)
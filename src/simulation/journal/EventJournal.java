@@ -0,0 +1,198 @@
+package simulation.journal;
+
+import flight.FlightPlan;
+import flight.Ship;
+import flight.ShipState;
+import flight.ShipStatus;
+import flight.step.BurnStep;
+import flight.step.FlightStep;
+import simulation.SimulationListener;
+import simulation.Universe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only, memory-mapped journal of ship activity.
+ * Register it with Universe.addListener(); records land in the merge phase, so they are
+ * already in fleet order and nothing here needs locking.
+ *
+ * Alongside the journal a small index file holds (simTime, record number) every
+ * INDEX_STRIDE records, which lets replay seek by time.
+ *
+ * If a write fails the journal stops recording rather than failing the tick it was called
+ * from; getFailure() says why, and what was written before stays readable.
+ */
+public final class EventJournal implements SimulationListener, Closeable
+{
+    static final int MAGIC = 0x4D46444A; // "MFDJ"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int SEGMENT_SIZE = JournalRecord.SIZE * 256 * 1024; // 16 MB
+    static final int INDEX_STRIDE = 256;
+    static final int INDEX_ENTRY_SIZE = 16;
+
+    // header layout
+    static final int H_MAGIC = 0;
+    static final int H_VERSION = 4;
+    static final int H_RECORD_SIZE = 8;
+    static final int H_RECORD_COUNT = 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer header;
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+
+    private MappedByteBuffer segment;
+    private long segmentStart = -1;
+    private long recordCount;
+    private IOException failure;
+
+    /**
+     * Opens a journal for appending, creating it if needed.
+     */
+    public EventJournal(Path path) throws IOException
+    {
+        this.path = path;
+        boolean existing = Files.exists(path) && Files.size(path) >= HEADER_SIZE;
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexChannel = FileChannel.open(indexPath(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+        if (existing)
+        {
+            if (header.getInt(H_MAGIC) != MAGIC || header.getInt(H_RECORD_SIZE) != JournalRecord.SIZE)
+            {
+                close();
+                throw new IOException("Not a compatible event journal: " + path);
+            }
+            recordCount = header.getLong(H_RECORD_COUNT);
+        }
+        else
+        {
+            header.putInt(H_MAGIC, MAGIC);
+            header.putInt(H_VERSION, VERSION);
+            header.putInt(H_RECORD_SIZE, JournalRecord.SIZE);
+            header.putLong(H_RECORD_COUNT, 0);
+            indexChannel.truncate(0);
+            recordCount = 0;
+        }
+    }
+
+    static Path indexPath(Path journal)
+    {
+        return journal.resolveSibling(journal.getFileName() + ".idx");
+    }
+
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * Why the journal stopped recording, or null if it hasn't.
+     */
+    public IOException getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * Captures the fleet as of now, positioned at the journal's current end.
+     */
+    public FleetSnapshot snapshot(Universe universe)
+    {
+        return FleetSnapshot.capture(universe, recordCount);
+    }
+
+    // -----------------
+    // listener plumbing
+    // -----------------
+    @Override
+    public void onStepExecuted(Ship ship, FlightStep step, ShipStatus after, double simTime)
+    {
+        double value = step instanceof BurnStep burn ? burn.getDeltaV() : step.getWait();
+        append(simTime, ship, after, JournalRecord.STEP, JournalRecord.stepKind(step), value);
+    }
+
+    @Override
+    public void onShipStateChanged(Ship ship, ShipState from, ShipState to, ShipStatus after, double simTime)
+    {
+        append(simTime, ship, after, JournalRecord.STATE, JournalRecord.OTHER, from.ordinal());
+    }
+
+    @Override
+    public void onFlightPlanChanged(Ship ship, FlightPlan plan, ShipStatus after, double simTime)
+    {
+        append(simTime, ship, after, JournalRecord.PLAN, JournalRecord.OTHER, 0);
+    }
+
+    private void append(double simTime, Ship ship, ShipStatus status, byte type, byte stepKind, double value)
+    {
+        if (failure != null)
+        {
+            return;
+        }
+        try
+        {
+            long offset = HEADER_SIZE + recordCount * JournalRecord.SIZE;
+            if (segment == null || offset >= segmentStart + SEGMENT_SIZE)
+            {
+                mapSegment(offset);
+            }
+            JournalRecord.write(segment, (int) (offset - segmentStart), simTime, ship.getId(), status, type, stepKind, value);
+
+            if (recordCount % INDEX_STRIDE == 0)
+            {
+                indexEntry.clear();
+                indexEntry.putDouble(simTime).putLong(recordCount).flip();
+                indexChannel.write(indexEntry);
+            }
+
+            recordCount++;
+            header.putLong(H_RECORD_COUNT, recordCount);
+        }
+        catch (IOException e)
+        {
+            failure = e;
+            System.err.println("Event journal " + path + " stopped after " + recordCount + " records: " + e);
+        }
+    }
+
+    private void mapSegment(long offset) throws IOException
+    {
+        if (segment != null)
+        {
+            segment.force();
+        }
+        segmentStart = segmentStartFor(offset);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, SEGMENT_SIZE);
+    }
+
+    static long segmentStartFor(long offset)
+    {
+        return HEADER_SIZE + ((offset - HEADER_SIZE) / SEGMENT_SIZE) * SEGMENT_SIZE;
+    }
+
+    public void flush()
+    {
+        if (segment != null) segment.force();
+        header.force();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        flush();
+        indexChannel.close();
+        channel.close();
+    }
+}
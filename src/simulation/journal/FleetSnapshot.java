@@ -0,0 +1,227 @@
+package simulation.journal;
+
+import flight.Ship;
+import simulation.Universe;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Hot per-ship state of a whole fleet at one moment, held in primitive arrays indexed by ship id.
+ * Produced by capturing a live universe or by replaying a journal on top of an earlier snapshot.
+ */
+public class FleetSnapshot
+{
+    private static final int MAGIC = 0x4D464453; // "MFDS"
+
+    double simTime;
+    long journalPosition; // first journal record *not* reflected in this snapshot
+    int size;
+
+    byte[] flightState;
+    byte[] stepState;
+    byte[] taskState;
+    int[] location;
+    int[] target;
+    int[] planId;
+    int[] planCursor;
+    double[] timeToWait;
+    double[] propellantMass;
+    double[] deltaVSpent; // accumulated from burn records since the base snapshot
+
+    FleetSnapshot(int capacity)
+    {
+        flightState = new byte[capacity];
+        stepState = new byte[capacity];
+        taskState = new byte[capacity];
+        location = new int[capacity];
+        target = new int[capacity];
+        planId = new int[capacity];
+        planCursor = new int[capacity];
+        timeToWait = new double[capacity];
+        propellantMass = new double[capacity];
+        deltaVSpent = new double[capacity];
+        Arrays.fill(location, -1);
+        Arrays.fill(target, -1);
+        Arrays.fill(planId, -1);
+    }
+
+    public static FleetSnapshot empty()
+    {
+        return new FleetSnapshot(0);
+    }
+
+    public static FleetSnapshot capture(Universe universe, long journalPosition)
+    {
+        int n = universe.getShipIdCount();
+        FleetSnapshot snap = new FleetSnapshot(n);
+        snap.simTime = universe.time;
+        snap.journalPosition = journalPosition;
+        snap.size = n;
+
+        for (int id = 0; id < n; id++)
+        {
+            Ship s = universe.getShipById(id);
+            snap.flightState[id] = (byte) s.getFlightState().ordinal();
+            snap.stepState[id] = (byte) s.getStepState().ordinal();
+            snap.taskState[id] = (byte) s.getTaskState().ordinal();
+            snap.location[id] = s.getLocationId();
+            snap.target[id] = s.getTargetId();
+            snap.planId[id] = s.getFlightPlan() != null ? s.getFlightPlan().getId() : -1;
+            snap.planCursor[id] = s.getPlanCursor();
+            snap.timeToWait[id] = s.getTimeToWait();
+            snap.propellantMass[id] = s.getPropellantMass();
+        }
+        return snap;
+    }
+
+    public FleetSnapshot copy()
+    {
+        FleetSnapshot c = new FleetSnapshot(0);
+        c.simTime = simTime;
+        c.journalPosition = journalPosition;
+        c.size = size;
+        c.flightState = flightState.clone();
+        c.stepState = stepState.clone();
+        c.taskState = taskState.clone();
+        c.location = location.clone();
+        c.target = target.clone();
+        c.planId = planId.clone();
+        c.planCursor = planCursor.clone();
+        c.timeToWait = timeToWait.clone();
+        c.propellantMass = propellantMass.clone();
+        c.deltaVSpent = deltaVSpent.clone();
+        return c;
+    }
+
+    /**
+     * Overwrites one ship's state with the record at the given buffer offset.
+     */
+    void apply(ByteBuffer buf, int at)
+    {
+        int id = buf.getInt(at + JournalRecord.SHIP_ID);
+        ensureCapacity(id + 1);
+        if (id >= size) size = id + 1;
+
+        flightState[id] = buf.get(at + JournalRecord.FLIGHT_STATE);
+        stepState[id] = buf.get(at + JournalRecord.STEP_STATE);
+        taskState[id] = buf.get(at + JournalRecord.TASK_STATE);
+        location[id] = buf.getInt(at + JournalRecord.LOCATION);
+        target[id] = buf.getInt(at + JournalRecord.TARGET);
+        planId[id] = buf.getInt(at + JournalRecord.PLAN_ID);
+        planCursor[id] = buf.getInt(at + JournalRecord.PLAN_CURSOR);
+        timeToWait[id] = buf.getDouble(at + JournalRecord.TIME_TO_WAIT);
+        propellantMass[id] = buf.getDouble(at + JournalRecord.PROPELLANT);
+
+        if (buf.get(at + JournalRecord.TYPE) == JournalRecord.STEP && buf.get(at + JournalRecord.STEP_KIND) == JournalRecord.BURN)
+        {
+            deltaVSpent[id] += buf.getDouble(at + JournalRecord.VALUE);
+        }
+    }
+
+    private void ensureCapacity(int n)
+    {
+        int cap = flightState.length;
+        if (n <= cap) return;
+        int newCap = Math.max(n, Math.max(16, cap * 2));
+
+        flightState = Arrays.copyOf(flightState, newCap);
+        stepState = Arrays.copyOf(stepState, newCap);
+        taskState = Arrays.copyOf(taskState, newCap);
+        location = grow(location, newCap);
+        target = grow(target, newCap);
+        planId = grow(planId, newCap);
+        planCursor = Arrays.copyOf(planCursor, newCap);
+        timeToWait = Arrays.copyOf(timeToWait, newCap);
+        propellantMass = Arrays.copyOf(propellantMass, newCap);
+        deltaVSpent = Arrays.copyOf(deltaVSpent, newCap);
+    }
+
+    private static int[] grow(int[] a, int newCap)
+    {
+        int old = a.length;
+        int[] b = Arrays.copyOf(a, newCap);
+        Arrays.fill(b, old, newCap, -1);
+        return b;
+    }
+
+    // -------
+    // getters
+    // -------
+    public double getSimTime() { return simTime; }
+    public long getJournalPosition() { return journalPosition; }
+    public int size() { return size; }
+    public int getFlightState(int ship) { return flightState[ship]; }
+    public int getStepState(int ship) { return stepState[ship]; }
+    public int getTaskState(int ship) { return taskState[ship]; }
+    public int getLocation(int ship) { return location[ship]; }
+    public int getTarget(int ship) { return target[ship]; }
+    public int getPlanId(int ship) { return planId[ship]; }
+    public int getPlanCursor(int ship) { return planCursor[ship]; }
+    public double getTimeToWait(int ship) { return timeToWait[ship]; }
+    public double getPropellantMass(int ship) { return propellantMass[ship]; }
+    public double getDeltaVSpent(int ship) { return deltaVSpent[ship]; }
+
+    // -----------
+    // file format
+    // -----------
+    public void writeTo(Path path) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path))))
+        {
+            out.writeInt(MAGIC);
+            out.writeDouble(simTime);
+            out.writeLong(journalPosition);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++)
+            {
+                out.writeByte(flightState[i]);
+                out.writeByte(stepState[i]);
+                out.writeByte(taskState[i]);
+                out.writeInt(location[i]);
+                out.writeInt(target[i]);
+                out.writeInt(planId[i]);
+                out.writeInt(planCursor[i]);
+                out.writeDouble(timeToWait[i]);
+                out.writeDouble(propellantMass[i]);
+                out.writeDouble(deltaVSpent[i]);
+            }
+        }
+    }
+
+    public static FleetSnapshot readFrom(Path path) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))))
+        {
+            if (in.readInt() != MAGIC)
+            {
+                throw new IOException("Not a fleet snapshot: " + path);
+            }
+            double simTime = in.readDouble();
+            long position = in.readLong();
+            int n = in.readInt();
+
+            FleetSnapshot snap = new FleetSnapshot(n);
+            snap.simTime = simTime;
+            snap.journalPosition = position;
+            snap.size = n;
+            for (int i = 0; i < n; i++)
+            {
+                snap.flightState[i] = in.readByte();
+                snap.stepState[i] = in.readByte();
+                snap.taskState[i] = in.readByte();
+                snap.location[i] = in.readInt();
+                snap.target[i] = in.readInt();
+                snap.planId[i] = in.readInt();
+                snap.planCursor[i] = in.readInt();
+                snap.timeToWait[i] = in.readDouble();
+                snap.propellantMass[i] = in.readDouble();
+                snap.deltaVSpent[i] = in.readDouble();
+            }
+            return snap;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package simulation.journal;
+
+import flight.ShipStatus;
+import flight.step.*;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size journal record layout. Every record carries the ship's state *after* the event
+ * (its ShipStatus as captured when the event happened), so replay only has to overwrite, never
+ * re-simulate.
+ *
+ * <pre>
+ *  0  double simTime
+ *  8  int    shipId
+ * 12  byte   type          (STEP, STATE, PLAN)
+ * 13  byte   stepKind      (WAIT, BURN, ...), 0 for non-step events
+ * 14  byte   flightState   ordinal
+ * 15  byte   stepState     ordinal
+ * 16  byte   taskState     ordinal
+ * 20  int    locationId    celestial id, -1 for none
+ * 24  int    targetId      celestial id, -1 for none
+ * 28  int    planId        FlightPlan.getId(), -1 for none
+ * 32  int    planCursor
+ * 40  double timeToWait
+ * 48  double value         burn Δv, wait time, or previous state ordinal
+ * 56  double propellantMass
+ * </pre>
+ */
+public final class JournalRecord
+{
+    public static final int SIZE = 64;
+
+    // event types
+    public static final byte STEP = 1;
+    public static final byte STATE = 2;
+    public static final byte PLAN = 3;
+
+    // step kinds
+    public static final byte OTHER = 0;
+    public static final byte WAIT = 1;
+    public static final byte BURN = 2;
+    public static final byte INTERCEPT = 3;
+    public static final byte SET_STATE = 4;
+    public static final byte PRINT = 5;
+
+    static final int SIM_TIME = 0;
+    static final int SHIP_ID = 8;
+    static final int TYPE = 12;
+    static final int STEP_KIND = 13;
+    static final int FLIGHT_STATE = 14;
+    static final int STEP_STATE = 15;
+    static final int TASK_STATE = 16;
+    static final int LOCATION = 20;
+    static final int TARGET = 24;
+    static final int PLAN_ID = 28;
+    static final int PLAN_CURSOR = 32;
+    static final int TIME_TO_WAIT = 40;
+    static final int VALUE = 48;
+    static final int PROPELLANT = 56;
+
+    private JournalRecord() {}
+
+    static byte stepKind(FlightStep step)
+    {
+        if (step instanceof WaitStep) return WAIT;
+        if (step instanceof BurnStep) return BURN;
+        if (step instanceof InterceptStep) return INTERCEPT;
+        if (step instanceof StateStep) return SET_STATE;
+        if (step instanceof PrintStep) return PRINT;
+        return OTHER;
+    }
+
+    static void write(ByteBuffer buf, int at, double simTime, int shipId, ShipStatus s, byte type, byte stepKind, double value)
+    {
+        buf.putDouble(at + SIM_TIME, simTime);
+        buf.putInt(at + SHIP_ID, shipId);
+        buf.put(at + TYPE, type);
+        buf.put(at + STEP_KIND, stepKind);
+        buf.put(at + FLIGHT_STATE, (byte) s.flightState().ordinal());
+        buf.put(at + STEP_STATE, (byte) s.stepState().ordinal());
+        buf.put(at + TASK_STATE, (byte) s.taskState().ordinal());
+        buf.putInt(at + LOCATION, s.locationId());
+        buf.putInt(at + TARGET, s.targetId());
+        buf.putInt(at + PLAN_ID, s.plan() != null ? s.plan().getId() : -1);
+        buf.putInt(at + PLAN_CURSOR, s.planCursor());
+        buf.putDouble(at + TIME_TO_WAIT, s.timeToWait());
+        buf.putDouble(at + VALUE, value);
+        buf.putDouble(at + PROPELLANT, s.propellantMass());
+    }
+}
@@ -0,0 +1,193 @@
+package simulation.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Rebuilds fleet state at any sim time from a snapshot plus an event journal.
+ * Records hold post-event state, so replay is a straight overwrite scan with no simulation.
+ */
+public final class JournalReplay implements Closeable
+{
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long recordCount;
+    private final MappedByteBuffer[] segments;
+
+    // sparse time index: indexTimes[k] is the sim time of record indexRecords[k]
+    private double[] indexTimes;
+    private long[] indexRecords;
+    private int indexSize;
+
+    public JournalReplay(Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileSize = channel.size();
+
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, EventJournal.HEADER_SIZE);
+        if (header.getInt(EventJournal.H_MAGIC) != EventJournal.MAGIC || header.getInt(EventJournal.H_RECORD_SIZE) != JournalRecord.SIZE)
+        {
+            channel.close();
+            throw new IOException("Not a compatible event journal: " + path);
+        }
+        recordCount = header.getLong(EventJournal.H_RECORD_COUNT);
+
+        long dataBytes = recordCount * JournalRecord.SIZE;
+        segments = new MappedByteBuffer[(int) ((dataBytes + EventJournal.SEGMENT_SIZE - 1) / EventJournal.SEGMENT_SIZE)];
+
+        loadIndex(EventJournal.indexPath(path));
+    }
+
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * Fleet state at the given time, replayed from the start of the journal.
+     */
+    public FleetSnapshot stateAt(double time) throws IOException
+    {
+        return stateAt(FleetSnapshot.empty(), time);
+    }
+
+    /**
+     * Fleet state at the given time, replayed on top of a copy of base.
+     * Times earlier than the base return the base unchanged.
+     */
+    public FleetSnapshot stateAt(FleetSnapshot base, double time) throws IOException
+    {
+        FleetSnapshot snap = base.copy();
+
+        // the time index finds where to stop, so the records are only read to be applied
+        long end = Math.max(base.journalPosition, firstRecordAfter(time));
+        for (long i = base.journalPosition; i < end; i++)
+        {
+            snap.apply(segmentFor(i), offsetInSegment(i));
+        }
+
+        snap.journalPosition = end;
+        snap.simTime = Math.max(base.simTime, time);
+        return snap;
+    }
+
+    /**
+     * Number of the first record stamped after the given time.
+     */
+    public long firstRecordAfter(double time) throws IOException
+    {
+        // last index entry at or before the time; records between entries are scanned
+        int lo = 0, hi = indexSize - 1, found = -1;
+        while (lo <= hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (indexTimes[mid] <= time)
+            {
+                found = mid;
+                lo = mid + 1;
+            }
+            else
+            {
+                hi = mid - 1;
+            }
+        }
+
+        long i = found < 0 ? 0 : indexRecords[found];
+        for (; i < recordCount; i++)
+        {
+            if (getSimTime(i) > time) break;
+        }
+        return i;
+    }
+
+    public double getSimTime(long record) throws IOException
+    {
+        return segmentFor(record).getDouble(offsetInSegment(record) + JournalRecord.SIM_TIME);
+    }
+
+    public int getShipId(long record) throws IOException
+    {
+        return segmentFor(record).getInt(offsetInSegment(record) + JournalRecord.SHIP_ID);
+    }
+
+    public byte getType(long record) throws IOException
+    {
+        return segmentFor(record).get(offsetInSegment(record) + JournalRecord.TYPE);
+    }
+
+    public byte getStepKind(long record) throws IOException
+    {
+        return segmentFor(record).get(offsetInSegment(record) + JournalRecord.STEP_KIND);
+    }
+
+    public double getValue(long record) throws IOException
+    {
+        return segmentFor(record).getDouble(offsetInSegment(record) + JournalRecord.VALUE);
+    }
+
+    private ByteBuffer segmentFor(long record) throws IOException
+    {
+        long offset = EventJournal.HEADER_SIZE + record * JournalRecord.SIZE;
+        int seg = (int) ((offset - EventJournal.HEADER_SIZE) / EventJournal.SEGMENT_SIZE);
+        if (segments[seg] == null)
+        {
+            long start = EventJournal.segmentStartFor(offset);
+            long length = Math.min(EventJournal.SEGMENT_SIZE, fileSize - start);
+            segments[seg] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+        return segments[seg];
+    }
+
+    private static int offsetInSegment(long record)
+    {
+        return (int) ((record * JournalRecord.SIZE) % EventJournal.SEGMENT_SIZE);
+    }
+
+    private void loadIndex(Path indexPath) throws IOException
+    {
+        long expected = (recordCount + EventJournal.INDEX_STRIDE - 1) / EventJournal.INDEX_STRIDE;
+
+        if (Files.exists(indexPath) && Files.size(indexPath) / EventJournal.INDEX_ENTRY_SIZE >= expected)
+        {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+            indexSize = (int) expected;
+            indexTimes = new double[indexSize];
+            indexRecords = new long[indexSize];
+            for (int k = 0; k < indexSize; k++)
+            {
+                indexTimes[k] = buf.getDouble();
+                indexRecords[k] = buf.getLong();
+            }
+            return;
+        }
+
+        // missing or short index (e.g. a crash before it was written): rebuild it from the records
+        indexTimes = new double[16];
+        indexRecords = new long[16];
+        indexSize = 0;
+        for (long i = 0; i < recordCount; i += EventJournal.INDEX_STRIDE)
+        {
+            if (indexSize == indexTimes.length)
+            {
+                indexTimes = Arrays.copyOf(indexTimes, indexSize * 2);
+                indexRecords = Arrays.copyOf(indexRecords, indexSize * 2);
+            }
+            indexTimes[indexSize] = getSimTime(i);
+            indexRecords[indexSize] = i;
+            indexSize++;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
@@ -0,0 +1,79 @@
+package simulation.montecarlo;
+
+import java.util.Arrays;
+
+/**
+ * Aggregated outcome of a Monte Carlo run.
+ */
+public class MonteCarloResult
+{
+    private final int forks;
+    private final int shipRuns;
+    private final int faultedShipRuns;
+    private final int cleanForks;
+    private final double[] shipDeltaV;  // sorted Δv spent per ship per fork
+    private final double[] forkDeltaV;  // sorted Δv spent per fork, whole fleet
+
+    MonteCarloResult(int forks, int shipRuns, int faultedShipRuns, int cleanForks, double[] shipDeltaV, double[] forkDeltaV)
+    {
+        this.forks = forks;
+        this.shipRuns = shipRuns;
+        this.faultedShipRuns = faultedShipRuns;
+        this.cleanForks = cleanForks;
+        this.shipDeltaV = shipDeltaV;
+        this.forkDeltaV = forkDeltaV;
+        Arrays.sort(this.shipDeltaV);
+        Arrays.sort(this.forkDeltaV);
+    }
+
+    public int getForks()
+    {
+        return forks;
+    }
+
+    /**
+     * Fraction of ship runs that never hit PLAN_FAULT.
+     */
+    public double getShipSuccessRate()
+    {
+        return shipRuns == 0 ? 0 : 1.0 - (double) faultedShipRuns / shipRuns;
+    }
+
+    /**
+     * Fraction of forks where no ship hit PLAN_FAULT.
+     */
+    public double getFleetSuccessRate()
+    {
+        return forks == 0 ? 0 : (double) cleanForks / forks;
+    }
+
+    public double getShipDeltaVPercentile(double p)
+    {
+        return percentile(shipDeltaV, p);
+    }
+
+    public double getFleetDeltaVPercentile(double p)
+    {
+        return percentile(forkDeltaV, p);
+    }
+
+    public double getMeanShipDeltaV()
+    {
+        return shipDeltaV.length == 0 ? 0 : Arrays.stream(shipDeltaV).sum() / shipDeltaV.length;
+    }
+
+    private static double percentile(double[] sorted, double p)
+    {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d forks: ship success %.1f%%, fleet success %.1f%%, ship Δv p10/p50/p90 = %.0f / %.0f / %.0f m/s",
+                forks, getShipSuccessRate() * 100, getFleetSuccessRate() * 100,
+                getShipDeltaVPercentile(10), getShipDeltaVPercentile(50), getShipDeltaVPercentile(90));
+    }
+}
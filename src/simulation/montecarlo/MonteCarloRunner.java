@@ -0,0 +1,172 @@
+package simulation.montecarlo;
+
+import flight.Ship;
+import flight.ShipState;
+import flight.step.BurnStep;
+import flight.step.FlightStep;
+import simulation.SimulationListener;
+import simulation.Universe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the same fleet and plans many times over forks of one universe, each with its own
+ * perturbations, and aggregates success rates and Δv spent.
+ *
+ * The base universe is only read (forked) on the calling thread; forks then run in parallel,
+ * each one serially. Random streams are split from the seed up front, so a given seed gives
+ * the same result whatever the thread count.
+ */
+public class MonteCarloRunner
+{
+    private final Universe base;
+    private final List<Perturbation> perturbations = new ArrayList<>();
+    private int forks = 100;
+    private double horizon = 365.25 * 86400; // seconds
+    private double dt = 86400;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    public MonteCarloRunner(Universe base)
+    {
+        this.base = base;
+    }
+
+    public MonteCarloRunner forks(int n)
+    {
+        this.forks = n;
+        return this;
+    }
+
+    public MonteCarloRunner horizon(double seconds)
+    {
+        this.horizon = seconds;
+        return this;
+    }
+
+    public MonteCarloRunner timeStep(double seconds)
+    {
+        this.dt = seconds;
+        return this;
+    }
+
+    public MonteCarloRunner pool(ForkJoinPool pool)
+    {
+        this.pool = pool;
+        return this;
+    }
+
+    public MonteCarloRunner perturb(Perturbation p)
+    {
+        perturbations.add(p);
+        return this;
+    }
+
+    public MonteCarloResult run(long seed) throws InterruptedException
+    {
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Callable<ForkOutcome>> tasks = new ArrayList<>(forks);
+        for (int i = 0; i < forks; i++)
+        {
+            Universe fork = base.fork();
+            SplittableRandom rng = root.split();
+            tasks.add(() -> runFork(fork, rng));
+        }
+
+        List<ForkOutcome> outcomes = new ArrayList<>(forks);
+        try
+        {
+            for (Future<ForkOutcome> f : pool.invokeAll(tasks))
+            {
+                outcomes.add(f.get());
+            }
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException("Monte Carlo fork failed", e.getCause());
+        }
+
+        return aggregate(outcomes);
+    }
+
+    private ForkOutcome runFork(Universe fork, SplittableRandom rng)
+    {
+        for (Perturbation p : perturbations)
+        {
+            p.apply(fork, rng);
+        }
+
+        ForkOutcome outcome = new ForkOutcome(fork.getShipIdCount());
+        fork.addListener(outcome);
+
+        double end = fork.time + horizon;
+        while (fork.time < end)
+        {
+            fork.update(Math.min(dt, end - fork.time));
+        }
+        return outcome;
+    }
+
+    private MonteCarloResult aggregate(List<ForkOutcome> outcomes)
+    {
+        int shipRuns = 0, faulted = 0, cleanForks = 0;
+        double[] shipDv = new double[outcomes.stream().mapToInt(o -> o.deltaV.length).sum()];
+        double[] forkDv = new double[outcomes.size()];
+
+        int k = 0;
+        for (int f = 0; f < outcomes.size(); f++)
+        {
+            ForkOutcome o = outcomes.get(f);
+            int forkFaults = 0;
+            for (int id = 0; id < o.deltaV.length; id++)
+            {
+                shipDv[k++] = o.deltaV[id];
+                forkDv[f] += o.deltaV[id];
+                if (o.faulted[id]) forkFaults++;
+            }
+            shipRuns += o.deltaV.length;
+            faulted += forkFaults;
+            if (forkFaults == 0) cleanForks++;
+        }
+
+        return new MonteCarloResult(outcomes.size(), shipRuns, faulted, cleanForks, shipDv, forkDv);
+    }
+
+    /**
+     * Per-ship tallies for one fork, indexed by ship id.
+     */
+    private static class ForkOutcome implements SimulationListener
+    {
+        final double[] deltaV;
+        final boolean[] faulted;
+
+        ForkOutcome(int ships)
+        {
+            deltaV = new double[ships];
+            faulted = new boolean[ships];
+        }
+
+        @Override
+        public void onStepExecuted(Ship ship, FlightStep step, double simTime)
+        {
+            if (step instanceof BurnStep burn && ship.getId() < deltaV.length)
+            {
+                deltaV[ship.getId()] += burn.getDeltaV();
+            }
+        }
+
+        @Override
+        public void onShipStateChanged(Ship ship, ShipState from, ShipState to, double simTime)
+        {
+            if (to == ShipState.PLAN_FAULT && ship.getId() < faulted.length)
+            {
+                faulted[ship.getId()] = true;
+            }
+        }
+    }
+}
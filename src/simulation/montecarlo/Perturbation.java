@@ -0,0 +1,14 @@
+package simulation.montecarlo;
+
+import simulation.Universe;
+
+import java.util.SplittableRandom;
+
+/**
+ * Changes a freshly forked universe before it runs. Each fork gets its own random stream.
+ */
+@FunctionalInterface
+public interface Perturbation
+{
+    void apply(Universe fork, SplittableRandom rng);
+}
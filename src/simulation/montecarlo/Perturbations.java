@@ -0,0 +1,62 @@
+package simulation.montecarlo;
+
+import flight.Ship;
+import flight.construction.parts.Part;
+import flight.construction.parts.propulsion.Engine;
+
+/**
+ * Stock perturbations for mission evaluation.
+ */
+public class Perturbations
+{
+    /**
+     * Fails each engine independently with the given probability.
+     */
+    public static Perturbation engineFailure(double probability)
+    {
+        return (fork, rng) ->
+        {
+            for (Ship ship : fork.getShips())
+            {
+                for (Part p : ship.getParts())
+                {
+                    if (p instanceof Engine engine && rng.nextDouble() < probability)
+                    {
+                        engine.setFailed(true);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Moves the whole fork to a random start epoch up to maxOffset seconds later,
+     * and restarts every ship's plan from there.
+     */
+    public static Perturbation startEpoch(double maxOffset)
+    {
+        return (fork, rng) ->
+        {
+            fork.shiftClock(rng.nextDouble() * maxOffset);
+            for (Ship ship : fork.getShips())
+            {
+                ship.restartPlan();
+            }
+        };
+    }
+
+    /**
+     * Sets each ship's tanks to a random fill between minFill and maxFill (fractions of capacity),
+     * i.e. a random Δv budget.
+     */
+    public static Perturbation propellantLoad(double minFill, double maxFill)
+    {
+        return (fork, rng) ->
+        {
+            for (Ship ship : fork.getShips())
+            {
+                ship.setFillFraction(minFill + rng.nextDouble() * (maxFill - minFill));
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Collects duration samples (nanoseconds) and reports percentiles over them.
+ * With a window, only the most recent samples are kept for percentiles, which suits
+ * loops that run indefinitely; count, total and max always cover every sample.
+ */
+public class TimingStats
+{
+    private final int window; // 0 = keep everything
+    private long[] samples;
+    private int count = 0;
+    private long total = 0;
+    private long max = 0;
+    private long last = 0;
+
+    public TimingStats()
+    {
+        this(0);
+    }
+
+    public TimingStats(int window)
+    {
+        this.window = window;
+        this.samples = new long[window > 0 ? window : 1024];
+    }
+
+    public void record(long nanos)
+    {
+        if (window > 0)
+        {
+            samples[count % window] = nanos;
+        }
+        else
+        {
+            if (count == samples.length)
+            {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count] = nanos;
+        }
+        count++;
+        total += nanos;
+        last = nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    public long getLastNanos()
+    {
+        return last;
+    }
+
+    public int getCount()
+    {
+        return count;
+    }
+
+    public long getTotalNanos()
+    {
+        return total;
+    }
+
+    public double getMeanNanos()
+    {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    public long getMaxNanos()
+    {
+        return max;
+    }
+
+    /**
+     * Nearest-rank percentile, p in [0, 100].
+     */
+    public long percentile(double p)
+    {
+        int n = window > 0 ? Math.min(count, window) : count;
+        if (n == 0) return 0;
+        long[] sorted = Arrays.copyOf(samples, n);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * n) - 1;
+        return sorted[Math.max(0, Math.min(n - 1, rank))];
+    }
+
+    public void reset()
+    {
+        count = 0;
+        total = 0;
+        max = 0;
+        last = 0;
+    }
+
+    public static double toMillis(double nanos)
+    {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -1,40 +1,69 @@
 package util.loaders;
 
+import economy.resource.ResourceDatabase;
 import flight.construction.ConstructionManager;
-import flight.construction.parts.Part;
+import flight.construction.PartCatalog;
+import flight.construction.parts.PartDefinition;
+import flight.construction.parts.TankDefinition;
+import flight.construction.parts.propulsion.EngineDefinition;
+import flight.construction.parts.propulsion.FuelMixture;
 import flight.construction.sections.Section;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.FileReader;
-import java.io.BufferedReader;
 import java.util.ArrayList;
-
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads part and section catalogs. Each part entry becomes one shared definition in
+ * ConstructionManager's catalog, indexed by name, socket and "tags"; "type" picks the kind:
+ *
+ * <pre>
+ * [
+ *   { "name": "hull_plate", "mass": 120, "socket": "hull", "tags": [ "structure" ] },
+ *   { "name": "methalox", "type": "engine", "mass": 1500, "thrust": 2000, "isp": 380, "cost": 12,
+ *     "mixture": { "LCH4": 1.0, "LOX": 3.6 } },
+ *   { "name": "methalox_tank", "type": "tank", "mass": 500, "propellant": 3000, "cost": 1.5,
+ *     "mixture": { "LCH4": 1.0, "LOX": 3.6 } },
+ *   { "name": "water_tank", "type": "tank", "mass": 80, "contents": { "H2O": 2000 } }
+ * ]
+ * </pre>
+ */
 public class ConstructionLoader
 {
+    /**
+     * Indexes a part catalog into ConstructionManager. The file is streamed one entry at a time.
+     * Each entry's required fields are checked here, and an entry missing one is reported and
+     * skipped; the rest of the entry is kept as text and only built into a definition when it
+     * is first looked up.
+     */
     public static void loadParts(String filePath)
     {
-        try
+        try (JsonArrayReader reader = JsonArrayReader.open(filePath))
         {
-            JSONArray arr = readJsonArray(filePath);
-            ArrayList<Part> parts = new ArrayList<>();
-
-            for (int i = 0; i < arr.length(); i++)
+            List<PartCatalog.Entry> entries = new ArrayList<>();
+            int index = 0;
+            while (reader.hasNext())
             {
-                JSONObject obj = arr.getJSONObject(i);
-
-                // example fields
-                String name = obj.getString("name");
-                double mass = obj.getDouble("mass");
-                String socket = obj.optString("socket", "default");
-
-                Part p = new Part(name, mass, socket); // make sure your constructor matches
-                parts.add(p);
+                JSONObject obj = reader.next();
+                try
+                {
+                    entries.add(catalogEntry(obj));
+                }
+                catch (JSONException e)
+                {
+                    System.err.println("Part " + index + " (" + obj.optString("name", "unnamed") + ") in " + filePath
+                            + " skipped: " + e.getMessage());
+                }
+                index++;
             }
 
-            ConstructionManager.populateParts(parts);
-            System.out.println("Loaded " + parts.size() + " parts.");
+            ConstructionManager.publish(entries);
+            System.out.println("Indexed " + entries.size() + " of " + index + " parts from " + filePath + ".");
         }
         catch (Exception e)
         {
@@ -44,14 +73,13 @@ public class ConstructionLoader
 
     public static void loadSections(String filePath)
     {
-        try
+        try (JsonArrayReader reader = JsonArrayReader.open(filePath))
         {
-            JSONArray arr = readJsonArray(filePath);
             ArrayList<Section> sections = new ArrayList<>();
 
-            for (int i = 0; i < arr.length(); i++)
+            while (reader.hasNext())
             {
-                JSONObject obj = arr.getJSONObject(i);
+                JSONObject obj = reader.next();
 
                 String name = obj.getString("name");
                 double mass = obj.getDouble("mass");
@@ -70,19 +98,108 @@ public class ConstructionLoader
         }
     }
 
-    private static JSONArray readJsonArray(String path) throws Exception
+    // only the indexed fields are kept; the definition is parsed from the entry's text when needed
+    private static PartCatalog.Entry catalogEntry(JSONObject obj)
     {
-        StringBuilder sb = new StringBuilder();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(path)))
+        String type = obj.optString("type", "part");
+        checkRequired(obj, type);
+        String socket = switch (type)
+        {
+            case "engine" -> "engine_generic";
+            case "tank" -> obj.optString("socket", "tank");
+            default -> obj.optString("socket", "default");
+        };
+
+        Set<String> tags = new HashSet<>();
+        JSONArray tagJson = obj.optJSONArray("tags");
+        if (tagJson != null)
         {
-            String line;
-            while ((line = br.readLine()) != null)
+            for (int i = 0; i < tagJson.length(); i++)
             {
-                sb.append(line);
+                tags.add(tagJson.getString(i));
             }
         }
 
-        return new JSONArray(sb.toString());
+        String text = obj.toString();
+        return new PartCatalog.Entry(obj.getString("name"), type, socket, tags, () -> parseDefinition(new JSONObject(text)));
+    }
+
+    // everything parseDefinition needs that has no default; throws JSONException naming the field
+    private static void checkRequired(JSONObject obj, String type)
+    {
+        obj.getString("name");
+        obj.getDouble("mass");
+        if (type.equals("engine"))
+        {
+            obj.getDouble("thrust");
+            obj.getDouble("isp");
+            checkNumbers(obj.optJSONObject("mixture"));
+        }
+        else if (type.equals("tank"))
+        {
+            JSONObject contents = obj.optJSONObject("contents");
+            checkNumbers(contents != null ? contents : obj.optJSONObject("mixture"));
+        }
+    }
+
+    private static void checkNumbers(JSONObject json)
+    {
+        if (json == null) return;
+        for (String key : json.keySet())
+        {
+            json.getDouble(key);
+        }
+    }
+
+    private static PartDefinition parseDefinition(JSONObject obj)
+    {
+        String name = obj.getString("name");
+        double mass = obj.getDouble("mass");
+        double cost = obj.optDouble("cost", 0);
+
+        return switch (obj.optString("type", "part"))
+        {
+            case "engine" -> new EngineDefinition(name, mass, parseMixture(obj.optJSONObject("mixture")),
+                    obj.getDouble("thrust"), obj.getDouble("isp"), cost);
+            case "tank" -> parseTank(name, mass, cost, obj);
+            default -> new PartDefinition(name, mass, obj.optString("socket", "default"), cost);
+        };
+    }
+
+    // either explicit "contents" capacities, or "propellant" kg split by "mixture"
+    private static TankDefinition parseTank(String name, double mass, double cost, JSONObject obj)
+    {
+        String socket = obj.optString("socket", "tank");
+        JSONObject contents = obj.optJSONObject("contents");
+        if (contents == null)
+        {
+            return TankDefinition.forMixture(name, mass, socket,
+                    parseMixture(obj.optJSONObject("mixture")), obj.optDouble("propellant", 0), cost);
+        }
+
+        int[] resources = new int[contents.length()];
+        double[] capacities = new double[contents.length()];
+        int k = 0;
+        for (String resource : contents.keySet())
+        {
+            resources[k] = ResourceDatabase.intern(resource);
+            capacities[k] = contents.getDouble(resource);
+            k++;
+        }
+        return new TankDefinition(name, mass, socket, resources, capacities, cost);
+    }
+
+    private static FuelMixture parseMixture(JSONObject json)
+    {
+        FuelMixture mixture = new FuelMixture();
+        if (json != null)
+        {
+            for (String resource : json.keySet())
+            {
+                mixture.add(resource, json.getDouble(resource));
+            }
+        }
+        mixture.normalize();
+        return mixture;
     }
 }
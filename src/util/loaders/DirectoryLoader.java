@@ -1,43 +1,177 @@
 package util.loaders;
 
 import simulation.Celestial;
+import simulation.SmallBodyTable;
 import simulation.SolarSystem;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 /**
  * Loads all solar systems from a directory of JSON files.
+ * Each file is loaded on its own virtual thread, but the systems always come back in file name
+ * order, and a file that fails to load is reported and skipped instead of failing the rest.
  */
 public class DirectoryLoader {
 
+    // the files are small and parsing them is CPU work, so no more at once than there are cores
+    private static final int MAX_PARSING = Runtime.getRuntime().availableProcessors();
+
+    // a file this big is an asteroid catalog, and its childless asteroids go into the system's
+    // table as rows; smaller files keep every body a Celestial, so they can all be found by name
+    public static final long CATALOG_BYTES = 1 << 20;
+
+    /**
+     * How loading one file went: its system, or why it failed, and how long it took.
+     */
+    public static final class FileResult {
+        public final File file;
+        public final SolarSystem system; // null if it failed
+        public final Exception error;
+        public final long nanos;
+
+        FileResult(File file, SolarSystem system, Exception error, long nanos) {
+            this.file = file;
+            this.system = system;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        public boolean isLoaded() {
+            return system != null;
+        }
+
+        public double getMillis() {
+            return nanos / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s in %.1f ms", file.getName(),
+                    isLoaded() ? "loaded" : "failed (" + (error.getMessage() != null ? error.getMessage() : error) + ")", getMillis());
+        }
+    }
+
     /**
      * Loads all JSON files from the given directory path.
-     * Each file represents one Simulation.SolarSystem.
+     * Each file represents one Simulation.SolarSystem. Every file's result is logged, failures on
+     * stderr, and files that fail to load are left out.
      *
      * @param dirPath The directory containing solar system JSON files.
-     * @return List of Simulation.SolarSystem objects (one per JSON file).
-     * @throws IOException
+     * @return List of Simulation.SolarSystem objects (one per loaded JSON file), in file name order.
+     * @throws IOException if the directory doesn't exist
      */
     public static List<SolarSystem> loadFromDirectory(String dirPath) throws IOException {
+        return loadFromDirectory(dirPath, CATALOG_BYTES);
+    }
+
+    /**
+     * As loadFromDirectory(dirPath), with files of at least catalogBytes loaded as catalogs: their
+     * childless asteroids become rows of the system's SmallBodyTable instead of Celestials.
+     * 0 loads every file that way, Long.MAX_VALUE none.
+     */
+    public static List<SolarSystem> loadFromDirectory(String dirPath, long catalogBytes) throws IOException {
+        long start = System.nanoTime();
+        List<FileResult> results = loadFiles(dirPath, catalogBytes);
+
+        List<SolarSystem> solarSystems = new ArrayList<>();
+        FileResult slowest = null;
+        for (FileResult r : results) {
+            if (r.isLoaded()) {
+                solarSystems.add(r.system);
+                System.out.println("  " + r);
+            } else {
+                System.err.println("Skipped solar system " + r);
+            }
+            if (slowest == null || r.nanos > slowest.nanos) {
+                slowest = r;
+            }
+        }
+        System.out.printf("Loaded %d of %d solar systems from %s in %.1f ms%s%n",
+                solarSystems.size(), results.size(), dirPath, (System.nanoTime() - start) / 1e6,
+                slowest != null ? String.format(", slowest %s (%.1f ms)", slowest.file.getName(), slowest.getMillis()) : "");
+        return solarSystems;
+    }
+
+    /**
+     * Loads every JSON file in the directory, several at a time: one virtual thread per file, with
+     * at most one file per core being parsed at once.
+     *
+     * @return one result per file, in file name order, whether it loaded or not
+     * @throws IOException if the directory doesn't exist
+     */
+    public static List<FileResult> loadFiles(String dirPath) throws IOException {
+        return loadFiles(dirPath, CATALOG_BYTES);
+    }
+
+    public static List<FileResult> loadFiles(String dirPath, long catalogBytes) throws IOException {
         File dir = new File(dirPath);
         if (!dir.exists() || !dir.isDirectory()) {
             throw new IOException("Directory does not exist: " + dirPath);
         }
 
         File[] files = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".json"));
-        if (files == null) return new ArrayList<>();
+        if (files == null || files.length == 0) return new ArrayList<>();
+        // listFiles has no order of its own
+        Arrays.sort(files, Comparator.comparing(File::getName));
 
-        List<SolarSystem> solarSystems = new ArrayList<>();
-        for (File file : files) {
-            Celestial rootCelestial = SolarSystemLoader.loadFromFile(file.getAbsolutePath());
-            SolarSystem system = new SolarSystem(rootCelestial); // each file = one solar system
-            solarSystems.add(system);
+        if (files.length == 1) {
+            return List.of(load(files[0], catalogBytes));
         }
 
-        return solarSystems;
+        Semaphore parsing = new Semaphore(MAX_PARSING);
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<FileResult>> pending = new ArrayList<>(files.length);
+            for (File file : files) {
+                pending.add(pool.submit(() -> {
+                    parsing.acquire();
+                    try {
+                        return load(file, catalogBytes);
+                    } finally {
+                        parsing.release();
+                    }
+                }));
+            }
+
+            List<FileResult> results = new ArrayList<>(files.length);
+            for (int i = 0; i < files.length; i++) {
+                try {
+                    results.add(pending.get(i).get());
+                } catch (ExecutionException e) {
+                    // load catches what parsing throws, so only errors get here
+                    results.add(new FileResult(files[i], null, new IOException(e.getCause()), 0));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted loading " + dirPath, e);
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static FileResult load(File file, long catalogBytes) {
+        long t0 = System.nanoTime();
+        try {
+            SmallBodyTable smallBodies = new SmallBodyTable();
+            Celestial rootCelestial = SolarSystemLoader.loadFromFile(file.getAbsolutePath(),
+                    file.length() >= catalogBytes ? smallBodies : null);
+            SolarSystem system = new SolarSystem(rootCelestial, smallBodies); // each file = one solar system
+            return new FileResult(file, system, null, System.nanoTime() - t0);
+        } catch (Exception e) {
+            return new FileResult(file, null, e, System.nanoTime() - t0);
+        }
     }
 
     /**
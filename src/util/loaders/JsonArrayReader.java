@@ -0,0 +1,93 @@
+package util.loaders;
+
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a top-level JSON array of objects one element at a time, so a large catalog is never
+ * held in memory as a whole string or array.
+ */
+class JsonArrayReader implements Iterator<JSONObject>, AutoCloseable
+{
+    private final Reader reader;
+    private final JSONTokener tokener;
+    private JSONObject pending;
+    private boolean started;
+    private boolean done;
+
+    JsonArrayReader(Reader reader)
+    {
+        this.reader = reader;
+        this.tokener = new JSONTokener(reader);
+        if (tokener.nextClean() != '[')
+        {
+            throw tokener.syntaxError("A JSON array must start with '['");
+        }
+    }
+
+    static JsonArrayReader open(String path) throws IOException
+    {
+        return new JsonArrayReader(new BufferedReader(new FileReader(path)));
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (pending == null && !done)
+        {
+            advance();
+        }
+        return pending != null;
+    }
+
+    @Override
+    public JSONObject next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        JSONObject obj = pending;
+        pending = null;
+        return obj;
+    }
+
+    private void advance()
+    {
+        char c = tokener.nextClean();
+        if (started && c == ',')
+        {
+            c = tokener.nextClean();
+        }
+        else if (started && c != ']')
+        {
+            throw tokener.syntaxError("Expected ',' or ']'");
+        }
+
+        if (c == ']')
+        {
+            done = true;
+            return;
+        }
+        if (c != '{')
+        {
+            throw tokener.syntaxError("Expected an object in the array");
+        }
+        tokener.back();
+        pending = (JSONObject) tokener.nextValue();
+        started = true;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+}
@@ -0,0 +1,391 @@
+package util.loaders;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Pull parser for JSON: the caller asks for one token at a time and the text is read from the
+ * file in fixed-size chunks as it goes, so neither the file nor a tree of it is ever in memory.
+ * What it keeps is one entry per open object or array.
+ */
+final class JsonPullParser implements Closeable
+{
+    enum Token
+    {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, NAME, STRING, NUMBER, TRUE, FALSE, NULL, END
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // what may come next inside each open container
+    private static final byte OBJECT_START = 0;  // a name or '}'
+    private static final byte OBJECT_VALUE = 1;  // the value after a name
+    private static final byte OBJECT_NEXT = 2;   // ',' or '}'
+    private static final byte ARRAY_START = 3;   // a value or ']'
+    private static final byte ARRAY_NEXT = 4;    // ',' or ']'
+
+    private final Reader in;
+    private final String source;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos, limit;
+    private int line = 1;
+
+    private byte[] stack = new byte[16];
+    private int depth;
+    private boolean rootRead;
+
+    private final StringBuilder text = new StringBuilder();
+    private double number;
+
+    JsonPullParser(Reader in, String source)
+    {
+        this.in = in;
+        this.source = source;
+    }
+
+    static JsonPullParser open(Path path) throws IOException
+    {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        return new JsonPullParser(Channels.newReader(channel, StandardCharsets.UTF_8), path.toString());
+    }
+
+    /**
+     * Reads the next token. END once the top-level value is done.
+     */
+    Token next() throws IOException
+    {
+        int c = skipWhitespace();
+        if (depth == 0)
+        {
+            if (rootRead)
+            {
+                if (c != -1)
+                {
+                    throw error("Unexpected '" + (char) c + "' after the end of the document");
+                }
+                return Token.END;
+            }
+            rootRead = true;
+            return value(c);
+        }
+
+        return switch (stack[depth - 1])
+        {
+            case OBJECT_START -> c == '}' ? end() : name(c);
+            case OBJECT_NEXT ->
+            {
+                if (c == '}')
+                {
+                    yield end();
+                }
+                if (c != ',')
+                {
+                    throw error("Expected ',' or '}'");
+                }
+                yield name(skipWhitespace());
+            }
+            case OBJECT_VALUE ->
+            {
+                stack[depth - 1] = OBJECT_NEXT;
+                yield value(c);
+            }
+            case ARRAY_START ->
+            {
+                if (c == ']')
+                {
+                    yield end();
+                }
+                stack[depth - 1] = ARRAY_NEXT;
+                yield value(c);
+            }
+            default -> // ARRAY_NEXT
+            {
+                if (c == ']')
+                {
+                    yield end();
+                }
+                if (c != ',')
+                {
+                    throw error("Expected ',' or ']'");
+                }
+                yield value(skipWhitespace());
+            }
+        };
+    }
+
+    /**
+     * The text of the last NAME or STRING token.
+     */
+    String getString()
+    {
+        return text.toString();
+    }
+
+    /**
+     * The value of the last NUMBER token.
+     */
+    double getDouble()
+    {
+        return number;
+    }
+
+    /**
+     * Skips the value after the NAME just read, however deeply nested it is.
+     */
+    void skipValue() throws IOException
+    {
+        Token t = next();
+        if (t != Token.START_OBJECT && t != Token.START_ARRAY)
+        {
+            return;
+        }
+        int open = 1;
+        while (open > 0)
+        {
+            t = next();
+            if (t == Token.START_OBJECT || t == Token.START_ARRAY)
+            {
+                open++;
+            }
+            else if (t == Token.END_OBJECT || t == Token.END_ARRAY)
+            {
+                open--;
+            }
+        }
+    }
+
+    IOException error(String message)
+    {
+        return new IOException(source + " line " + line + ": " + message);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+
+    // ------
+    // tokens
+    // ------
+
+    private Token name(int c) throws IOException
+    {
+        if (c != '"')
+        {
+            throw error("Expected a quoted name");
+        }
+        readString();
+        if (skipWhitespace() != ':')
+        {
+            throw error("Expected ':' after \"" + text + "\"");
+        }
+        stack[depth - 1] = OBJECT_VALUE;
+        return Token.NAME;
+    }
+
+    private Token value(int c) throws IOException
+    {
+        switch (c)
+        {
+            case '{' ->
+            {
+                push(OBJECT_START);
+                return Token.START_OBJECT;
+            }
+            case '[' ->
+            {
+                push(ARRAY_START);
+                return Token.START_ARRAY;
+            }
+            case '"' ->
+            {
+                readString();
+                return Token.STRING;
+            }
+            case 't' ->
+            {
+                literal("rue");
+                return Token.TRUE;
+            }
+            case 'f' ->
+            {
+                literal("alse");
+                return Token.FALSE;
+            }
+            case 'n' ->
+            {
+                literal("ull");
+                return Token.NULL;
+            }
+            case -1 -> throw error("Unexpected end of file");
+            default ->
+            {
+                if (c == '-' || (c >= '0' && c <= '9'))
+                {
+                    readNumber(c);
+                    return Token.NUMBER;
+                }
+                throw error("Unexpected '" + (char) c + "'");
+            }
+        }
+    }
+
+    private Token end()
+    {
+        depth--;
+        boolean object = stack[depth] <= OBJECT_NEXT;
+        return object ? Token.END_OBJECT : Token.END_ARRAY;
+    }
+
+    private void push(byte state)
+    {
+        if (depth == stack.length)
+        {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = state;
+    }
+
+    private void readString() throws IOException
+    {
+        text.setLength(0);
+        while (true)
+        {
+            int c = read();
+            if (c == '"')
+            {
+                return;
+            }
+            if (c == -1 || c == '\n')
+            {
+                throw error("Unterminated string");
+            }
+            if (c != '\\')
+            {
+                text.append((char) c);
+                continue;
+            }
+            int escaped = read();
+            switch (escaped)
+            {
+                case '"', '\\', '/' -> text.append((char) escaped);
+                case 'b' -> text.append('\b');
+                case 'f' -> text.append('\f');
+                case 'n' -> text.append('\n');
+                case 'r' -> text.append('\r');
+                case 't' -> text.append('\t');
+                case 'u' ->
+                {
+                    int code = 0;
+                    for (int i = 0; i < 4; i++)
+                    {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0)
+                        {
+                            throw error("Bad \\u escape");
+                        }
+                        code = code * 16 + digit;
+                    }
+                    text.append((char) code);
+                }
+                default -> throw error("Bad escape \\" + (char) escaped);
+            }
+        }
+    }
+
+    private void readNumber(int first) throws IOException
+    {
+        text.setLength(0);
+        text.append((char) first);
+        while (true)
+        {
+            int c = peek();
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-')
+            {
+                text.append((char) read());
+            }
+            else
+            {
+                break;
+            }
+        }
+        try
+        {
+            number = Double.parseDouble(text.toString());
+        }
+        catch (NumberFormatException e)
+        {
+            throw error("Bad number " + text);
+        }
+    }
+
+    private void literal(String rest) throws IOException
+    {
+        for (int i = 0; i < rest.length(); i++)
+        {
+            if (read() != rest.charAt(i))
+            {
+                throw error("Unexpected literal");
+            }
+        }
+    }
+
+    // ------
+    // buffer
+    // ------
+
+    private int skipWhitespace() throws IOException
+    {
+        while (true)
+        {
+            int c = read();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+            {
+                return c;
+            }
+        }
+    }
+
+    private int read() throws IOException
+    {
+        if (pos == limit && !fill())
+        {
+            return -1;
+        }
+        char c = buffer[pos++];
+        if (c == '\n')
+        {
+            line++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException
+    {
+        if (pos == limit && !fill())
+        {
+            return -1;
+        }
+        return buffer[pos];
+    }
+
+    private boolean fill() throws IOException
+    {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0)
+        {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+}
@@ -1,6 +1,55 @@
 package util.loaders;
 
+import economy.resource.ResourceDefinition;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+
+/**
+ * Registers resource definitions with ResourceDatabase from a JSON array, streamed one entry
+ * at a time:
+ *
+ * <pre>
+ * [
+ *   { "id": "LOX", "name": "Liquid oxygen", "density": 1141, "tags": [ "cryogenic", "oxidiser" ],
+ *     "description": "Oxidiser for methalox and hydrolox engines" }
+ * ]
+ * </pre>
+ */
 public class ResourceLoader
 {
+    public static int loadResources(String filePath)
+    {
+        int count = 0;
+        try (JsonArrayReader reader = JsonArrayReader.open(filePath))
+        {
+            while (reader.hasNext())
+            {
+                JSONObject obj = reader.next();
+
+                String id = obj.getString("id");
+                ArrayList<String> tags = new ArrayList<>();
+                JSONArray tagJson = obj.optJSONArray("tags");
+                if (tagJson != null)
+                {
+                    for (int i = 0; i < tagJson.length(); i++)
+                    {
+                        tags.add(tagJson.getString(i));
+                    }
+                }
 
+                // registers itself with ResourceDatabase
+                new ResourceDefinition(id, obj.optString("name", id), obj.optDouble("density", 0), tags,
+                        obj.optString("description", ""));
+                count++;
+            }
+            System.out.println("Loaded " + count + " resources.");
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        return count;
+    }
 }
@@ -0,0 +1,223 @@
+package util.loaders;
+
+import flight.FlightPlan;
+import flight.FlightPlanRepository;
+import flight.Ship;
+import flight.ShipTaskState;
+import flight.construction.ConstructionManager;
+import flight.construction.parts.ContainerPart;
+import flight.construction.parts.TankDefinition;
+import flight.construction.parts.propulsion.EngineDefinition;
+import flight.construction.parts.propulsion.FuelMixture;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import simulation.Celestial;
+import simulation.Organisation;
+import simulation.Universe;
+import util.FlightPlanIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Seeds a universe with organisations, ships and flight plans from a scenario JSON file.
+ *
+ * <pre>
+ * {
+ *   "plans": "scenarios/plans.json",
+ *   "organisations": [
+ *     { "name": "Sin Space Engineering", "homeworld": "Earth",
+ *       "ships": [
+ *         { "name": "Von Braun", "count": 10, "location": "Earth", "plan": "Earth-Mars", "mode": "AUTO",
+ *           "engine": { "name": "methalox", "mass": 1500, "thrust": 2000, "isp": 380,
+ *                       "mixture": { "LCH4": 1.0, "LOX": 3.6 } },
+ *           "tank": { "dryMass": 500, "propellant": 3000 } },
+ *         { "name": "Tug", "count": 100, "engine": "methalox", "tank": "methalox_tank" }
+ *       ] }
+ *   ]
+ * }
+ * </pre>
+ * "engine" and "tank" are either inline definitions or the names of definitions loaded with
+ * ConstructionLoader.loadParts. Either way all "count" copies share one definition.
+ * "mode" is OFF, MANUAL or AUTO (the default); an entry with any other mode is skipped.
+ * scenarios/fleet.json is a working example.
+ */
+public class ScenarioLoader
+{
+    public static int loadFromFile(String path, Universe universe) throws IOException
+    {
+        String content = new String(Files.readAllBytes(Paths.get(path)));
+        JSONObject root = new JSONObject(content);
+
+        String plansPath = root.optString("plans", null);
+        if (plansPath != null)
+        {
+            List<FlightPlan> plans = FlightPlanIO.loadPlansFromFile(new File(plansPath), universe);
+            for (FlightPlan fp : plans)
+            {
+                FlightPlanRepository.addPlan(fp);
+            }
+        }
+
+        int shipCount = 0;
+        JSONArray orgs = root.optJSONArray("organisations");
+        if (orgs == null) return shipCount;
+
+        for (int i = 0; i < orgs.length(); i++)
+        {
+            JSONObject orgJson = orgs.getJSONObject(i);
+            String orgName = orgJson.getString("name");
+
+            Organisation org = universe.findOrganisationByName(orgName);
+            if (org == null)
+            {
+                Celestial homeworld = universe.findCelestialByName(orgJson.optString("homeworld", null));
+                org = new Organisation(orgName, universe, homeworld);
+                universe.addOrganisation(org);
+            }
+
+            JSONArray ships = orgJson.optJSONArray("ships");
+            if (ships == null) continue;
+
+            for (int j = 0; j < ships.length(); j++)
+            {
+                shipCount += parseShips(ships.getJSONObject(j), org, universe, path);
+            }
+        }
+
+        return shipCount;
+    }
+
+    private static int parseShips(JSONObject json, Organisation org, Universe universe, String path)
+    {
+        String name = json.getString("name");
+        int count = json.optInt("count", 1);
+
+        Celestial location = universe.findCelestialByName(json.optString("location", null));
+        if (location == null)
+        {
+            location = org.getHomeworld();
+        }
+        if (location == null)
+        {
+            System.err.println("Scenario: no location for ship " + name + ", skipping");
+            return 0;
+        }
+
+        FlightPlan plan = null;
+        String planName = json.optString("plan", null);
+        if (planName != null)
+        {
+            plan = FlightPlanRepository.findByName(planName);
+            if (plan == null)
+            {
+                System.err.println("Scenario: unknown flight plan " + planName + " for ship " + name);
+            }
+        }
+
+        ShipTaskState mode = parseMode(json.optString("mode", "AUTO"));
+        if (mode == null)
+        {
+            System.err.println("Scenario " + path + ": unknown mode \"" + json.optString("mode") + "\" for ship " + name
+                    + " (expected one of " + Arrays.toString(ShipTaskState.values()) + "), skipping");
+            return 0;
+        }
+
+        EngineDefinition engine = parseEngine(json, name);
+        TankDefinition tank = parseTank(json, engine, name);
+
+        for (int k = 0; k < count; k++)
+        {
+            Ship ship = new Ship(count == 1 ? name : name + " " + (k + 1), location, org);
+            outfit(ship, engine, tank);
+            ship.setFlightPlan(plan);
+            ship.setTaskState(mode);
+        }
+        return count;
+    }
+
+    private static ShipTaskState parseMode(String mode)
+    {
+        for (ShipTaskState s : ShipTaskState.values())
+        {
+            if (s.name().equalsIgnoreCase(mode))
+            {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    // same layout Main builds: one tank section plus the engine block, from definitions
+    // resolved once per ship entry so every copy shares them
+    private static void outfit(Ship ship, EngineDefinition engine, TankDefinition tank)
+    {
+        if (engine == null) return;
+
+        if (tank != null)
+        {
+            ContainerPart tankPart = tank.create();
+            tankPart.fillAll();
+
+            ship.newSection("tank", 0, "tank", "service");
+            ship.addPartBasedOnSockets(tankPart);
+        }
+
+        ship.addEngine(engine.create());
+    }
+
+    private static EngineDefinition parseEngine(JSONObject json, String shipName)
+    {
+        Object engineJson = json.opt("engine");
+        if (engineJson instanceof String name)
+        {
+            EngineDefinition def = ConstructionManager.getEngineDefinition(name);
+            if (def == null)
+            {
+                System.err.println("Scenario: unknown engine " + name + " for ship " + shipName);
+            }
+            return def;
+        }
+        if (!(engineJson instanceof JSONObject obj)) return null;
+
+        FuelMixture mixture = new FuelMixture();
+        JSONObject mixJson = obj.optJSONObject("mixture");
+        if (mixJson != null)
+        {
+            for (String resource : mixJson.keySet())
+            {
+                mixture.add(resource, mixJson.getDouble(resource));
+            }
+        }
+        mixture.normalize();
+
+        return new EngineDefinition(
+                obj.optString("name", "engine"),
+                obj.optDouble("mass", 0),
+                mixture,
+                obj.optDouble("thrust", 0),
+                obj.optDouble("isp", 0));
+    }
+
+    private static TankDefinition parseTank(JSONObject json, EngineDefinition engine, String shipName)
+    {
+        Object tankJson = json.opt("tank");
+        if (tankJson instanceof String name)
+        {
+            TankDefinition def = ConstructionManager.getTankDefinition(name);
+            if (def == null)
+            {
+                System.err.println("Scenario: unknown tank " + name + " for ship " + shipName);
+            }
+            return def;
+        }
+        if (!(tankJson instanceof JSONObject obj) || engine == null) return null;
+
+        return TankDefinition.forMixture(shipName + " tank", obj.optDouble("dryMass", 0), "tank",
+                engine.getMixture(), obj.optDouble("propellant", 0), obj.optDouble("cost", 0));
+    }
+}
@@ -1,92 +1,283 @@
 package util.loaders;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import simulation.Celestial;
 import simulation.CelestialType;
 import simulation.OrbitalElements;
+import simulation.SmallBodyTable;
 import util.Vector2;
+import util.loaders.JsonPullParser.Token;
 
 import java.awt.*;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Loads Simulation.Celestial hierarchy from JSON.
  * Supports parentless (root) bodies and simulation.OrbitalElements for orbiters.
+ *
+ * The file is streamed with a JsonPullParser and each body is built as its object is read, so
+ * apart from the bodies themselves the loader only holds the ones between the root and the body
+ * being read. Keys may come in any order.
  */
 public class SolarSystemLoader
 {
     public static Celestial loadFromFile(String path) throws IOException
     {
-        String content = new String(Files.readAllBytes(Paths.get(path)));
-        JSONObject rootJson = new JSONObject(content);
-        return parseCelestial(rootJson, null);
+        return loadFromFile(path, null);
     }
 
-    private static Celestial parseCelestial(JSONObject json, Celestial parent)
+    /**
+     * Loads a system, putting asteroids without children of their own into the table as rows
+     * instead of building a Celestial for each, for catalogs with very many of them.
+     * @param smallBodies table for the asteroids, or null to build every body as a Celestial
+     */
+    public static Celestial loadFromFile(String path, SmallBodyTable smallBodies) throws IOException
     {
-        String name = json.getString("name");
-        double mass = json.getDouble("mass");
-        double radius = json.getDouble("radius");
-        String typeStr = json.optString("type", "TERRESTRIAL");
-        String colorStr = json.optString("color", "#FFFFFF");
-        boolean isBarycenter = json.optBoolean("isBarycenter", false);
+        try (JsonPullParser json = JsonPullParser.open(Path.of(path)))
+        {
+            if (json.next() != Token.START_OBJECT)
+            {
+                throw json.error("A solar system must be a JSON object");
+            }
+            Celestial root = parseCelestial(json, null, smallBodies);
+            json.next(); // END, or an error if anything follows the root
+            return root;
+        }
+    }
 
-        Celestial body = new Celestial(name);
-        body.mass = mass;
-        body.radius = radius;
-        body.color = Color.decode(colorStr);
-        body.parent = parent;
-        body.type = parseType(typeStr);
-        body.isBarycenter = isBarycenter;
+    // a body whose object is still being read
+    private static class Body
+    {
+        final Celestial celestial = new Celestial(null);
+        boolean hasMass, hasRadius;
+        boolean hasRows; // a child went into the small body table
+        String type = "TERRESTRIAL";
+        String color = "#FFFFFF";
+        double[] orbit; // a, e, argPeriapsis, meanAnomalyAtEpoch as written, in degrees
+        Vector2 position;
 
+        // orbits worked out before this body's mass was read, redone once it is
+        List<OrbitalElements> waitingOrbits;
+        List<Integer> waitingRows;
+    }
 
-        // Orbital elements (if orbiting a parent)
-        JSONObject orbJson = json.optJSONObject("orbitalElements");
-        if (orbJson != null && parent != null)
+    /**
+     * Reads the rest of a body's object, its START_OBJECT already read.
+     * @return the body, or null if it went into the small body table
+     */
+    private static Celestial parseCelestial(JsonPullParser json, Body parent, SmallBodyTable smallBodies) throws IOException
+    {
+        Body body = new Body();
+        Celestial c = body.celestial;
+        c.parent = parent != null ? parent.celestial : null;
+
+        while (json.next() != Token.END_OBJECT)
         {
-            double a = orbJson.optDouble("a", 0);
-            double e = orbJson.optDouble("e", 0);
-            double argPeriapsis = orbJson.optDouble("argPeriapsis", 0);
-            double meanAnomalyAtEpoch = orbJson.optDouble("meanAnomalyAtEpoch", 0);
+            switch (json.getString())
+            {
+                case "name" -> c.name = scalar(json);
+                case "mass" ->
+                {
+                    c.mass = number(json);
+                    body.hasMass = true;
+                }
+                case "radius" ->
+                {
+                    c.radius = number(json);
+                    body.hasRadius = true;
+                }
+                case "type" -> body.type = scalar(json);
+                case "color" -> body.color = scalar(json);
+                case "isBarycenter" -> c.isBarycenter = "true".equals(scalar(json));
+                case "orbitalElements" -> body.orbit = parseOrbit(json);
+                case "position" -> body.position = parsePosition(json);
+                case "children" -> parseChildren(json, body, smallBodies);
+                default -> json.skipValue();
+            }
+        }
 
-            body.orbitalElements = new OrbitalElements(
-                    a, e, argPeriapsis, meanAnomalyAtEpoch, parent.mass
-            );
+        if (c.name == null)
+        {
+            throw json.error("A body has no \"name\"");
+        }
+        if (!body.hasMass || !body.hasRadius)
+        {
+            throw json.error(c.name + " needs both \"mass\" and \"radius\"");
+        }
+        c.type = parseType(body.type == null ? "TERRESTRIAL" : body.type);
+        try
+        {
+            c.color = Color.decode(body.color == null ? "#FFFFFF" : body.color);
+        }
+        catch (NumberFormatException e)
+        {
+            throw json.error(c.name + " has colour " + body.color + ", expected #RRGGBB");
         }
 
         // Root static map position (optional)
-        JSONObject posJson = json.optJSONObject("position");
         if (parent == null)
         {
-            if (posJson != null)
+            c.mapPosition = body.position != null ? body.position : new Vector2(0, 0);
+        }
+
+        if (body.waitingOrbits != null)
+        {
+            for (OrbitalElements o : body.waitingOrbits)
+            {
+                o.setCentralMass(c.mass);
+            }
+        }
+        if (body.waitingRows != null)
+        {
+            for (int row : body.waitingRows)
+            {
+                smallBodies.setCentralMass(row, c.mass);
+            }
+        }
+
+        // Orbital elements (if orbiting a parent); the parent's mass may not be read yet
+        if (parent == null || body.orbit == null)
+        {
+            if (parent != null)
+            {
+                parent.celestial.children.add(c);
+            }
+            return c;
+        }
+        double[] o = body.orbit;
+        // rows can only orbit bodies in the tree, so a body with rows of its own stays a Celestial
+        if (smallBodies != null && c.type == CelestialType.ASTEROID && c.children.isEmpty() && !body.hasRows)
+        {
+            int row = smallBodies.add(c.name, parent.celestial, c.color, c.mass, c.radius, o[0], o[1], o[2], o[3]);
+            parent.hasRows = true;
+            if (!parent.hasMass)
+            {
+                parent.waitingRows = add(parent.waitingRows, row);
+            }
+            return null;
+        }
+        c.orbitalElements = new OrbitalElements(o[0], o[1], o[2], o[3], parent.celestial.mass);
+        if (!parent.hasMass)
+        {
+            parent.waitingOrbits = add(parent.waitingOrbits, c.orbitalElements);
+        }
+        parent.celestial.children.add(c);
+        return c;
+    }
+
+    // Children (moons, planets, etc.)
+    private static void parseChildren(JsonPullParser json, Body parent, SmallBodyTable smallBodies) throws IOException
+    {
+        Token t = json.next();
+        if (t == Token.NULL)
+        {
+            return;
+        }
+        if (t != Token.START_ARRAY)
+        {
+            throw json.error("\"children\" must be an array");
+        }
+        while ((t = json.next()) != Token.END_ARRAY)
+        {
+            if (t != Token.START_OBJECT)
             {
-                double x = posJson.optDouble("x", 0);
-                double y = posJson.optDouble("y", 0);
-                body.mapPosition = new Vector2(x, y);
+                throw json.error("Each of \"children\" must be an object");
             }
-            else
+            parseCelestial(json, parent, smallBodies);
+        }
+    }
+
+    private static double[] parseOrbit(JsonPullParser json) throws IOException
+    {
+        double[] orbit = new double[4];
+        forEachField(json, "orbitalElements", key ->
+        {
+            switch (key)
+            {
+                case "a" -> orbit[0] = number(json);
+                case "e" -> orbit[1] = number(json);
+                case "argPeriapsis" -> orbit[2] = number(json);
+                case "meanAnomalyAtEpoch" -> orbit[3] = number(json);
+                default -> json.skipValue();
+            }
+        });
+        return orbit;
+    }
+
+    private static Vector2 parsePosition(JsonPullParser json) throws IOException
+    {
+        double[] xy = new double[2];
+        forEachField(json, "position", key ->
+        {
+            switch (key)
             {
-                body.mapPosition = new Vector2(0, 0);
+                case "x" -> xy[0] = number(json);
+                case "y" -> xy[1] = number(json);
+                default -> json.skipValue();
             }
+        });
+        return new Vector2(xy[0], xy[1]);
+    }
+
+    private interface FieldReader
+    {
+        void read(String key) throws IOException;
+    }
+
+    private static void forEachField(JsonPullParser json, String what, FieldReader reader) throws IOException
+    {
+        if (json.next() != Token.START_OBJECT)
+        {
+            throw json.error("\"" + what + "\" must be an object");
+        }
+        while (json.next() != Token.END_OBJECT)
+        {
+            reader.read(json.getString());
         }
+    }
+
+    // a string, number or boolean as text; null for null
+    private static String scalar(JsonPullParser json) throws IOException
+    {
+        return switch (json.next())
+        {
+            case STRING, NUMBER -> json.getString();
+            case TRUE -> "true";
+            case FALSE -> "false";
+            case NULL -> null;
+            default -> throw json.error("Expected a value, not an object or array");
+        };
+    }
 
-        // Children (moons, planets, etc.)
-        JSONArray children = json.optJSONArray("children");
-        if (children != null)
+    // a number, or a string holding one
+    private static double number(JsonPullParser json) throws IOException
+    {
+        Token t = json.next();
+        if (t == Token.NUMBER)
+        {
+            return json.getDouble();
+        }
+        if (t == Token.STRING)
         {
-            for (int i = 0; i < children.length(); i++)
+            try
+            {
+                return Double.parseDouble(json.getString());
+            }
+            catch (NumberFormatException e)
             {
-                JSONObject childJson = children.getJSONObject(i);
-                Celestial child = parseCelestial(childJson, body);
-                body.children.add(child);
+                // reported below
             }
         }
+        throw json.error("Expected a number");
+    }
 
-        return body;
+    private static <T> List<T> add(List<T> list, T value)
+    {
+        List<T> l = list != null ? list : new ArrayList<>();
+        l.add(value);
+        return l;
     }
 
     private static CelestialType parseType(String typeStr)
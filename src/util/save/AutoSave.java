@@ -0,0 +1,308 @@
+package util.save;
+
+import simulation.Universe;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves a universe in the background. save() takes a SaveSnapshot on the calling (simulation)
+ * thread, which only copies ships changed since the last one, and a single writer thread
+ * encodes it while the universe keeps ticking.
+ *
+ * Each save goes to a temporary file next to the save and is forced to disk. The older saves
+ * are then shifted along to file.1 (newest) to file.N, the current save is linked (or copied) to
+ * file.1, and only then is the temporary file renamed over the save. The save itself is never
+ * missing or half written at any point, so a crash leaves either the old save or the new one;
+ * SaveManager falls back to the older ones if the save can't be read.
+ *
+ * Journaled, the save is a SaveJournal base and each save only appends what changed to its delta
+ * log; the generations are shifted, each with its log, only when the journal writes a new base.
+ */
+public class AutoSave implements AutoCloseable
+{
+    private final Universe universe;
+    private final Path file;
+    private final int generations;
+    private final SaveJournal journal; // null for a full save every time
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r ->
+    {
+        Thread t = new Thread(r, "autosave");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // simulation thread only
+    private SaveSnapshot last;
+    private Future<?> inFlight;
+    private long skipped;
+
+    // read from any thread
+    private volatile double lastCaptureMillis;
+    // written by the writer thread
+    private volatile long saves;
+    private volatile double lastWriteMillis;
+    private volatile Exception lastError;
+
+    /**
+     * @param generations older saves to keep beside the current one
+     */
+    public AutoSave(Universe universe, Path file, int generations)
+    {
+        this(universe, file, generations, null);
+    }
+
+    /**
+     * Journaled autosave, see SaveJournal.
+     * @param compactRatio the delta log is compacted into a new base once it is this many times the base's size
+     */
+    public AutoSave(Universe universe, Path file, int generations, double compactRatio)
+    {
+        this(universe, file, generations, new SaveJournal(universe, file, compactRatio));
+    }
+
+    private AutoSave(Universe universe, Path file, int generations, SaveJournal journal)
+    {
+        if (generations < 0)
+        {
+            throw new IllegalArgumentException("Negative generations: " + generations);
+        }
+        this.universe = universe;
+        this.file = file;
+        this.generations = generations;
+        this.journal = journal;
+    }
+
+    /**
+     * Snapshots the universe and starts writing it. Call between ticks on the simulation thread.
+     * @return false if the previous save is still being written, in which case nothing is taken
+     */
+    public boolean save()
+    {
+        if (inFlight != null && !inFlight.isDone())
+        {
+            skipped++;
+            return false;
+        }
+
+        long t0 = System.nanoTime();
+        SaveSnapshot snapshot = SaveSnapshot.capture(universe, last);
+        lastCaptureMillis = (System.nanoTime() - t0) / 1e6;
+        last = snapshot;
+        inFlight = writer.submit(() -> write(snapshot));
+        return true;
+    }
+
+    public boolean isSaving()
+    {
+        return inFlight != null && !inFlight.isDone();
+    }
+
+    /**
+     * Waits for the save being written, if any.
+     */
+    public void await() throws InterruptedException
+    {
+        Future<?> f = inFlight;
+        if (f == null)
+        {
+            return;
+        }
+        try
+        {
+            f.get();
+        }
+        catch (ExecutionException e)
+        {
+            // already recorded by write
+        }
+    }
+
+    private void write(SaveSnapshot snapshot)
+    {
+        long t0 = System.nanoTime();
+        try
+        {
+            if (journal != null)
+            {
+                if (journal.needsBase())
+                {
+                    keepGenerations();
+                }
+                journal.write(snapshot);
+            }
+            else
+            {
+                writeFull(snapshot);
+            }
+            saves++;
+            lastError = null;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            lastError = e;
+            System.err.println("Autosave to " + file + " failed: " + e);
+        }
+        lastWriteMillis = (System.nanoTime() - t0) / 1e6;
+    }
+
+    private void writeFull(SaveSnapshot snapshot) throws IOException
+    {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        if (file.getParent() != null)
+        {
+            Files.createDirectories(file.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            SaveCodec.write(snapshot, out);
+            out.flush();
+            channel.force(true);
+        }
+        keepGenerations();
+        move(temp, file);
+    }
+
+    // file.N-1 -> file.N ... file.1 -> file.2, then file is linked as file.1; file itself stays put.
+    // Each save's delta log goes with it.
+    private void keepGenerations() throws IOException
+    {
+        if (generations == 0)
+        {
+            return;
+        }
+        for (int g = generations - 1; g >= 1; g--)
+        {
+            Path older = generation(file, g);
+            if (Files.exists(older))
+            {
+                move(older, generation(file, g + 1));
+                moveLog(older, generation(file, g + 1));
+            }
+        }
+        if (Files.exists(file))
+        {
+            Path previous = generation(file, 1);
+            link(file, previous);
+            Path log = SaveJournal.logOf(file);
+            if (Files.exists(log))
+            {
+                link(log, SaveJournal.logOf(previous));
+            }
+            else
+            {
+                Files.deleteIfExists(SaveJournal.logOf(previous));
+            }
+        }
+    }
+
+    private static void moveLog(Path from, Path to) throws IOException
+    {
+        Path log = SaveJournal.logOf(from);
+        if (Files.exists(log))
+        {
+            move(log, SaveJournal.logOf(to));
+        }
+        else
+        {
+            Files.deleteIfExists(SaveJournal.logOf(to));
+        }
+    }
+
+    private static void link(Path existing, Path as) throws IOException
+    {
+        Files.deleteIfExists(as);
+        try
+        {
+            Files.createLink(as, existing);
+        }
+        catch (UnsupportedOperationException | IOException e)
+        {
+            Files.copy(existing, as, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static void move(Path from, Path to) throws IOException
+    {
+        try
+        {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * The path of an older save: generation 1 is the one before the current save.
+     */
+    public static Path generation(Path file, int generation)
+    {
+        return file.resolveSibling(file.getFileName() + "." + generation);
+    }
+
+    public long getSaves()
+    {
+        return saves;
+    }
+
+    /**
+     * Saves not started because the one before was still being written.
+     */
+    public long getSkipped()
+    {
+        return skipped;
+    }
+
+    public double getLastCaptureMillis()
+    {
+        return lastCaptureMillis;
+    }
+
+    public double getLastWriteMillis()
+    {
+        return lastWriteMillis;
+    }
+
+    /**
+     * Why the last save failed, or null if it succeeded.
+     */
+    public Exception getLastError()
+    {
+        return lastError;
+    }
+
+    /**
+     * Finishes the save being written and stops the writer thread. No new snapshot is taken.
+     */
+    @Override
+    public void close()
+    {
+        writer.shutdown();
+        try
+        {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
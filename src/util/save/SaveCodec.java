@@ -0,0 +1,854 @@
+package util.save;
+
+import economy.resource.ResourceDatabase;
+import flight.FlightPlan;
+import flight.ShipCodec;
+import flight.construction.ConstructionManager;
+import flight.construction.parts.PartDefinition;
+import flight.construction.parts.TankDefinition;
+import flight.construction.parts.propulsion.EngineDefinition;
+import flight.construction.parts.propulsion.FuelMixture;
+import flight.procedure.*;
+import simulation.*;
+import util.Vector2;
+
+import java.awt.Color;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The save file format: a header, then one deflated section per table, each able to refer to
+ * the ones before it.
+ * <pre>
+ * int magic "MFDS", short version, short sections
+ * sections × (short id, int length, int stored length, stored bytes)
+ * </pre>
+ * Sections in order: strings, universe settings, bodies, small bodies (each system's
+ * SmallBodyTable), organisations, part definitions, procedures, flight plans, ships (see ShipCodec). Reading takes one section at a time off the
+ * stream and inflates it into its own buffer, and skips sections it doesn't know, so a section
+ * can be added without breaking older readers; anything else bumps the version.
+ *
+ * Part definitions are saved whole, but one the part catalog knows by name is taken from the
+ * catalog when loading, so loaded ships share the catalog's definitions.
+ *
+ * A SaveJournal entry is framed the same way without the header: the settings, then only the
+ * table entries and organisations new since the save or the entry before it, organisations
+ * added to the universe since, and the changed ships. Its table indices carry on from the save's.
+ */
+public final class SaveCodec
+{
+    private static final int MAGIC = 0x4D464453; // "MFDS"
+    public static final int VERSION = 3; // 2: ships' stages saved with their construction, 3: ships' decay times
+
+    private static final int STRINGS = 1;
+    private static final int UNIVERSE = 2;
+    private static final int BODIES = 3;
+    private static final int ORGANISATIONS = 4;
+    private static final int PARTS = 5;
+    private static final int PROCEDURES = 6;
+    private static final int PLANS = 7;
+    private static final int SHIPS = 8;
+    private static final int REGISTRATIONS = 9;  // journal entries only
+    private static final int SHIP_CHANGES = 10;  // journal entries only
+    private static final int SMALL_BODIES = 11;
+
+    private static final int PART = 0;
+    private static final int TANK = 1;
+    private static final int ENGINE = 2;
+
+    private static final int HOHMANN = 0;
+    private static final int LUNAR_TRANSFER = 1;
+    private static final int LUNAR_RETURN = 2;
+    private static final int WAIT = 3;
+    private static final int PRINT = 4;
+
+    private SaveCodec()
+    {
+    }
+
+    /**
+     * True if the stream starts like a save in this format. Reads four bytes.
+     */
+    public static boolean isSave(InputStream in) throws IOException
+    {
+        byte[] magic = in.readNBytes(4);
+        return magic.length == 4 && ByteBuffer.wrap(magic).getInt() == MAGIC;
+    }
+
+    // -------
+    // writing
+    // -------
+
+    public static void write(Universe universe, OutputStream out) throws IOException
+    {
+        write(SaveSnapshot.capture(universe, null), out);
+    }
+
+    /**
+     * Writes a snapshot. Safe to call off the simulation thread.
+     */
+    public static void write(SaveSnapshot snapshot, OutputStream out) throws IOException
+    {
+        write(snapshot, new SaveWriter.Tables(), out);
+    }
+
+    /**
+     * Writes a snapshot, leaving the tables as a journal continuing from this save needs them.
+     */
+    static void write(SaveSnapshot snapshot, SaveWriter.Tables tables, OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        writeSections(snapshot, null, tables, data);
+        data.flush();
+    }
+
+    /**
+     * Writes what changed between two snapshots as a journal entry: the ships written to since
+     * (see ShipCodec.writeChanges), new organisations and table entries, and the settings.
+     * Bodies never change and are left out. Read back with readChanges onto the universe loaded
+     * from the save the tables started at.
+     */
+    static void writeChanges(SaveSnapshot snapshot, SaveSnapshot previous, SaveWriter.Tables tables, OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(out);
+        writeSections(snapshot, previous, tables, data);
+        data.flush();
+    }
+
+    private static void writeSections(SaveSnapshot snapshot, SaveSnapshot previous, SaveWriter.Tables tables, DataOutputStream data) throws IOException
+    {
+        // only the table entries this save or entry adds are written
+        int knownStrings = tables.strings.values().size();
+        int knownParts = tables.parts.values().size();
+        int knownProcedures = tables.procedures.values().size();
+        int knownPlans = tables.plans.values().size();
+        int knownOrganisations = tables.organisations.values().size();
+        for (Organisation o : snapshot.organisations)
+        {
+            tables.organisations.indexOf(o);
+        }
+        Set<Organisation> registered = Collections.newSetFromMap(new IdentityHashMap<>());
+        registered.addAll(snapshot.organisations.subList(0, snapshot.registered));
+
+        // ships first: they fill the plan, procedure and part tables the earlier sections hold
+        SaveWriter ships;
+        if (previous == null)
+        {
+            ships = new SaveWriter(tables, 256 + snapshot.ships.size() * 160);
+            ShipCodec.write(snapshot.ships, tables.organisations::indexOf, ships);
+        }
+        else
+        {
+            ships = new SaveWriter(tables, 256 + snapshot.ships.getCaptured() * 160);
+            ShipCodec.writeChanges(snapshot.ships, previous.ships, tables.organisations::indexOf, ships);
+        }
+
+        SaveWriter plans = new SaveWriter(tables, 256);
+        writePlans(snapshot, tables, knownPlans, plans);
+        SaveWriter procedures = new SaveWriter(tables, 256);
+        writeProcedures(snapshot, tables, knownProcedures, procedures);
+        SaveWriter parts = new SaveWriter(tables, 256);
+        writeParts(tables, knownParts, parts);
+        SaveWriter orgs = new SaveWriter(tables, 256);
+        writeOrganisations(tables, registered, knownOrganisations, orgs);
+        SaveWriter registrations = null, bodies = null, smallBodies = null;
+        if (previous == null)
+        {
+            bodies = new SaveWriter(tables, 4096);
+            writeBodies(snapshot.bodies, bodies);
+            smallBodies = new SaveWriter(tables, 256);
+            writeSmallBodies(snapshot.smallBodies, smallBodies);
+        }
+        else
+        {
+            registrations = new SaveWriter(tables, 64);
+            writeRegistrations(tables, registered, knownOrganisations, registrations);
+        }
+        SaveWriter settings = new SaveWriter(tables, 128);
+        writeSettings(snapshot, settings);
+        SaveWriter strings = new SaveWriter(tables, 4096);
+        writeStrings(tables, knownStrings, strings);
+
+        data.writeShort(previous == null ? 9 : 8); // a journal entry swaps both body sections for registrations
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try
+        {
+            writeSection(data, deflater, STRINGS, strings);
+            writeSection(data, deflater, UNIVERSE, settings);
+            if (bodies != null)
+            {
+                writeSection(data, deflater, BODIES, bodies);
+                writeSection(data, deflater, SMALL_BODIES, smallBodies);
+            }
+            writeSection(data, deflater, ORGANISATIONS, orgs);
+            if (registrations != null)
+            {
+                writeSection(data, deflater, REGISTRATIONS, registrations);
+            }
+            writeSection(data, deflater, PARTS, parts);
+            writeSection(data, deflater, PROCEDURES, procedures);
+            writeSection(data, deflater, PLANS, plans);
+            writeSection(data, deflater, previous == null ? SHIPS : SHIP_CHANGES, ships);
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    private static void writeSection(DataOutputStream data, Deflater deflater, int id, SaveWriter section) throws IOException
+    {
+        deflater.reset();
+        deflater.setInput(section.array(), 0, section.size());
+        deflater.finish();
+        ByteArrayOutputStream stored = new ByteArrayOutputStream(Math.max(64, section.size() / 4));
+        byte[] chunk = new byte[64 * 1024];
+        while (!deflater.finished())
+        {
+            int n = deflater.deflate(chunk);
+            stored.write(chunk, 0, n);
+        }
+
+        data.writeShort(id);
+        data.writeInt(section.size());
+        data.writeInt(stored.size());
+        stored.writeTo(data);
+    }
+
+    private static void writeStrings(SaveWriter.Tables tables, int from, SaveWriter out)
+    {
+        List<String> values = tables.strings.values();
+        out.putInt(values.size() - from);
+        for (String s : values.subList(from, values.size()))
+        {
+            out.putBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void writeSettings(SaveSnapshot u, SaveWriter out)
+    {
+        out.putDouble(u.time);
+        out.putDouble(u.previousTime);
+        out.putByte(u.mode.ordinal());
+        out.putDouble(u.timeStep);
+        out.putDouble(u.speedMultiplier);
+        out.putBoolean(u.parallelUpdate);
+        out.putInt(u.parallelThreshold);
+        out.putInt(u.shipBatchSize);
+        out.putInt(u.checkpointCapacity);
+    }
+
+    // one table per system, in system order; rows refer to their parents by body id
+    private static void writeSmallBodies(List<SmallBodyTable> tables, SaveWriter out)
+    {
+        out.putInt(tables.size());
+        for (SmallBodyTable t : tables)
+        {
+            out.putInt(t.size());
+            for (int row = 0; row < t.size(); row++)
+            {
+                out.putString(t.getName(row));
+                out.putCelestial(t.getParent(row));
+                out.putInt(t.getRGB(row));
+                out.putDouble(t.getMass(row));
+                out.putDouble(t.getRadius(row));
+                out.putDouble(t.getSemiMajorAxis(row));
+                out.putDouble(t.getEccentricity(row));
+                out.putDouble(t.getArgPeriapsis(row));
+                out.putDouble(t.getMeanAnomalyAtEpoch(row));
+                out.putDouble(t.getMeanMotion(row));
+            }
+        }
+    }
+
+    // bodies in id order, which walks each system's tree parents first
+    private static void writeBodies(List<Celestial> bodies, SaveWriter out)
+    {
+        out.putInt(bodies.size());
+        for (Celestial c : bodies)
+        {
+            out.putString(c.name);
+            out.putBoolean(c.color != null);
+            if (c.color != null)
+            {
+                out.putInt(c.color.getRGB());
+            }
+            out.putDouble(c.mass);
+            out.putDouble(c.radius);
+            out.putByte(c.type.ordinal());
+            out.putBoolean(c.isBarycenter);
+            out.putBoolean(c.mapPosition != null);
+            if (c.mapPosition != null)
+            {
+                out.putDouble(c.mapPosition.x);
+                out.putDouble(c.mapPosition.y);
+            }
+            out.putCelestial(c.parent);
+
+            OrbitalElements o = c.orbitalElements;
+            out.putBoolean(o != null);
+            if (o != null)
+            {
+                out.putDouble(o.a);
+                out.putDouble(o.e);
+                out.putDouble(o.argPeriapsis);
+                out.putDouble(o.meanAnomalyAtEpoch);
+                out.putDouble(o.meanMotion);
+                out.putDouble(o.centralMass);
+            }
+
+            Environment env = c.environment;
+            out.putBoolean(env != null);
+            if (env != null)
+            {
+                out.putDouble(env.getTemperature());
+                out.putDouble(env.getSurfacePressure());
+                out.putDouble(env.getRotationalPeriod());
+                Map<String, Double> air = env.getAtmosphericComposition();
+                out.putInt(air.size());
+                for (Map.Entry<String, Double> gas : air.entrySet())
+                {
+                    out.putString(gas.getKey());
+                    out.putDouble(gas.getValue());
+                }
+            }
+        }
+    }
+
+    private static void writeOrganisations(SaveWriter.Tables tables, Set<Organisation> registered, int from, SaveWriter out)
+    {
+        List<Organisation> organisations = tables.organisations.values();
+        out.putInt(organisations.size() - from);
+        for (Organisation o : organisations.subList(from, organisations.size()))
+        {
+            out.putString(o.getName());
+            out.putCelestial(o.getHomeworld());
+            out.putBoolean(registered.contains(o)); // owners never added to the universe stay detached
+            if (registered.contains(o))
+            {
+                tables.registered.add(o);
+            }
+        }
+    }
+
+    // owners written detached that have since been added to the universe
+    private static void writeRegistrations(SaveWriter.Tables tables, Set<Organisation> registered, int known, SaveWriter out)
+    {
+        List<Organisation> organisations = tables.organisations.values();
+        List<Integer> added = new ArrayList<>();
+        for (int i = 0; i < known; i++)
+        {
+            Organisation o = organisations.get(i);
+            if (registered.contains(o) && tables.registered.add(o))
+            {
+                added.add(i);
+            }
+        }
+        out.putInt(added.size());
+        for (int i : added)
+        {
+            out.putInt(i);
+        }
+    }
+
+    private static void writeParts(SaveWriter.Tables tables, int from, SaveWriter out)
+    {
+        List<PartDefinition> parts = tables.parts.values();
+        out.putInt(parts.size() - from);
+        for (PartDefinition d : parts.subList(from, parts.size()))
+        {
+            out.putByte(d instanceof TankDefinition ? TANK : d instanceof EngineDefinition ? ENGINE : PART);
+            out.putString(d.getName());
+            out.putDouble(d.getDryMass());
+            out.putString(d.getSocketName());
+            out.putDouble(d.getCost());
+            if (d instanceof TankDefinition tank)
+            {
+                out.putInt(tank.size());
+                for (int k = 0; k < tank.size(); k++)
+                {
+                    out.putString(ResourceDatabase.nameOf(tank.getResource(k)));
+                    out.putDouble(tank.getCapacity(k));
+                }
+            }
+            else if (d instanceof EngineDefinition engine)
+            {
+                FuelMixture mix = engine.getMixture();
+                out.putInt(mix.size());
+                for (int k = 0; k < mix.size(); k++)
+                {
+                    out.putString(ResourceDatabase.nameOf(mix.getResource(k)));
+                    out.putDouble(mix.getFraction(k));
+                }
+                out.putDouble(engine.getThrustVacuum());
+                out.putDouble(engine.getIspVacuum());
+            }
+        }
+    }
+
+    // written from the snapshot's copies, the live ones may be being edited
+    private static void writeProcedures(SaveSnapshot snapshot, SaveWriter.Tables tables, int from, SaveWriter out)
+    {
+        List<FlightProcedure> procedures = tables.procedures.values();
+        out.putInt(procedures.size() - from);
+        for (FlightProcedure live : procedures.subList(from, procedures.size()))
+        {
+            FlightProcedure p = snapshot.procedures.getOrDefault(live, live);
+            if (p instanceof HohmannTransferProcedure h)
+            {
+                out.putByte(HOHMANN);
+                out.putCelestial(h.getOrigin());
+                out.putCelestial(h.getDestination());
+                out.putDouble(h.getMaxDeltaV());
+                out.putDouble(h.getRoughTime());
+            }
+            else if (p instanceof LunarTransferProcedure l)
+            {
+                out.putByte(LUNAR_TRANSFER);
+                out.putCelestial(l.getPlanet());
+                out.putCelestial(l.getMoon());
+                out.putDouble(l.getMaxDeltaV());
+            }
+            else if (p instanceof LunarReturnProcedure l)
+            {
+                out.putByte(LUNAR_RETURN);
+                out.putCelestial(l.getPlanet());
+                out.putCelestial(l.getMoon());
+                out.putDouble(l.getMaxDeltaV());
+            }
+            else if (p instanceof WaitProcedure w)
+            {
+                out.putByte(WAIT);
+                out.putDouble(w.getDuration());
+            }
+            else if (p instanceof PrintProcedure pr)
+            {
+                out.putByte(PRINT);
+                out.putString(pr.getMessage());
+            }
+            else
+            {
+                throw new IllegalArgumentException("Can't save procedure " + p.getClass().getSimpleName());
+            }
+        }
+    }
+
+    // walked by index: a plan seen here may be the first to use a procedure
+    private static void writePlans(SaveSnapshot snapshot, SaveWriter.Tables tables, int from, SaveWriter out)
+    {
+        List<FlightPlan> plans = tables.plans.values();
+        out.putInt(plans.size() - from);
+        for (FlightPlan live : plans.subList(from, plans.size()))
+        {
+            SaveSnapshot.PlanCopy plan = snapshot.plans.get(live);
+            out.putString(plan.name());
+            out.putString(plan.description());
+            out.putBoolean(plan.repeat());
+            out.putInt(plan.procedures().size());
+            for (FlightProcedure p : plan.procedures())
+            {
+                out.putProcedure(p);
+            }
+        }
+    }
+
+    // -------
+    // reading
+    // -------
+
+    public static Universe read(InputStream in) throws IOException
+    {
+        SaveReader.Tables tables = new SaveReader.Tables();
+        tables.universe = new Universe();
+        return read(in, tables);
+    }
+
+    /**
+     * Reads a save, leaving the tables as a journal continuing from it needs them.
+     */
+    static Universe read(InputStream in, SaveReader.Tables tables) throws IOException
+    {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+        {
+            throw new IOException("Not a save file");
+        }
+        int version = data.readUnsignedShort();
+        if (version > VERSION)
+        {
+            throw new IOException("Save is version " + version + ", this build reads up to " + VERSION);
+        }
+        tables.version = version;
+        readSections(data, tables);
+        return tables.universe;
+    }
+
+    /**
+     * Applies a journal entry written by writeChanges to the universe the tables were read into.
+     */
+    static void readChanges(InputStream in, SaveReader.Tables tables) throws IOException
+    {
+        readSections(new DataInputStream(in), tables);
+    }
+
+    private static void readSections(DataInputStream data, SaveReader.Tables tables) throws IOException
+    {
+        Universe universe = tables.universe;
+        int sections = data.readUnsignedShort();
+        Inflater inflater = new Inflater();
+        try
+        {
+            for (int s = 0; s < sections; s++)
+            {
+                int id = data.readUnsignedShort();
+                int length = data.readInt();
+                int storedLength = data.readInt();
+                if (length < 0 || storedLength < 0)
+                {
+                    throw new IOException("Corrupt save: section " + id + " has a negative length");
+                }
+                byte[] stored = data.readNBytes(storedLength);
+                if (stored.length != storedLength)
+                {
+                    throw new IOException("Save ends inside section " + id);
+                }
+                SaveReader section = new SaveReader(inflate(inflater, stored, length, id), tables);
+
+                switch (id)
+                {
+                    case STRINGS -> tables.strings = append(tables.strings, readStrings(section));
+                    case UNIVERSE -> readSettings(section, universe);
+                    case BODIES -> readBodies(section, universe);
+                    case SMALL_BODIES -> readSmallBodies(section, universe);
+                    case ORGANISATIONS -> tables.owners = append(tables.owners, readOrganisations(section, universe));
+                    case REGISTRATIONS -> readRegistrations(section, tables);
+                    case PARTS -> tables.parts = append(tables.parts, readParts(section));
+                    case PROCEDURES -> tables.procedures = append(tables.procedures, readProcedures(section));
+                    case PLANS -> tables.plans = append(tables.plans, readPlans(section));
+                    case SHIPS -> ShipCodec.read(section, universe, tables.owners);
+                    case SHIP_CHANGES -> ShipCodec.readChanges(section, universe, tables.owners);
+                    default ->
+                    {
+                        // written by a later build, nothing here depends on it
+                    }
+                }
+            }
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private static <T> T[] append(T[] table, T[] added)
+    {
+        if (table.length == 0)
+        {
+            return added;
+        }
+        T[] all = Arrays.copyOf(table, table.length + added.length);
+        System.arraycopy(added, 0, all, table.length, added.length);
+        return all;
+    }
+
+    private static ByteBuffer inflate(Inflater inflater, byte[] stored, int length, int id) throws IOException
+    {
+        inflater.reset();
+        inflater.setInput(stored);
+        byte[] raw = new byte[length];
+        try
+        {
+            int n = 0;
+            while (n < length && !inflater.finished())
+            {
+                int got = inflater.inflate(raw, n, length - n);
+                if (got == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    break;
+                }
+                n += got;
+            }
+            if (n != length)
+            {
+                throw new IOException("Corrupt save: section " + id + " inflates to " + n + " bytes, expected " + length);
+            }
+        }
+        catch (DataFormatException e)
+        {
+            throw new IOException("Corrupt save: section " + id + " " + e.getMessage(), e);
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static String[] readStrings(SaveReader in) throws IOException
+    {
+        String[] strings = new String[in.getCount()];
+        for (int i = 0; i < strings.length; i++)
+        {
+            strings[i] = new String(in.getBytes(), StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static void readSettings(SaveReader in, Universe u) throws IOException
+    {
+        double time = in.getDouble();
+        double previousTime = in.getDouble();
+        u.restoreClock(time, previousTime);
+        int mode = in.getByte();
+        u.setMode(mode == Universe.TimeMode.TURN_BASED.ordinal() ? Universe.TimeMode.TURN_BASED : Universe.TimeMode.REAL_TIME);
+        u.setTimeStep(in.getDouble());
+        u.setSpeedMultiplier(in.getDouble());
+        u.setParallelUpdate(in.getBoolean());
+        u.setParallelThreshold(in.getInt());
+        u.setShipBatchSize(in.getInt());
+        u.setCheckpointCapacity(in.getInt());
+    }
+
+    private static void readBodies(SaveReader in, Universe u) throws IOException
+    {
+        int n = in.getCount();
+        Celestial[] bodies = new Celestial[n];
+        List<Celestial> roots = new ArrayList<>();
+        CelestialType[] types = CelestialType.values();
+        for (int i = 0; i < n; i++)
+        {
+            Celestial c = new Celestial(in.getString());
+            bodies[i] = c;
+            if (in.getBoolean())
+            {
+                c.color = new Color(in.getInt(), true);
+            }
+            c.mass = in.getDouble();
+            c.radius = in.getDouble();
+            int type = in.getByte();
+            if (type < 0 || type >= types.length)
+            {
+                throw new IOException("Corrupt save: body " + c.name + " has type " + type);
+            }
+            c.type = types[type];
+            c.isBarycenter = in.getBoolean();
+            if (in.getBoolean())
+            {
+                c.mapPosition = new Vector2(in.getDouble(), in.getDouble());
+            }
+
+            // parents come first, so a child's parent is already read
+            int parent = in.getInt();
+            if (parent >= i)
+            {
+                throw new IOException("Corrupt save: body " + c.name + " comes before its parent");
+            }
+            if (parent >= 0)
+            {
+                c.parent = bodies[parent];
+                c.parent.children.add(c);
+            }
+            else
+            {
+                roots.add(c);
+            }
+
+            if (in.getBoolean())
+            {
+                OrbitalElements o = new OrbitalElements(1, 0, 0, 0, 0);
+                o.a = in.getDouble();
+                o.e = in.getDouble();
+                o.argPeriapsis = in.getDouble();
+                o.meanAnomalyAtEpoch = in.getDouble();
+                o.meanMotion = in.getDouble();
+                o.centralMass = in.getDouble();
+                c.orbitalElements = o;
+            }
+
+            if (in.getBoolean())
+            {
+                Environment env = new Environment();
+                env.setPlanet(c);
+                env.setTemperature(in.getDouble());
+                env.setSurfacePressure(in.getDouble());
+                env.setRotationalPeriod(in.getDouble());
+                int gases = in.getCount();
+                HashMap<String, Double> air = new HashMap<>();
+                for (int g = 0; g < gases; g++)
+                {
+                    air.put(in.getString(), in.getDouble());
+                }
+                env.setAtmosphericComposition(air);
+                c.environment = env;
+            }
+        }
+
+        for (Celestial root : roots)
+        {
+            u.addSolarSystem(new SolarSystem(root));
+        }
+        for (int i = 0; i < n; i++)
+        {
+            if (bodies[i].id != i)
+            {
+                throw new IOException("Corrupt save: bodies are not in system order");
+            }
+        }
+    }
+
+    private static void readSmallBodies(SaveReader in, Universe u) throws IOException
+    {
+        int n = in.getCount();
+        if (n != u.getSolarSystems().size())
+        {
+            throw new IOException("Corrupt save: small bodies for " + n + " systems, the save has " + u.getSolarSystems().size());
+        }
+        for (SolarSystem system : u.getSolarSystems())
+        {
+            SmallBodyTable table = system.getSmallBodies();
+            int rows = in.getCount();
+            for (int row = 0; row < rows; row++)
+            {
+                String name = in.getString();
+                Celestial parent = in.getCelestial();
+                if (parent == null)
+                {
+                    throw new IOException("Corrupt save: small body " + name + " has no parent");
+                }
+                table.addRow(name, parent, in.getInt(), in.getDouble(), in.getDouble(), in.getDouble(),
+                        in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+            }
+        }
+    }
+
+    private static Organisation[] readOrganisations(SaveReader in, Universe u) throws IOException
+    {
+        Organisation[] orgs = new Organisation[in.getCount()];
+        for (int i = 0; i < orgs.length; i++)
+        {
+            orgs[i] = new Organisation(in.getString(), u, in.getCelestial());
+            if (in.getBoolean())
+            {
+                u.addOrganisation(orgs[i]);
+            }
+        }
+        return orgs;
+    }
+
+    private static void readRegistrations(SaveReader in, SaveReader.Tables tables) throws IOException
+    {
+        int n = in.getCount();
+        for (int k = 0; k < n; k++)
+        {
+            int i = in.getInt();
+            if (i < 0 || i >= tables.owners.length)
+            {
+                throw new IOException("Corrupt save: no organisation " + i + " to add");
+            }
+            tables.universe.addOrganisation(tables.owners[i]);
+        }
+    }
+
+    private static PartDefinition[] readParts(SaveReader in) throws IOException
+    {
+        PartDefinition[] parts = new PartDefinition[in.getCount()];
+        for (int i = 0; i < parts.length; i++)
+        {
+            int kind = in.getByte();
+            String name = in.getString();
+            double dryMass = in.getDouble();
+            String socket = in.getString();
+            double cost = in.getDouble();
+
+            PartDefinition saved;
+            if (kind == TANK)
+            {
+                int[] resources = new int[in.getCount()];
+                double[] capacities = new double[resources.length];
+                for (int k = 0; k < resources.length; k++)
+                {
+                    resources[k] = ResourceDatabase.intern(in.getString());
+                    capacities[k] = in.getDouble();
+                }
+                saved = new TankDefinition(name, dryMass, socket, resources, capacities, cost);
+            }
+            else if (kind == ENGINE)
+            {
+                FuelMixture mix = new FuelMixture();
+                int components = in.getCount();
+                for (int k = 0; k < components; k++)
+                {
+                    mix.add(in.getString(), in.getDouble());
+                }
+                saved = new EngineDefinition(name, dryMass, mix, in.getDouble(), in.getDouble(), cost);
+            }
+            else if (kind == PART)
+            {
+                saved = new PartDefinition(name, dryMass, socket, cost);
+            }
+            else
+            {
+                throw new IOException("Corrupt save: part " + name + " is of kind " + kind);
+            }
+
+            PartDefinition known = ConstructionManager.getDefinition(name);
+            parts[i] = known != null && known.getClass() == saved.getClass() ? known : saved;
+        }
+        return parts;
+    }
+
+    private static FlightProcedure[] readProcedures(SaveReader in) throws IOException
+    {
+        FlightProcedure[] procedures = new FlightProcedure[in.getCount()];
+        for (int i = 0; i < procedures.length; i++)
+        {
+            int type = in.getByte();
+            procedures[i] = switch (type)
+            {
+                case HOHMANN -> new HohmannTransferProcedure(in.getCelestial(), in.getCelestial(), in.getDouble(), in.getDouble());
+                case LUNAR_TRANSFER -> new LunarTransferProcedure(in.getCelestial(), in.getCelestial(), in.getDouble());
+                case LUNAR_RETURN ->
+                {
+                    Celestial planet = in.getCelestial();
+                    LunarReturnProcedure p = new LunarReturnProcedure(in.getCelestial(), in.getDouble());
+                    p.setPlanet(planet);
+                    yield p;
+                }
+                case WAIT -> new WaitProcedure(in.getDouble());
+                case PRINT -> new PrintProcedure(in.getString());
+                default -> throw new IOException("Unknown procedure type " + type);
+            };
+        }
+        return procedures;
+    }
+
+    private static FlightPlan[] readPlans(SaveReader in) throws IOException
+    {
+        FlightPlan[] plans = new FlightPlan[in.getCount()];
+        for (int i = 0; i < plans.length; i++)
+        {
+            String name = in.getString();
+            String description = in.getString();
+            FlightPlan plan = new FlightPlan(in.getBoolean());
+            plan.setName(name);
+            plan.setDescription(description);
+            int n = in.getCount();
+            for (int k = 0; k < n; k++)
+            {
+                plan.addProcedure(in.getProcedure());
+            }
+            plans[i] = plan;
+        }
+        return plans;
+    }
+}
@@ -0,0 +1,272 @@
+package util.save;
+
+import simulation.Universe;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Incremental saves: a base save plus an append-only delta log beside it (file.delta) of what
+ * changed since, so saving costs in proportion to what changed rather than to the universe.
+ * Each entry holds the ships written to since the entry before, with their tank levels, new
+ * organisations and table entries, and the universe settings (see SaveCodec.writeChanges).
+ * Once the log outgrows the base it is compacted: a new base is written and the log restarts.
+ * Loading reads the base and replays the entries onto it.
+ * <pre>
+ * int magic "MFDD", short version, long CRC-32 of the base save
+ * entries × (int length, int CRC-32, entry bytes)
+ * </pre>
+ * The log names its base by checksum, so a log left beside a different base (a crash while
+ * compacting, or a full save written over it) is ignored rather than replayed onto the wrong
+ * save. Loading stops at the first torn or damaged entry. Only the session that wrote a base
+ * appends to its log: the first save() always writes a new base.
+ *
+ * AutoSave can save through a journal, capturing on the simulation thread and calling write on
+ * its writer thread; SaveManager.loadUniverse replays the log when it loads the base.
+ */
+public class SaveJournal
+{
+    private static final int MAGIC = 0x4D464444; // "MFDD"
+    private static final int VERSION = 1;
+
+    private final Universe universe;
+    private final Path file;
+    private final Path log;
+    private final double compactRatio;
+
+    // as the base and every entry since left them; null until a base is written, or after a failed entry
+    private SaveWriter.Tables tables;
+    private SaveSnapshot last;
+    private long baseBytes, logBytes;
+    private int entries;
+    private long compactions;
+
+    public SaveJournal(Universe universe, Path file)
+    {
+        this(universe, file, 1.0);
+    }
+
+    /**
+     * @param compactRatio the log is compacted into a new base once it is this many times the base's size
+     */
+    public SaveJournal(Universe universe, Path file, double compactRatio)
+    {
+        if (!(compactRatio > 0))
+        {
+            throw new IllegalArgumentException("Compact ratio must be positive: " + compactRatio);
+        }
+        this.universe = universe;
+        this.file = file;
+        this.log = logOf(file);
+        this.compactRatio = compactRatio;
+    }
+
+    public static Path logOf(Path file)
+    {
+        return file.resolveSibling(file.getFileName() + ".delta");
+    }
+
+    /**
+     * Saves what changed since the last save, or a new base if there is none yet or the log has
+     * grown past the base. Call between ticks on the simulation thread.
+     * @return bytes written
+     */
+    public long save() throws IOException
+    {
+        return write(SaveSnapshot.capture(universe, last));
+    }
+
+    /**
+     * True if the next write will be a new base rather than a log entry.
+     */
+    public boolean needsBase()
+    {
+        return tables == null || logBytes > baseBytes * compactRatio;
+    }
+
+    /**
+     * Writes a snapshot of this journal's universe as save() does. May be called off the
+     * simulation thread, but only from one thread at a time.
+     * @return bytes written
+     */
+    public long write(SaveSnapshot snapshot) throws IOException
+    {
+        if (needsBase())
+        {
+            return compact(snapshot);
+        }
+
+        ByteArrayOutputStream entry = new ByteArrayOutputStream(256 + snapshot.getShipsCaptured() * 64);
+        try
+        {
+            SaveCodec.writeChanges(snapshot, last, tables, entry);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            tables = null; // it may hold entries the log never got, so start over from a base
+            throw e;
+        }
+
+        byte[] bytes = entry.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer framed = ByteBuffer.allocate(8 + bytes.length);
+        framed.putInt(bytes.length).putInt((int) crc.getValue()).put(bytes).flip();
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+        {
+            while (framed.hasRemaining())
+            {
+                channel.write(framed);
+            }
+            channel.force(false);
+        }
+        catch (IOException e)
+        {
+            tables = null;
+            throw e;
+        }
+
+        last = snapshot;
+        logBytes += framed.limit();
+        entries++;
+        return framed.limit();
+    }
+
+    /**
+     * Writes a new base now and empties the log.
+     * @return bytes written
+     */
+    public long compact() throws IOException
+    {
+        return compact(SaveSnapshot.capture(universe, last));
+    }
+
+    private long compact(SaveSnapshot snapshot) throws IOException
+    {
+        tables = null;
+        if (file.getParent() != null)
+        {
+            Files.createDirectories(file.getParent());
+        }
+
+        SaveWriter.Tables fresh = new SaveWriter.Tables();
+        CRC32 crc = new CRC32();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long size;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            OutputStream out = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc);
+            SaveCodec.write(snapshot, fresh, out);
+            out.flush();
+            channel.force(true);
+            size = channel.size();
+        }
+        AutoSave.move(temp, file);
+
+        // until the new log is in place the old one names the old base, so it is ignored
+        Path logTemp = log.resolveSibling(log.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(logTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer header = ByteBuffer.allocate(14);
+            header.putInt(MAGIC).putShort((short) VERSION).putLong(crc.getValue()).flip();
+            while (header.hasRemaining())
+            {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        AutoSave.move(logTemp, log);
+
+        tables = fresh;
+        last = snapshot;
+        baseBytes = size;
+        logBytes = 0;
+        entries = 0;
+        compactions++;
+        return size;
+    }
+
+    /**
+     * Loads a base save and replays the log beside it, if that log belongs to it.
+     */
+    public static Universe load(Path file) throws IOException
+    {
+        byte[] base = Files.readAllBytes(file);
+        SaveReader.Tables tables = new SaveReader.Tables();
+        tables.universe = new Universe();
+        SaveCodec.read(new ByteArrayInputStream(base), tables);
+
+        Path log = logOf(file);
+        if (!Files.exists(log))
+        {
+            return tables.universe;
+        }
+        CRC32 baseCrc = new CRC32();
+        baseCrc.update(base);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(log), 1 << 16)))
+        {
+            byte[] header = in.readNBytes(14);
+            ByteBuffer h = ByteBuffer.wrap(header);
+            if (header.length < 14 || h.getInt() != MAGIC || h.getShort() > VERSION || h.getLong() != baseCrc.getValue())
+            {
+                return tables.universe; // belongs to another base
+            }
+
+            int replayed = 0;
+            while (true)
+            {
+                byte[] frame = in.readNBytes(8);
+                if (frame.length == 0)
+                {
+                    break;
+                }
+                ByteBuffer f = ByteBuffer.wrap(frame);
+                int length = frame.length == 8 ? f.getInt() : -1;
+                byte[] entry = length >= 0 ? in.readNBytes(length) : new byte[0];
+                CRC32 crc = new CRC32();
+                crc.update(entry);
+                if (length < 0 || entry.length != length || (int) crc.getValue() != f.getInt())
+                {
+                    System.err.println("Save log " + log + " ends in a damaged entry, kept the " + replayed + " before it");
+                    break;
+                }
+                SaveCodec.readChanges(new ByteArrayInputStream(entry), tables);
+                replayed++;
+            }
+        }
+        return tables.universe;
+    }
+
+    /**
+     * Entries in the log since the last base.
+     */
+    public int getEntries()
+    {
+        return entries;
+    }
+
+    public long getCompactions()
+    {
+        return compactions;
+    }
+
+    public long getBaseBytes()
+    {
+        return baseBytes;
+    }
+
+    public long getLogBytes()
+    {
+        return logBytes;
+    }
+}
@@ -0,0 +1,82 @@
+package util.save;
+
+import simulation.Universe;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Saves and loads whole universes in the SaveCodec format. Files written by the old Java
+ * serialization path are still read.
+ */
+public class SaveManager
+{
+    public static void saveUniverse(Universe uni, String file)
+    {
+        try
+        {
+            Path path = Path.of(file);
+            if (path.getParent() != null)
+            {
+                Files.createDirectories(path.getParent());
+            }
+            // never written in place: AutoSave's file.1 may be a hard link to it
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))
+            {
+                SaveCodec.write(uni, out);
+            }
+            AutoSave.move(temp, path);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads a save, or if it is missing or unreadable the newest readable older generation
+     * AutoSave kept beside it.
+     * @return null if there is nothing to load
+     */
+    public static Universe loadUniverse(String file)
+    {
+        Path path = Path.of(file);
+        Universe universe = load(path);
+        for (int g = 1; universe == null && Files.exists(AutoSave.generation(path, g)); g++)
+        {
+            System.err.println("Falling back to " + AutoSave.generation(path, g));
+            universe = load(AutoSave.generation(path, g));
+        }
+        return universe;
+    }
+
+    private static Universe load(Path path)
+    {
+        if (!Files.exists(path))
+        {
+            return null;
+        }
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16))
+        {
+            in.mark(4);
+            boolean current = SaveCodec.isSave(in);
+            in.reset();
+            if (current)
+            {
+                // a delta log beside it (SaveJournal) is replayed onto it
+                return Files.exists(SaveJournal.logOf(path)) ? SaveJournal.load(path) : SaveCodec.read(in);
+            }
+            try (ObjectInputStream legacy = new ObjectInputStream(in))
+            {
+                return (Universe) legacy.readObject();
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package util.save;
+
+import flight.FlightPlan;
+import flight.construction.parts.PartDefinition;
+import flight.procedure.FlightProcedure;
+import flight.step.*;
+import simulation.Celestial;
+import simulation.Organisation;
+import simulation.Universe;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads one inflated save section straight out of its buffer, the mirror of SaveWriter. Table
+ * references resolve against the tables read from earlier sections.
+ */
+public class SaveReader
+{
+    private final ByteBuffer buffer;
+    private final Tables tables;
+
+    SaveReader(ByteBuffer buffer, Tables tables)
+    {
+        this.buffer = buffer;
+        this.tables = tables;
+    }
+
+    public int getByte() throws IOException
+    {
+        try
+        {
+            return buffer.get();
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw truncated();
+        }
+    }
+
+    public boolean getBoolean() throws IOException
+    {
+        return getByte() != 0;
+    }
+
+    public int getInt() throws IOException
+    {
+        try
+        {
+            return buffer.getInt();
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw truncated();
+        }
+    }
+
+    public long getLong() throws IOException
+    {
+        try
+        {
+            return buffer.getLong();
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw truncated();
+        }
+    }
+
+    public double getDouble() throws IOException
+    {
+        try
+        {
+            return buffer.getDouble();
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw truncated();
+        }
+    }
+
+    public String getString() throws IOException
+    {
+        return lookUp(tables.strings, "string");
+    }
+
+    public Celestial getCelestial() throws IOException
+    {
+        int id = getInt();
+        if (id == -1)
+        {
+            return null;
+        }
+        Celestial c = tables.universe.getCelestialById(id);
+        if (c == null)
+        {
+            throw new IOException("Save refers to celestial " + id + ", which it doesn't have");
+        }
+        return c;
+    }
+
+    /**
+     * Format version of the save being read, see SaveCodec.VERSION.
+     */
+    public int getVersion()
+    {
+        return tables.version;
+    }
+
+    public PartDefinition getPart() throws IOException
+    {
+        return lookUp(tables.parts, "part");
+    }
+
+    public FlightProcedure getProcedure() throws IOException
+    {
+        return lookUp(tables.procedures, "procedure");
+    }
+
+    public FlightPlan getPlan() throws IOException
+    {
+        return lookUp(tables.plans, "flight plan");
+    }
+
+    public FlightStep getStep() throws IOException
+    {
+        int type = getByte();
+        return switch (type)
+        {
+            case SaveWriter.BURN_STEP -> new BurnStep(getDouble());
+            case SaveWriter.INTERCEPT_STEP -> new InterceptStep(getCelestial());
+            case SaveWriter.PRINT_STEP -> new PrintStep(getString());
+            case SaveWriter.STATE_STEP -> new StateStep(getString());
+            case SaveWriter.WAIT_STEP -> new WaitStep(getDouble());
+            default -> throw new IOException("Unknown flight step type " + type);
+        };
+    }
+
+    private <T> T lookUp(T[] table, String what) throws IOException
+    {
+        int i = getInt();
+        if (i == -1)
+        {
+            return null;
+        }
+        if (i < 0 || i >= table.length)
+        {
+            throw new IOException("Save refers to " + what + " " + i + " of " + table.length);
+        }
+        return table[i];
+    }
+
+    public byte[] getBytes() throws IOException
+    {
+        int n = getCount();
+        if (n > buffer.remaining())
+        {
+            throw truncated();
+        }
+        byte[] bytes = new byte[n];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads a length or count, which can't be negative.
+     */
+    public int getCount() throws IOException
+    {
+        int n = getInt();
+        if (n < 0)
+        {
+            throw new IOException("Corrupt save: negative count " + n);
+        }
+        return n;
+    }
+
+    private static IOException truncated()
+    {
+        return new IOException("Save section ends early");
+    }
+
+    // ------
+    // tables
+    // ------
+    // filled in as their sections are read, so later sections can refer to them
+    // journal entries add to the tables the base save left
+    static class Tables
+    {
+        Universe universe;
+        String[] strings = new String[0];
+        PartDefinition[] parts = new PartDefinition[0];
+        FlightProcedure[] procedures = new FlightProcedure[0];
+        FlightPlan[] plans = new FlightPlan[0];
+        Organisation[] owners = new Organisation[0];
+        int version = SaveCodec.VERSION; // of the base save; journal entries follow it
+    }
+}
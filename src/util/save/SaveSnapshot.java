@@ -0,0 +1,163 @@
+package util.save;
+
+import flight.FlightPlan;
+import flight.ShipCodec;
+import flight.procedure.*;
+import simulation.Celestial;
+import simulation.Organisation;
+import simulation.SmallBodyTable;
+import simulation.SolarSystem;
+import simulation.Universe;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a save holds, taken at one moment between ticks, so SaveCodec can write it on
+ * another thread while the universe runs on. Ships are captured through ShipCodec.Snapshot,
+ * which only copies ships written to since the previous snapshot.
+ *
+ * Flight plans and procedures are copied too, since the plan designer edits them on the EDT
+ * while the snapshot is being written. Bodies and small body tables are not: nothing changes
+ * them once loaded.
+ */
+public final class SaveSnapshot
+{
+    final double time, previousTime;
+    final Universe.TimeMode mode;
+    final double timeStep, speedMultiplier;
+    final boolean parallelUpdate;
+    final int parallelThreshold, shipBatchSize, checkpointCapacity;
+
+    final List<Celestial> bodies;
+    final List<SmallBodyTable> smallBodies; // by system
+    final List<Organisation> organisations; // registered ones first, then owners never added to the universe
+    final int registered;
+    final ShipCodec.Snapshot ships;
+
+    // the saves' tables index the live plans and procedures, whose contents are written from these
+    final Map<FlightPlan, PlanCopy> plans = new IdentityHashMap<>();
+    final Map<FlightProcedure, FlightProcedure> procedures = new IdentityHashMap<>();
+
+    record PlanCopy(String name, String description, boolean repeat, List<FlightProcedure> procedures)
+    {
+    }
+
+    private SaveSnapshot(Universe u, ShipCodec.Snapshot ships)
+    {
+        this.time = u.time;
+        this.previousTime = u.getPreviousTime();
+        this.mode = u.getMode();
+        this.timeStep = u.getTimeStep();
+        this.speedMultiplier = u.getSpeedMultiplier();
+        this.parallelUpdate = u.isParallelUpdate();
+        this.parallelThreshold = u.getParallelThreshold();
+        this.shipBatchSize = u.getShipBatchSize();
+        this.checkpointCapacity = u.getCheckpointCapacity();
+        this.bodies = List.copyOf(u.getAllBodies());
+        List<SmallBodyTable> tables = new ArrayList<>();
+        for (SolarSystem system : u.getSolarSystems())
+        {
+            tables.add(system.getSmallBodies());
+        }
+        this.smallBodies = List.copyOf(tables);
+        this.ships = ships;
+
+        List<Organisation> organisations = new ArrayList<>(u.getOrganisations());
+        this.registered = organisations.size();
+        Map<Organisation, Boolean> seen = new IdentityHashMap<>();
+        for (Organisation o : organisations)
+        {
+            seen.put(o, Boolean.TRUE);
+        }
+        Organisation last = null; // a fleet's ships mostly come in runs of one owner
+        for (int id = 0; id < ships.size(); id++)
+        {
+            Organisation owner = ships.getOwner(id);
+            if (owner != last && seen.put(owner, Boolean.TRUE) == null)
+            {
+                organisations.add(owner);
+            }
+            last = owner;
+        }
+        this.organisations = List.copyOf(organisations);
+
+        FlightPlan lastPlan = null;
+        for (int id = 0; id < ships.size(); id++)
+        {
+            FlightPlan plan = ships.getPlan(id);
+            if (plan != null && plan != lastPlan && !plans.containsKey(plan))
+            {
+                List<FlightProcedure> steps = List.copyOf(plan.getProcedures());
+                plans.put(plan, new PlanCopy(plan.getName(), plan.getDescription(), plan.isRepeat(), steps));
+                for (FlightProcedure p : steps)
+                {
+                    procedures.computeIfAbsent(p, SaveSnapshot::copy);
+                }
+            }
+            lastPlan = plan;
+            FlightProcedure current = ships.getProcedure(id);
+            if (current != null)
+            {
+                procedures.computeIfAbsent(current, SaveSnapshot::copy);
+            }
+        }
+    }
+
+    // a procedure's fields as they are now, for the types SaveCodec can write
+    private static FlightProcedure copy(FlightProcedure p)
+    {
+        if (p instanceof HohmannTransferProcedure h)
+        {
+            return new HohmannTransferProcedure(h.getOrigin(), h.getDestination(), h.getMaxDeltaV(), h.getRoughTime());
+        }
+        if (p instanceof LunarTransferProcedure l)
+        {
+            return new LunarTransferProcedure(l.getPlanet(), l.getMoon(), l.getMaxDeltaV());
+        }
+        if (p instanceof LunarReturnProcedure l)
+        {
+            LunarReturnProcedure copy = new LunarReturnProcedure(l.getMoon(), l.getMaxDeltaV());
+            copy.setPlanet(l.getPlanet());
+            return copy;
+        }
+        if (p instanceof WaitProcedure w)
+        {
+            return new WaitProcedure(w.getDuration());
+        }
+        if (p instanceof PrintProcedure pr)
+        {
+            return new PrintProcedure(pr.getMessage());
+        }
+        return p; // SaveCodec refuses it anyway
+    }
+
+    /**
+     * Takes a snapshot on the simulation thread, between ticks.
+     * @param previous the last snapshot of this universe, whose unchanged ships are reused; may be null
+     */
+    public static SaveSnapshot capture(Universe universe, SaveSnapshot previous)
+    {
+        return new SaveSnapshot(universe, ShipCodec.snapshot(universe, previous == null ? null : previous.ships));
+    }
+
+    public double getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Ships captured afresh for this snapshot; the others were shared with the previous one.
+     */
+    public int getShipsCaptured()
+    {
+        return ships.getCaptured();
+    }
+
+    public int getShipCount()
+    {
+        return ships.size();
+    }
+}
@@ -0,0 +1,208 @@
+package util.save;
+
+import flight.FlightPlan;
+import flight.construction.parts.PartDefinition;
+import flight.procedure.FlightProcedure;
+import flight.step.*;
+import simulation.Celestial;
+import simulation.Organisation;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Growable buffer one save section is written into. Strings, part definitions, procedures and
+ * plans are not written inline: each goes into one of the save's shared tables the first time
+ * it is seen and the section stores its index, so shared objects stay shared when loaded.
+ * Celestials are written as their ids.
+ */
+public class SaveWriter
+{
+    static final int BURN_STEP = 0;
+    static final int INTERCEPT_STEP = 1;
+    static final int PRINT_STEP = 2;
+    static final int STATE_STEP = 3;
+    static final int WAIT_STEP = 4;
+
+    private ByteBuffer buffer;
+    private final Tables tables;
+
+    SaveWriter(Tables tables, int initialCapacity)
+    {
+        this.tables = tables;
+        this.buffer = ByteBuffer.allocate(Math.max(64, initialCapacity));
+    }
+
+    public void putByte(int b)
+    {
+        ensure(1);
+        buffer.put((byte) b);
+    }
+
+    public void putBoolean(boolean b)
+    {
+        putByte(b ? 1 : 0);
+    }
+
+    public void putInt(int i)
+    {
+        ensure(4);
+        buffer.putInt(i);
+    }
+
+    public void putLong(long l)
+    {
+        ensure(8);
+        buffer.putLong(l);
+    }
+
+    public void putDouble(double d)
+    {
+        ensure(8);
+        buffer.putDouble(d);
+    }
+
+    /**
+     * Writes a string as its index in the string table; null is -1.
+     */
+    public void putString(String s)
+    {
+        putInt(s == null ? -1 : tables.strings.indexOf(s));
+    }
+
+    public void putCelestial(Celestial c)
+    {
+        putInt(c == null ? -1 : c.id);
+    }
+
+    public void putPart(PartDefinition definition)
+    {
+        putInt(definition == null ? -1 : tables.parts.indexOf(definition));
+    }
+
+    public void putProcedure(FlightProcedure procedure)
+    {
+        putInt(procedure == null ? -1 : tables.procedures.indexOf(procedure));
+    }
+
+    public void putPlan(FlightPlan plan)
+    {
+        putInt(plan == null ? -1 : tables.plans.indexOf(plan));
+    }
+
+    /**
+     * Writes a queued flight step inline.
+     * @throws IllegalArgumentException for a step type the save format doesn't know
+     */
+    public void putStep(FlightStep step)
+    {
+        if (step instanceof BurnStep burn)
+        {
+            putByte(BURN_STEP);
+            putDouble(burn.getDeltaV());
+        }
+        else if (step instanceof InterceptStep intercept)
+        {
+            putByte(INTERCEPT_STEP);
+            putCelestial(intercept.getTarget());
+        }
+        else if (step instanceof PrintStep print)
+        {
+            putByte(PRINT_STEP);
+            putString(print.getMessage());
+        }
+        else if (step instanceof StateStep state)
+        {
+            putByte(STATE_STEP);
+            putString(state.getState());
+        }
+        else if (step instanceof WaitStep wait)
+        {
+            putByte(WAIT_STEP);
+            putDouble(wait.getWait());
+        }
+        else
+        {
+            throw new IllegalArgumentException("Can't save flight step " + step.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Writes raw bytes with their length in front.
+     */
+    public void putBytes(byte[] bytes)
+    {
+        putInt(bytes.length);
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    int size()
+    {
+        return buffer.position();
+    }
+
+    byte[] array()
+    {
+        return buffer.array();
+    }
+
+    private void ensure(int bytes)
+    {
+        if (buffer.remaining() < bytes)
+        {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+    }
+
+    // ------
+    // tables
+    // ------
+    // a save journal keeps these from the base save on, so its entries can refer to the base's entries
+    static class Tables
+    {
+        final Table<String> strings = new Table<>(new HashMap<>());
+        final Table<PartDefinition> parts = new Table<>(new IdentityHashMap<>());
+        final Table<FlightProcedure> procedures = new Table<>(new IdentityHashMap<>());
+        final Table<FlightPlan> plans = new Table<>(new IdentityHashMap<>());
+        final Table<Organisation> organisations = new Table<>(new IdentityHashMap<>());
+        final Set<Organisation> registered = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    static class Table<T>
+    {
+        private final Map<T, Integer> index;
+        private final List<T> values = new ArrayList<>();
+
+        Table(Map<T, Integer> index)
+        {
+            this.index = index;
+        }
+
+        int indexOf(T value)
+        {
+            return index.computeIfAbsent(value, k ->
+            {
+                values.add(k);
+                return values.size() - 1;
+            });
+        }
+
+        /**
+         * Entries in index order. Writing one entry may add more, so walk it by index.
+         */
+        List<T> values()
+        {
+            return values;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package util.schedule;
+
+import util.TimingStats;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * One piece of periodic work registered with a SubsystemScheduler, e.g. the simulation tick,
+ * the map repaint or an autosave. Configure it with the chained setters after registering.
+ *
+ * The work is given the time since its last run, in its own clock's seconds. Runs that were
+ * missed (the frame was late, or the sim jumped ahead) are coalesced into that one call.
+ */
+public class Subsystem
+{
+    public enum Clock
+    {
+        SIM,  // Universe.time, only advances while the simulation runs
+        WALL  // real time
+    }
+
+    private final String name;
+    private final Clock clock;
+    private final double period; // seconds; 0 = whenever the clock has moved
+    private final DoubleConsumer work;
+
+    private long budgetNanos = 1_000_000;
+    private int maxDeferrals = 10;
+    private double maxCatchUp = Double.POSITIVE_INFINITY;
+    private double firstRunDelay = 0;
+
+    private boolean started = false;
+    private double lastRun;
+    private double nextDue;
+    private int deferralsInARow = 0;
+
+    private final TimingStats stats = new TimingStats(120);
+    private long runs = 0;
+    private long coalesced = 0;
+    private long deferred = 0;
+    private long overBudget = 0;
+    private long failures = 0;
+
+    Subsystem(String name, Clock clock, double period, DoubleConsumer work)
+    {
+        this.name = name;
+        this.clock = clock;
+        this.period = Math.max(0, period);
+        this.work = work;
+    }
+
+    /**
+     * What one run is expected to cost. Runs over it are counted, and the scheduler postpones
+     * the subsystem to a later frame if this much time isn't left in the current one.
+     */
+    public Subsystem budgetMillis(double millis)
+    {
+        this.budgetNanos = (long) (millis * 1e6);
+        return this;
+    }
+
+    /**
+     * How many frames in a row the subsystem may be postponed before it runs regardless.
+     */
+    public Subsystem maxDeferrals(int frames)
+    {
+        this.maxDeferrals = Math.max(0, frames);
+        return this;
+    }
+
+    /**
+     * Caps the elapsed time handed to the work, so a long stall (debugger, sleep) isn't
+     * replayed in one go.
+     */
+    public Subsystem maxCatchUp(double seconds)
+    {
+        this.maxCatchUp = seconds;
+        return this;
+    }
+
+    /**
+     * Waits this long after the first frame before the first run, instead of running on it.
+     * Use for work that has nothing to do at startup, such as an autosave.
+     */
+    public Subsystem firstRunAfter(double seconds)
+    {
+        this.firstRunDelay = Math.max(0, seconds);
+        return this;
+    }
+
+    // -------------------
+    // used by the scheduler
+    // -------------------
+    boolean isDue(double now)
+    {
+        if (!started)
+        {
+            started = true;
+            lastRun = now;
+            nextDue = now + firstRunDelay;
+        }
+        return now >= nextDue && (period > 0 || now > lastRun || runs == 0);
+    }
+
+    /**
+     * Expected cost of the next run: the budget, or the recent average if it runs over.
+     */
+    long expectedNanos()
+    {
+        return Math.max(budgetNanos, (long) stats.getMeanNanos());
+    }
+
+    boolean mayDefer()
+    {
+        return deferralsInARow < maxDeferrals;
+    }
+
+    void defer()
+    {
+        deferralsInARow++;
+        deferred++;
+    }
+
+    void run(double now)
+    {
+        if (period > 0)
+        {
+            // keep the phase; every period we skipped is folded into this run
+            long missed = (long) Math.floor((now - nextDue) / period);
+            coalesced += missed;
+            nextDue += (missed + 1) * period;
+        }
+        else
+        {
+            nextDue = now;
+        }
+        double elapsed = Math.min(now - lastRun, maxCatchUp);
+        lastRun = now;
+        deferralsInARow = 0;
+
+        long t0 = System.nanoTime();
+        try
+        {
+            work.accept(elapsed);
+        }
+        catch (RuntimeException e)
+        {
+            failures++;
+            System.err.println("Subsystem " + name + " failed: " + e);
+            e.printStackTrace();
+        }
+        long took = System.nanoTime() - t0;
+        stats.record(took);
+        runs++;
+        if (took > budgetNanos) overBudget++;
+    }
+
+    // -------
+    // getters
+    // -------
+    public String getName()
+    {
+        return name;
+    }
+
+    public Clock getClock()
+    {
+        return clock;
+    }
+
+    public double getPeriod()
+    {
+        return period;
+    }
+
+    public TimingStats getStats()
+    {
+        return stats;
+    }
+
+    public long getRuns()
+    {
+        return runs;
+    }
+
+    public long getCoalescedRuns()
+    {
+        return coalesced;
+    }
+
+    public long getDeferredRuns()
+    {
+        return deferred;
+    }
+
+    public long getOverBudgetRuns()
+    {
+        return overBudget;
+    }
+
+    public long getFailures()
+    {
+        return failures;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%-12s %-4s runs %d  coalesced %d  deferred %d  over budget %d  mean %.3f ms  p99 %.3f ms",
+                name, clock, runs, coalesced, deferred, overBudget,
+                TimingStats.toMillis(stats.getMeanNanos()), TimingStats.toMillis(stats.percentile(99)));
+    }
+}
@@ -0,0 +1,90 @@
+package util.schedule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Runs subsystems at their own cadence, in sim time or wall time, from one frame callback.
+ *
+ * Each frame, due subsystems run in registration order, so register the cheap, frequent ones
+ * (simulation, repaint) first. Once a subsystem's expected cost would push the frame past the
+ * frame budget it is postponed to the next frame, up to its maxDeferrals, so one expensive,
+ * rare job doesn't stall everything queued behind it. Overdue runs are coalesced.
+ *
+ * Not thread safe; call runFrame() from one thread (the EDT, in GameLoop).
+ */
+public class SubsystemScheduler
+{
+    private final DoubleSupplier simClock;
+    private final List<Subsystem> subsystems = new ArrayList<>();
+    private long frameBudgetNanos = 12_000_000; // leaves room in a 60 Hz frame for painting
+
+    /**
+     * @param simClock current sim time in seconds, normally {@code () -> universe.time}.
+     *                 Read per subsystem, so SIM subsystems see a tick that ran earlier in the frame.
+     */
+    public SubsystemScheduler(DoubleSupplier simClock)
+    {
+        this.simClock = simClock;
+    }
+
+    public Subsystem every(String name, Subsystem.Clock clock, double periodSeconds, DoubleConsumer work)
+    {
+        Subsystem s = new Subsystem(name, clock, periodSeconds, work);
+        subsystems.add(s);
+        return s;
+    }
+
+    public void remove(Subsystem s)
+    {
+        subsystems.remove(s);
+    }
+
+    public void setFrameBudgetMillis(double millis)
+    {
+        this.frameBudgetNanos = (long) (millis * 1e6);
+    }
+
+    public int runFrame()
+    {
+        return runFrame(System.nanoTime());
+    }
+
+    /**
+     * Runs whatever is due.
+     * @param wallNanos System.nanoTime() at the start of the frame
+     * @return number of subsystems that ran
+     */
+    public int runFrame(long wallNanos)
+    {
+        double wallTime = wallNanos / 1e9;
+        int ran = 0;
+
+        for (int i = 0; i < subsystems.size(); i++)
+        {
+            Subsystem s = subsystems.get(i);
+            double now = s.getClock() == Subsystem.Clock.SIM ? simClock.getAsDouble() : wallTime;
+            if (!s.isDue(now))
+                continue;
+
+            long spent = System.nanoTime() - wallNanos;
+            if (ran > 0 && spent + s.expectedNanos() > frameBudgetNanos && s.mayDefer())
+            {
+                s.defer();
+                continue;
+            }
+
+            s.run(now);
+            ran++;
+        }
+        return ran;
+    }
+
+    public List<Subsystem> getSubsystems()
+    {
+        return Collections.unmodifiableList(subsystems);
+    }
+}